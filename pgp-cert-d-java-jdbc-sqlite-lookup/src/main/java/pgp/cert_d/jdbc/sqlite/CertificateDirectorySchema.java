@@ -0,0 +1,108 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema of the tables used by the {@link SqliteCertificateDirectoryBackend} in addition to the
+ * {@link SubkeyLookupSchema subkey lookup table}.
+ *
+ * Certificates are stored in a table with an integer row id and a unique index on the binary fingerprint,
+ * since SQLite advises against large blobs in <pre>WITHOUT ROWID</pre> tables.
+ * Tags are drawn from a single-row counter table inside the insert transaction, so that they are strictly
+ * increasing even if multiple processes write to the same database file.
+ */
+final class CertificateDirectorySchema {
+
+    static final String CREATE_CERTIFICATES_TABLE_STMT = "" +
+            "CREATE TABLE IF NOT EXISTS certificates (\n" +
+            "  fingerprint blob NOT NULL UNIQUE,\n" +  // binary certificate fingerprint
+            "  tag integer NOT NULL,\n" +              // tag of the last change
+            "  data blob NOT NULL\n" +                 // binary or armored certificate
+            ")";
+
+    static final String CREATE_SPECIAL_NAMES_TABLE_STMT = "" +
+            "CREATE TABLE IF NOT EXISTS special_names (\n" +
+            "  name text NOT NULL PRIMARY KEY,\n" +    // special name, e.g. trust-root
+            "  tag integer NOT NULL,\n" +
+            "  data blob NOT NULL\n" +                 // key or certificate
+            ")";
+
+    static final String CREATE_TAG_COUNTER_TABLE_STMT = "" +
+            "CREATE TABLE IF NOT EXISTS tag_counter (\n" +
+            "  id integer PRIMARY KEY CHECK (id = 0),\n" +
+            "  last_tag integer NOT NULL\n" +
+            ")";
+
+    static final String INIT_TAG_COUNTER_STMT = "" +
+            "INSERT OR IGNORE INTO tag_counter(id, last_tag) VALUES (0, 0)";
+
+    static final String INCREMENT_TAG_STMT = "" +
+            "UPDATE tag_counter SET last_tag = last_tag + 1 WHERE id = 0";
+
+    static final String SELECT_TAG_STMT = "" +
+            "SELECT last_tag FROM tag_counter WHERE id = 0";
+
+    static final String SELECT_CERTIFICATE_STMT = "" +
+            "SELECT tag, data FROM certificates WHERE fingerprint=?";
+
+    static final String SELECT_CERTIFICATE_TAG_STMT = "" +
+            "SELECT tag FROM certificates WHERE fingerprint=?";
+
+    static final String UPSERT_CERTIFICATE_STMT = "" +
+            "INSERT OR REPLACE INTO certificates(fingerprint, tag, data) VALUES (?,?,?)";
+
+    /**
+     * Keyset pagination over all certificates, ordered by fingerprint.
+     */
+    static final String SELECT_CERTIFICATES_PAGE_STMT = "" +
+            "SELECT fingerprint, tag, data FROM certificates WHERE fingerprint>? ORDER BY fingerprint LIMIT ?";
+
+    /**
+     * Keyset pagination over all certificate entries, which does not load the certificate data.
+     */
+    static final String SELECT_ENTRIES_PAGE_STMT = "" +
+            "SELECT fingerprint, tag, length(data) AS size FROM certificates WHERE fingerprint>? " +
+            "ORDER BY fingerprint LIMIT ?";
+
+    static final String SELECT_SPECIAL_NAME_STMT = "" +
+            "SELECT tag, data FROM special_names WHERE name=?";
+
+    static final String SELECT_SPECIAL_NAME_TAG_STMT = "" +
+            "SELECT tag FROM special_names WHERE name=?";
+
+    static final String UPSERT_SPECIAL_NAME_STMT = "" +
+            "INSERT OR REPLACE INTO special_names(name, tag, data) VALUES (?,?,?)";
+
+    private CertificateDirectorySchema() {
+
+    }
+
+    /**
+     * Create the subkey lookup and certificate tables if they do not exist yet.
+     *
+     * @param connection database connection in auto-commit mode
+     * @throws SQLException if the schema cannot be created
+     */
+    static void create(Connection connection) throws SQLException {
+        SubkeyLookupSchema.createOrMigrate(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("BEGIN IMMEDIATE");
+            try {
+                statement.execute(CREATE_CERTIFICATES_TABLE_STMT);
+                statement.execute(CREATE_SPECIAL_NAMES_TABLE_STMT);
+                statement.execute(CREATE_TAG_COUNTER_TABLE_STMT);
+                statement.execute(INIT_TAG_COUNTER_STMT);
+                statement.execute("COMMIT");
+            } catch (SQLException e) {
+                statement.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+}
@@ -4,16 +4,19 @@
 
 package pgp.cert_d.jdbc.sqlite;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import pgp.cert_d.jfr.FlightRecorderEvents;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 
-public class DatabaseSubkeyLookup implements SubkeyLookup {
+public class DatabaseSubkeyLookup implements SubkeyLookup, Closeable {
 
     private final SubkeyLookupDao dao;
 
@@ -24,7 +27,29 @@ public class DatabaseSubkeyLookup implements SubkeyLookup {
     @Override
     public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
         try {
+            Object event = FlightRecorderEvents.beginSubkeyLookupQuery();
             List<Entry> entries = dao.selectValues(subkeyId);
+            FlightRecorderEvents.commitSubkeyLookupQuery(event, 1, entries.size());
+            Set<String> certificates = new HashSet<>();
+            for (Entry entry : entries) {
+                certificates.add(entry.getCertificate());
+            }
+
+            return Collections.unmodifiableSet(certificates);
+        } catch (SQLException e) {
+            throw new IOException("Cannot query for subkey lookup entries.", e);
+        }
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyIds(long... subkeyIds) throws IOException {
+        if (subkeyIds.length == 0) {
+            return Collections.emptySet();
+        }
+        try {
+            Object event = FlightRecorderEvents.beginSubkeyLookupQuery();
+            List<Entry> entries = dao.selectValues(subkeyIds);
+            FlightRecorderEvents.commitSubkeyLookupQuery(event, subkeyIds.length, entries.size());
             Set<String> certificates = new HashSet<>();
             for (Entry entry : entries) {
                 certificates.add(entry.getCertificate());
@@ -39,9 +64,37 @@ public class DatabaseSubkeyLookup implements SubkeyLookup {
     @Override
     public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
         try {
-            dao.insertValues(certificate, subkeyIds);
+            Object event = FlightRecorderEvents.beginSubkeyLookupStore();
+            int inserted = dao.insertValues(certificate, subkeyIds);
+            FlightRecorderEvents.commitSubkeyLookupStore(event, 1, inserted);
         } catch (SQLException e) {
             throw new IOException("Cannot store subkey lookup entries in database.", e);
         }
     }
+
+    @Override
+    public void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) throws IOException {
+        if (certificateSubkeyIds.isEmpty()) {
+            return;
+        }
+        try {
+            Object event = FlightRecorderEvents.beginSubkeyLookupStore();
+            int inserted = dao.insertValues(certificateSubkeyIds);
+            FlightRecorderEvents.commitSubkeyLookupStore(event, certificateSubkeyIds.size(), inserted);
+        } catch (SQLException e) {
+            throw new IOException("Cannot store subkey lookup entries in database.", e);
+        }
+    }
+
+    /**
+     * Release the resources held by the underlying {@link SubkeyLookupDao}, if it holds any.
+     *
+     * @throws IOException if the dao cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (dao instanceof Closeable) {
+            ((Closeable) dao).close();
+        }
+    }
 }
@@ -17,13 +17,37 @@ import java.sql.SQLException;
 public class DatabaseSubkeyLookupFactory implements SubkeyLookupFactory {
 
     private String databaseName;
+    private final boolean pooled;
 
     public DatabaseSubkeyLookupFactory() {
         this("_pgpainless_subkey_map.db");
     }
 
     public DatabaseSubkeyLookupFactory(String databaseName) {
+        this(databaseName, false);
+    }
+
+    /**
+     * Create a factory for database-backed {@link SubkeyLookup} instances.
+     * If <pre>pooled</pre> is true, the created instances use a {@link PooledSqliteSubkeyLookupDaoImpl},
+     * which keeps its connections open and needs to be closed via {@link DatabaseSubkeyLookup#close()}.
+     *
+     * @param databaseName name of the database file
+     * @param pooled whether to use a long-lived connection pool
+     */
+    public DatabaseSubkeyLookupFactory(String databaseName, boolean pooled) {
         this.databaseName = databaseName;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Return a factory for {@link DatabaseSubkeyLookup} instances using the default database name and
+     * a {@link PooledSqliteSubkeyLookupDaoImpl}.
+     *
+     * @return factory
+     */
+    public static DatabaseSubkeyLookupFactory pooled() {
+        return new DatabaseSubkeyLookupFactory("_pgpainless_subkey_map.db", true);
     }
 
     @Override
@@ -34,7 +58,8 @@ public class DatabaseSubkeyLookupFactory implements SubkeyLookupFactory {
             if (!databaseFile.exists()) {
                 databaseFile.createNewFile();
             }
-            dao = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+            dao = pooled ? PooledSqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile)
+                    : SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
         } catch (SQLException | IOException e) {
             throw new RuntimeException(e);
         }
@@ -13,6 +13,25 @@ public class Entry {
     private final String certificate;
     private final long subkeyId;
 
+    /**
+     * Create an entry.
+     *
+     * @param subkeyId key-ID of the subkey
+     * @param certificate fingerprint of the certificate
+     */
+    public Entry(long subkeyId, String certificate) {
+        this(0, subkeyId, certificate);
+    }
+
+    /**
+     * Create an entry with an internal id.
+     *
+     * @param id internal id
+     * @param subkeyId key-ID of the subkey
+     * @param certificate fingerprint of the certificate
+     * @deprecated entries no longer have an internal id since schema version 2, use {@link #Entry(long, String)}
+     */
+    @Deprecated
     public Entry(int id,  long subkeyId, String certificate) {
         this.id = id;
         this.subkeyId = subkeyId;
@@ -23,7 +42,10 @@ public class Entry {
      * Get the internal ID of this entry in the database.
      *
      * @return internal id
+     * @deprecated entries no longer have an internal id since schema version 2, so this method always returns 0
+     * for entries read from the database
      */
+    @Deprecated
     public int getId() {
         return id;
     }
@@ -0,0 +1,264 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import org.sqlite.SQLiteConfig;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * High-throughput implementation of the {@link SubkeyLookupDao} for SQLite databases.
+ * Contrary to {@link SqliteSubkeyLookupDaoImpl}, this implementation keeps its connections open for its entire
+ * lifetime and reuses prepared statements.
+ * The database is switched to WAL journal mode, so that readers do not block the writer and vice versa.
+ *
+ * Since SQLite only supports a single writer at a time, all inserts go through one dedicated writer connection.
+ * Inserts are executed as a single JDBC batch of <pre>INSERT OR IGNORE</pre> statements within one transaction.
+ * Queries are served by a fixed-size pool of reader connections.
+ *
+ * Instances MUST be {@link #close() closed} after use in order to release the database connections.
+ */
+public class PooledSqliteSubkeyLookupDaoImpl implements SubkeyLookupDao, Closeable {
+
+    /**
+     * Default number of reader connections.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Connection with its prepared statement.
+     */
+    private static final class PooledStatement {
+
+        private final Connection connection;
+        private final PreparedStatement statement;
+
+        private PooledStatement(Connection connection, String sql) throws SQLException {
+            this.connection = connection;
+            try {
+                this.statement = connection.prepareStatement(sql);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+
+        private void close() throws SQLException {
+            try {
+                statement.close();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private final PooledStatement writer;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final BlockingQueue<PooledStatement> readers;
+    private final List<PooledStatement> allReaders;
+    private volatile boolean closed = false;
+
+    public PooledSqliteSubkeyLookupDaoImpl(String databaseURL) throws SQLException {
+        this(databaseURL, DEFAULT_POOL_SIZE);
+    }
+
+    public PooledSqliteSubkeyLookupDaoImpl(String databaseURL, int poolSize) throws SQLException {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size MUST be at least 1.");
+        }
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // In WAL mode, NORMAL is safe against corruption; only the last transactions may be lost on power failure
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+
+        Connection writerConnection = config.createConnection(databaseURL);
+        try {
+            SubkeyLookupSchema.createOrMigrate(writerConnection);
+        } catch (SQLException e) {
+            writerConnection.close();
+            throw e;
+        }
+        this.writer = new PooledStatement(writerConnection, SubkeyLookupSchema.INSERT_OR_IGNORE_STMT);
+
+        this.readers = new ArrayBlockingQueue<>(poolSize);
+        this.allReaders = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                PooledStatement reader = new PooledStatement(
+                        config.createConnection(databaseURL), SubkeyLookupSchema.QUERY_STMT);
+                allReaders.add(reader);
+                readers.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static PooledSqliteSubkeyLookupDaoImpl forDatabaseFile(File databaseFile) throws SQLException {
+        return forDatabaseFile(databaseFile, DEFAULT_POOL_SIZE);
+    }
+
+    public static PooledSqliteSubkeyLookupDaoImpl forDatabaseFile(File databaseFile, int poolSize)
+            throws SQLException {
+        return new PooledSqliteSubkeyLookupDaoImpl("jdbc:sqlite:" + databaseFile.getAbsolutePath(), poolSize);
+    }
+
+    @Override
+    public int insertValues(String certificate, List<Long> subkeyIds) throws SQLException {
+        if (subkeyIds.isEmpty()) {
+            return 0;
+        }
+        writerLock.lock();
+        try {
+            ensureOpen();
+            writer.connection.setAutoCommit(false);
+            try {
+                addBatch(certificate, subkeyIds);
+                return executeBatchAndCommit();
+            } finally {
+                writer.statement.clearBatch();
+                writer.connection.setAutoCommit(true);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public int insertValues(Map<String, List<Long>> certificateSubkeyIds) throws SQLException {
+        writerLock.lock();
+        try {
+            ensureOpen();
+            writer.connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<Long>> entry : certificateSubkeyIds.entrySet()) {
+                    addBatch(entry.getKey(), entry.getValue());
+                }
+                return executeBatchAndCommit();
+            } finally {
+                writer.statement.clearBatch();
+                writer.connection.setAutoCommit(true);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void addBatch(String certificate, List<Long> subkeyIds) throws SQLException {
+        byte[] fingerprint = SubkeyLookupSchema.encodeFingerprint(certificate);
+        for (long subkeyId : subkeyIds) {
+            writer.statement.setLong(1, subkeyId);
+            writer.statement.setBytes(2, fingerprint);
+            writer.statement.addBatch();
+        }
+    }
+
+    private int executeBatchAndCommit() throws SQLException {
+        try {
+            int inserted = 0;
+            for (int count : writer.statement.executeBatch()) {
+                // ignored duplicates are reported with an update count of 0
+                if (count > 0) {
+                    inserted += count;
+                }
+            }
+            writer.connection.commit();
+            return inserted;
+        } catch (SQLException e) {
+            writer.connection.rollback();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Entry> selectValues(long subkeyId) throws SQLException {
+        PooledStatement reader = takeReader();
+        try {
+            ensureOpen();
+            List<Entry> results = new ArrayList<>();
+            reader.statement.setLong(1, subkeyId);
+            try (ResultSet resultSet = reader.statement.executeQuery()) {
+                SubkeyLookupSchema.readEntries(resultSet, results);
+            }
+            return results;
+        } finally {
+            readers.offer(reader);
+        }
+    }
+
+    @Override
+    public List<Entry> selectValues(long[] subkeyIds) throws SQLException {
+        PooledStatement reader = takeReader();
+        try {
+            ensureOpen();
+            List<Entry> results = new ArrayList<>();
+            SubkeyLookupSchema.selectEntries(reader.connection, subkeyIds, results);
+            return results;
+        } finally {
+            readers.offer(reader);
+        }
+    }
+
+    private PooledStatement takeReader() throws SQLException {
+        ensureOpen();
+        try {
+            return readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Database connection pool is closed.");
+        }
+    }
+
+    /**
+     * Close all database connections.
+     * Readers which are currently executing a query will have their connection closed underneath them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                closeQuietly(writer);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+        if (allReaders != null) {
+            for (PooledStatement reader : allReaders) {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    private static void closeQuietly(PooledStatement pooledStatement) {
+        try {
+            pooledStatement.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,651 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import org.sqlite.SQLiteConfig;
+import pgp.cert_d.CertificateEntry;
+import pgp.cert_d.Fingerprint;
+import pgp.cert_d.InsertResult;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.SpecialNames;
+import pgp.cert_d.backend.StampedLockingMechanism;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link PGPCertificateDirectory.Backend} which stores certificates, special-name entries
+ * and tags in a single SQLite database file instead of one file per certificate.
+ * Subkey-ids of inserted certificates are written to the subkey lookup table of the same database within the
+ * insert transaction, so the {@link SubkeyLookup} returned by {@link #getSubkeyLookup()} never misses
+ * certificates of committed inserts.
+ * {@link #doInsertAll(Iterable, KeyMaterialMerger, List)} inserts all certificates atomically in a single
+ * transaction, so that either all or none of them are stored.
+ *
+ * Like the {@link PooledSqliteSubkeyLookupDaoImpl}, the database is switched to WAL journal mode, all writes go
+ * through one writer connection and queries are served by a fixed-size pool of reader connections.
+ * Tags are drawn from a counter stored in the database and are strictly increasing.
+ * The resulting store is NOT compatible with the cert-d specification.
+ *
+ * Instances MUST be {@link #close() closed} after use in order to release the database connections.
+ */
+public class SqliteCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
+
+    /**
+     * Default number of reader connections.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Number of rows fetched per query when iterating over all certificates.
+     */
+    private static final int PAGE_SIZE = 256;
+
+    /**
+     * Connection with its prepared statements, which are created on first use.
+     */
+    private static final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        private PreparedStatement statement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private void close() throws SQLException {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Unit of work on a pooled connection.
+     *
+     * @param <T> result type
+     */
+    private interface Query<T> {
+        T execute(PooledConnection connection) throws SQLException, IOException, BadDataException;
+    }
+
+    /**
+     * Mapping of a result set row to a result.
+     *
+     * @param <T> result type
+     */
+    private interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException, IOException, BadDataException;
+    }
+
+    private final KeyMaterialReaderBackend reader;
+    private final PGPCertificateDirectory.LockingMechanism lock = new StampedLockingMechanism();
+    private final PooledConnection writer;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final BlockingQueue<PooledConnection> readers;
+    private final List<PooledConnection> allReaders;
+    private final DatabaseSubkeyLookup subkeyLookup = new DatabaseSubkeyLookup(new Dao());
+    private volatile boolean closed = false;
+
+    public SqliteCertificateDirectoryBackend(String databaseURL, KeyMaterialReaderBackend reader)
+            throws SQLException {
+        this(databaseURL, reader, DEFAULT_POOL_SIZE);
+    }
+
+    public SqliteCertificateDirectoryBackend(String databaseURL, KeyMaterialReaderBackend reader, int poolSize)
+            throws SQLException {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size MUST be at least 1.");
+        }
+        this.reader = reader;
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // In WAL mode, NORMAL is safe against corruption; only the last transactions may be lost on power failure
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        // Take the write lock when the transaction begins, since every transaction reads before it writes
+        config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+
+        Connection writerConnection = config.createConnection(databaseURL);
+        try {
+            CertificateDirectorySchema.create(writerConnection);
+        } catch (SQLException e) {
+            writerConnection.close();
+            throw e;
+        }
+        this.writer = new PooledConnection(writerConnection);
+
+        this.readers = new ArrayBlockingQueue<>(poolSize);
+        this.allReaders = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                PooledConnection readerConnection = new PooledConnection(config.createConnection(databaseURL));
+                allReaders.add(readerConnection);
+                readers.add(readerConnection);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static SqliteCertificateDirectoryBackend forDatabaseFile(File databaseFile, KeyMaterialReaderBackend reader)
+            throws SQLException {
+        return forDatabaseFile(databaseFile, reader, DEFAULT_POOL_SIZE);
+    }
+
+    public static SqliteCertificateDirectoryBackend forDatabaseFile(File databaseFile,
+                                                                    KeyMaterialReaderBackend reader,
+                                                                    int poolSize)
+            throws SQLException {
+        return new SqliteCertificateDirectoryBackend(
+                "jdbc:sqlite:" + databaseFile.getAbsolutePath(), reader, poolSize);
+    }
+
+    /**
+     * Return a {@link SubkeyLookup} backed by the subkey lookup table of this database.
+     * Since the backend already stores the subkey-ids of inserted certificates within the insert transaction,
+     * storing them again via the returned lookup does not add any entries.
+     * The lookup does not need to be closed separately and becomes unusable once the backend is closed.
+     *
+     * @return subkey lookup
+     */
+    public SubkeyLookup getSubkeyLookup() {
+        return subkeyLookup;
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return lock;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        return readByFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+        KeyMaterial keyMaterial = read(connection -> selectKeyMaterial(connection,
+                CertificateDirectorySchema.SELECT_CERTIFICATE_STMT, fingerprint.getBytes()));
+        return keyMaterial == null ? null : keyMaterial.asCertificate();
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException, IOException, BadDataException {
+        String name = checkSpecialName(specialName);
+        return read(connection -> selectKeyMaterial(connection,
+                CertificateDirectorySchema.SELECT_SPECIAL_NAME_STMT, name));
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        return paged(CertificateDirectorySchema.SELECT_CERTIFICATES_PAGE_STMT,
+                resultSet -> parse(resultSet.getBytes("data"), resultSet.getLong("tag")).asCertificate());
+    }
+
+    @Override
+    public Iterator<CertificateEntry> listEntries() {
+        return paged(CertificateDirectorySchema.SELECT_ENTRIES_PAGE_STMT,
+                resultSet -> new CertificateEntry(SubkeyLookupSchema.toHex(resultSet.getBytes("fingerprint")),
+                        resultSet.getLong("tag"), resultSet.getLong("size")));
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        try {
+            return doInsertKeyMaterialWithSpecialName(SpecialNames.TRUST_ROOT, data, merge);
+        } catch (BadNameException e) {
+            // Does not happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        return doInsertIfChanged(data, merge).getCertificate();
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        // Parse outside the transaction
+        KeyMaterial update = reader.read(data, null);
+        return write(connection -> insertCertificate(connection, update, merge));
+    }
+
+    @Override
+    public void doInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge, List<InsertResult> results)
+            throws IOException, BadDataException {
+        // Parse outside the transaction. If any certificate is malformed, nothing is written.
+        List<KeyMaterial> updates = new ArrayList<>();
+        for (InputStream certificate : data) {
+            updates.add(reader.read(certificate, null));
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        results.addAll(write(connection -> {
+            List<InsertResult> inserted = new ArrayList<>(updates.size());
+            for (KeyMaterial update : updates) {
+                inserted.add(insertCertificate(connection, update, merge));
+            }
+            return inserted;
+        }));
+    }
+
+    /**
+     * Return true for the {@link #getSubkeyLookup() subkey lookup of this backend}, whose table is updated within
+     * the insert transactions.
+     *
+     * @param subkeyLookup subkey lookup of the directory
+     * @return true if the subkey lookup is the one of this backend
+     */
+    @Override
+    public boolean updatesSubkeyLookup(SubkeyLookup subkeyLookup) {
+        return subkeyLookup == this.subkeyLookup;
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        return doInsertKeyMaterialWithSpecialName(specialName, data, merge).asCertificate();
+    }
+
+    private KeyMaterial doInsertKeyMaterialWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        String name = checkSpecialName(specialName);
+        KeyMaterial update = reader.read(data, null);
+        return write(connection -> {
+            KeyMaterial existing = selectKeyMaterial(connection,
+                    CertificateDirectorySchema.SELECT_SPECIAL_NAME_STMT, name);
+            KeyMaterial merged = merge.merge(update, existing);
+            byte[] encoding = encode(merged);
+            long tag = nextTag(connection);
+            PreparedStatement upsert = connection.statement(CertificateDirectorySchema.UPSERT_SPECIAL_NAME_STMT);
+            upsert.setString(1, name);
+            upsert.setLong(2, tag);
+            upsert.setBytes(3, encoding);
+            upsert.executeUpdate();
+            storeSubkeyIds(connection, parseFingerprint(merged).getBytes(), merged.getSubkeyIds());
+            return parse(encoding, tag);
+        });
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException {
+        return getTagForFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Long getTagForFingerprint(Fingerprint fingerprint) throws IOException {
+        try {
+            return read(connection -> selectTag(connection,
+                    CertificateDirectorySchema.SELECT_CERTIFICATE_TAG_STMT, fingerprint.getBytes()));
+        } catch (BadDataException e) {
+            // Does not happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Long getTagForSpecialName(String specialName) throws BadNameException, IOException {
+        String name = checkSpecialName(specialName);
+        try {
+            return read(connection -> selectTag(connection,
+                    CertificateDirectorySchema.SELECT_SPECIAL_NAME_TAG_STMT, name));
+        } catch (BadDataException e) {
+            // Does not happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    private InsertResult insertCertificate(PooledConnection connection, KeyMaterial update, KeyMaterialMerger merge)
+            throws SQLException, IOException, BadDataException {
+        byte[] fingerprint = parseFingerprint(update).getBytes();
+        byte[] existingEncoding = null;
+        Certificate existing = null;
+        PreparedStatement select = connection.statement(CertificateDirectorySchema.SELECT_CERTIFICATE_STMT);
+        select.setBytes(1, fingerprint);
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (resultSet.next()) {
+                existingEncoding = resultSet.getBytes("data");
+                existing = parse(existingEncoding, resultSet.getLong("tag")).asCertificate();
+            }
+        }
+
+        Certificate merged = merge.merge(update, existing).asCertificate();
+        byte[] encoding = encode(merged);
+        if (existing != null && Arrays.equals(encoding, existingEncoding)) {
+            return InsertResult.unchanged(existing);
+        }
+        long tag = nextTag(connection);
+        PreparedStatement upsert = connection.statement(CertificateDirectorySchema.UPSERT_CERTIFICATE_STMT);
+        upsert.setBytes(1, fingerprint);
+        upsert.setLong(2, tag);
+        upsert.setBytes(3, encoding);
+        upsert.executeUpdate();
+        storeSubkeyIds(connection, fingerprint, merged.getSubkeyIds());
+        return InsertResult.changed(new Certificate(merged, tag));
+    }
+
+    private static int storeSubkeyIds(PooledConnection connection, byte[] fingerprint, List<Long> subkeyIds)
+            throws SQLException {
+        if (subkeyIds.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement insert = connection.statement(SubkeyLookupSchema.INSERT_OR_IGNORE_STMT);
+        try {
+            for (long subkeyId : subkeyIds) {
+                insert.setLong(1, subkeyId);
+                insert.setBytes(2, fingerprint);
+                insert.addBatch();
+            }
+            int inserted = 0;
+            for (int count : insert.executeBatch()) {
+                // ignored duplicates are reported with an update count of 0
+                if (count > 0) {
+                    inserted += count;
+                }
+            }
+            return inserted;
+        } finally {
+            insert.clearBatch();
+        }
+    }
+
+    /**
+     * Return a new tag, which is strictly greater than any previously returned tag.
+     * Must be called within a write transaction.
+     */
+    private static long nextTag(PooledConnection connection) throws SQLException {
+        connection.statement(CertificateDirectorySchema.INCREMENT_TAG_STMT).executeUpdate();
+        try (ResultSet resultSet = connection.statement(CertificateDirectorySchema.SELECT_TAG_STMT).executeQuery()) {
+            if (!resultSet.next()) {
+                throw new SQLException("Tag counter is missing.");
+            }
+            return resultSet.getLong(1);
+        }
+    }
+
+    private KeyMaterial selectKeyMaterial(PooledConnection connection, String sql, Object key)
+            throws SQLException, IOException, BadDataException {
+        PreparedStatement select = connection.statement(sql);
+        select.setObject(1, key);
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            return parse(resultSet.getBytes("data"), resultSet.getLong("tag"));
+        }
+    }
+
+    private KeyMaterial parse(byte[] encoding, long tag) throws IOException, BadDataException {
+        // parse the blob in place, without wrapping it in a stream
+        return reader.read(encoding, 0, encoding.length, tag);
+    }
+
+    private static Long selectTag(PooledConnection connection, String sql, Object key) throws SQLException {
+        PreparedStatement select = connection.statement(sql);
+        select.setObject(1, key);
+        try (ResultSet resultSet = select.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong("tag") : null;
+        }
+    }
+
+    /**
+     * Return an iterator which fetches the rows of a keyset pagination query page by page, so that neither a
+     * connection is held while iterating nor all rows are loaded at once.
+     */
+    private <T> Iterator<T> paged(String sql, RowMapper<T> mapper) {
+        return new Iterator<T>() {
+            private byte[] lastFingerprint = new byte[0];
+            private Iterator<T> page = Collections.emptyIterator();
+            private boolean exhausted = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    fetch();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+
+            private void fetch() {
+                try {
+                    List<T> rows = read(connection -> {
+                        PreparedStatement select = connection.statement(sql);
+                        select.setBytes(1, lastFingerprint);
+                        select.setInt(2, PAGE_SIZE);
+                        List<T> results = new ArrayList<>(PAGE_SIZE);
+                        try (ResultSet resultSet = select.executeQuery()) {
+                            while (resultSet.next()) {
+                                lastFingerprint = resultSet.getBytes("fingerprint");
+                                results.add(mapper.map(resultSet));
+                            }
+                        }
+                        return results;
+                    });
+                    exhausted = rows.size() < PAGE_SIZE;
+                    page = rows.iterator();
+                } catch (BadDataException e) {
+                    throw new AssertionError("Could not retrieve item: " + e.getMessage());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private <T> T read(Query<T> query) throws IOException, BadDataException {
+        try {
+            PooledConnection connection = takeReader();
+            try {
+                ensureOpen();
+                return query.execute(connection);
+            } finally {
+                readers.offer(connection);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot query certificate database.", e);
+        }
+    }
+
+    /**
+     * Execute the given unit of work in a single transaction on the writer connection.
+     * The transaction is rolled back if the unit of work fails.
+     */
+    private <T> T write(Query<T> transaction) throws IOException, BadDataException {
+        writerLock.lock();
+        try {
+            ensureOpen();
+            writer.connection.setAutoCommit(false);
+            try {
+                T result = transaction.execute(writer);
+                writer.connection.commit();
+                return result;
+            } catch (SQLException | IOException | BadDataException | RuntimeException e) {
+                writer.connection.rollback();
+                throw e;
+            } finally {
+                writer.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot write to certificate database.", e);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private static String checkSpecialName(String specialName) throws BadNameException {
+        String name = SpecialNames.lookupSpecialName(specialName);
+        if (name == null) {
+            throw new BadNameException("Invalid special name " + specialName);
+        }
+        return name;
+    }
+
+    private static Fingerprint parseFingerprint(KeyMaterial keyMaterial) throws BadDataException {
+        try {
+            return Fingerprint.fromHex(keyMaterial.getFingerprint());
+        } catch (BadNameException e) {
+            throw new BadDataException("Malformed key fingerprint: " + keyMaterial.getFingerprint());
+        }
+    }
+
+    private static byte[] encode(KeyMaterial keyMaterial) throws IOException {
+        try (InputStream in = keyMaterial.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private PooledConnection takeReader() throws SQLException {
+        ensureOpen();
+        try {
+            return readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Certificate database is closed.");
+        }
+    }
+
+    /**
+     * Close all database connections.
+     * Readers which are currently executing a query will have their connection closed underneath them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                closeQuietly(writer);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+        if (allReaders != null) {
+            for (PooledConnection connection : allReaders) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private static void closeQuietly(PooledConnection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * {@link SubkeyLookupDao} operating on the connections of the backend.
+     */
+    private final class Dao implements SubkeyLookupDao {
+
+        @Override
+        public int insertValues(String certificate, List<Long> subkeyIds) throws SQLException {
+            return insertValues(Collections.singletonMap(certificate, subkeyIds));
+        }
+
+        @Override
+        public int insertValues(Map<String, List<Long>> certificateSubkeyIds) throws SQLException {
+            writerLock.lock();
+            try {
+                ensureOpen();
+                writer.connection.setAutoCommit(false);
+                try {
+                    int inserted = 0;
+                    for (Map.Entry<String, List<Long>> entry : certificateSubkeyIds.entrySet()) {
+                        inserted += storeSubkeyIds(writer,
+                                SubkeyLookupSchema.encodeFingerprint(entry.getKey()), entry.getValue());
+                    }
+                    writer.connection.commit();
+                    return inserted;
+                } catch (SQLException e) {
+                    writer.connection.rollback();
+                    throw e;
+                } finally {
+                    writer.connection.setAutoCommit(true);
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        }
+
+        @Override
+        public List<Entry> selectValues(long subkeyId) throws SQLException {
+            return selectValues(new long[] {subkeyId});
+        }
+
+        @Override
+        public List<Entry> selectValues(long[] subkeyIds) throws SQLException {
+            PooledConnection connection = takeReader();
+            try {
+                ensureOpen();
+                List<Entry> results = new ArrayList<>();
+                SubkeyLookupSchema.selectEntries(connection.connection, subkeyIds, results);
+                return results;
+            } finally {
+                readers.offer(connection);
+            }
+        }
+    }
+}
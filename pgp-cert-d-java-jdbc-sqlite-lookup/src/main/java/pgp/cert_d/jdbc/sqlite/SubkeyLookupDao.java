@@ -5,11 +5,29 @@
 package pgp.cert_d.jdbc.sqlite;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public interface SubkeyLookupDao {
 
     int insertValues(String certificate, List<Long> subkeyIds) throws SQLException;
 
+    default int insertValues(Map<String, List<Long>> certificateSubkeyIds) throws SQLException {
+        int inserted = 0;
+        for (Map.Entry<String, List<Long>> entry : certificateSubkeyIds.entrySet()) {
+            inserted += insertValues(entry.getKey(), entry.getValue());
+        }
+        return inserted;
+    }
+
     List<Entry> selectValues(long subkeyId) throws SQLException;
+
+    default List<Entry> selectValues(long[] subkeyIds) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        for (long subkeyId : subkeyIds) {
+            entries.addAll(selectValues(subkeyId));
+        }
+        return entries;
+    }
 }
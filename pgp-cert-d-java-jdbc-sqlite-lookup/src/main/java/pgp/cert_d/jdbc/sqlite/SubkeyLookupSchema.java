@@ -0,0 +1,205 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import pgp.cert_d.Fingerprint;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned schema of the subkey lookup database.
+ * The schema version is stored in the <pre>user_version</pre> header field of the database.
+ *
+ * <ul>
+ *     <li>Version 1 (<pre>user_version</pre> 0): Table with an integer row id, the hex encoded fingerprint and
+ *     the subkey-id and a unique constraint on <pre>(certificate, subkey_id)</pre>.
+ *     Queries by subkey-id cannot use the unique index and need to scan the table.</li>
+ *     <li>Version 2: <pre>WITHOUT ROWID</pre> table clustered by the primary key <pre>(subkey_id, certificate)</pre>
+ *     with fingerprints stored as binary blobs, so that queries by subkey-id are served by a range scan
+ *     over the primary key alone.</li>
+ * </ul>
+ */
+final class SubkeyLookupSchema {
+
+    /**
+     * Current schema version.
+     */
+    static final int SCHEMA_VERSION = 2;
+
+    static final String CREATE_TABLE_STMT = "" +
+            "CREATE TABLE IF NOT EXISTS subkey_lookup (\n" +
+            "  subkey_id integer NOT NULL,\n" +     // subkey id
+            "  certificate blob NOT NULL,\n" +      // binary certificate fingerprint
+            "  PRIMARY KEY (subkey_id, certificate)\n" +
+            ") WITHOUT ROWID";
+
+    static final String INSERT_OR_IGNORE_STMT = "" +
+            "INSERT OR IGNORE INTO subkey_lookup(subkey_id, certificate) " +
+            "VALUES (?,?)";
+
+    static final String QUERY_STMT = "" +
+            "SELECT subkey_id, certificate FROM subkey_lookup " +
+            "WHERE subkey_id=?";
+
+    /**
+     * Maximum number of subkey-ids queried in a single statement.
+     * Older SQLite versions limit the number of host parameters to 999.
+     */
+    static final int MAX_QUERY_IDS = 500;
+
+    private static final String LEGACY_TABLE_NAME = "subkey_lookup_v1";
+
+    private SubkeyLookupSchema() {
+
+    }
+
+    /**
+     * Create the schema, or migrate an existing database to the current schema version.
+     * Migration happens in an immediate transaction, so that concurrent instances on the same database file
+     * do not migrate twice.
+     *
+     * @param connection database connection in auto-commit mode
+     * @throws SQLException if the schema cannot be created or migrated, or if the database uses a newer schema
+     */
+    static void createOrMigrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("BEGIN IMMEDIATE");
+            try {
+                int version = getUserVersion(statement);
+                if (version > SCHEMA_VERSION) {
+                    throw new SQLException("Unsupported subkey lookup schema version " + version +
+                            " (expected at most " + SCHEMA_VERSION + ").");
+                }
+                if (version < SCHEMA_VERSION) {
+                    if (version == 0 && tableExists(connection, "subkey_lookup")) {
+                        migrateFromVersion1(connection, statement);
+                    } else {
+                        statement.execute(CREATE_TABLE_STMT);
+                    }
+                    statement.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+                }
+                statement.execute("COMMIT");
+            } catch (SQLException e) {
+                statement.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+
+    private static void migrateFromVersion1(Connection connection, Statement statement) throws SQLException {
+        statement.execute("ALTER TABLE subkey_lookup RENAME TO " + LEGACY_TABLE_NAME);
+        statement.execute(CREATE_TABLE_STMT);
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_OR_IGNORE_STMT);
+             ResultSet legacyEntries = statement.executeQuery(
+                     "SELECT subkey_id, certificate FROM " + LEGACY_TABLE_NAME)) {
+            while (legacyEntries.next()) {
+                String fingerprint = legacyEntries.getString("certificate");
+                if (fingerprint == null || !Fingerprint.isValid(fingerprint)) {
+                    // not a fingerprint, cannot be resolved to a certificate anyway
+                    continue;
+                }
+                insert.setLong(1, legacyEntries.getLong("subkey_id"));
+                insert.setBytes(2, encodeFingerprint(fingerprint));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        statement.execute("DROP TABLE " + LEGACY_TABLE_NAME);
+    }
+
+    private static int getUserVersion(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String tableName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT name FROM sqlite_master WHERE type='table' AND name=?")) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Encode a hex fingerprint into its binary representation.
+     *
+     * @param fingerprint hex encoded fingerprint
+     * @return binary fingerprint
+     * @throws SQLException if the fingerprint is not a lower-case hex OpenPGP v4 or v6 fingerprint
+     */
+    static byte[] encodeFingerprint(String fingerprint) throws SQLException {
+        try {
+            return Fingerprint.fromHex(fingerprint).getBytes();
+        } catch (BadNameException e) {
+            throw new SQLException("Malformed certificate fingerprint: " + fingerprint, e);
+        }
+    }
+
+    /**
+     * Decode a binary fingerprint into its lowercase hex representation.
+     *
+     * @param fingerprint binary fingerprint
+     * @return hex encoded fingerprint
+     */
+    static String toHex(byte[] fingerprint) {
+        return Fingerprint.fromBytes(fingerprint).toString();
+    }
+
+    /**
+     * Query the entries of all given subkey-ids using <pre>IN</pre> queries of at most {@link #MAX_QUERY_IDS}
+     * subkey-ids each.
+     *
+     * @param connection database connection
+     * @param subkeyIds subkey-ids
+     * @param results list to which the entries are added
+     * @throws SQLException in case of a database error
+     */
+    static void selectEntries(Connection connection, long[] subkeyIds, List<Entry> results) throws SQLException {
+        for (int offset = 0; offset < subkeyIds.length; offset += MAX_QUERY_IDS) {
+            int count = Math.min(MAX_QUERY_IDS, subkeyIds.length - offset);
+            StringBuilder sql = new StringBuilder("SELECT subkey_id, certificate FROM subkey_lookup WHERE subkey_id IN (");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append('?');
+            }
+            sql.append(')');
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < count; i++) {
+                    statement.setLong(i + 1, subkeyIds[offset + i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    readEntries(resultSet, results);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read all entries from the result set of a {@link #QUERY_STMT} or of the queries issued by
+     * {@link #selectEntries(Connection, long[], List)}.
+     *
+     * @param resultSet result set
+     * @param results list to which the entries are added
+     * @throws SQLException in case of a database error
+     */
+    static void readEntries(ResultSet resultSet, List<Entry> results) throws SQLException {
+        while (resultSet.next()) {
+            results.add(new Entry(
+                    resultSet.getLong("subkey_id"),
+                    toHex(resultSet.getBytes("certificate"))));
+        }
+    }
+}
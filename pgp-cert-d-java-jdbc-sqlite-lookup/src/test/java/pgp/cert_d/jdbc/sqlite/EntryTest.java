@@ -12,9 +12,8 @@ public class EntryTest {
 
     @Test
     public void simpleGetterTest() {
-        Entry entry = new Entry(1, 123L, "eb85bb5fa33a75e15e944e63f231550c4f47e38e");
+        Entry entry = new Entry(123L, "eb85bb5fa33a75e15e944e63f231550c4f47e38e");
 
-        assertEquals(1, entry.getId());
         assertEquals(123L, entry.getSubkeyId());
         assertEquals("eb85bb5fa33a75e15e944e63f231550c4f47e38e", entry.getCertificate());
     }
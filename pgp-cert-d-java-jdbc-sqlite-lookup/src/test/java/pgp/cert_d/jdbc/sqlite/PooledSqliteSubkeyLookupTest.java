@@ -0,0 +1,178 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PooledSqliteSubkeyLookupTest {
+
+    private static final String CERT_A = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String CERT_B = "d1a66e1a23b182c9980f788cfbfcc82a015e7330";
+
+    private File databaseFile;
+    private PooledSqliteSubkeyLookupDaoImpl dao;
+
+    @BeforeEach
+    public void setupDao() throws IOException, SQLException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d").toFile();
+        tempDir.deleteOnExit();
+        databaseFile = new File(tempDir, "_pgpainless_subkey_map.db");
+        databaseFile.deleteOnExit();
+        dao = PooledSqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile, 2);
+    }
+
+    @AfterEach
+    public void closeDao() {
+        dao.close();
+    }
+
+    @Test
+    public void insertAndSelect() throws SQLException {
+        assertEquals(2, dao.insertValues(CERT_A, Arrays.asList(123L, 234L)));
+        assertEquals(1, dao.insertValues(CERT_B, Collections.singletonList(234L)));
+
+        assertEquals(Collections.singleton(CERT_A), certificates(123L));
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates(234L));
+        assertTrue(dao.selectValues(6666666L).isEmpty());
+    }
+
+    @Test
+    public void duplicatesAreIgnored() throws SQLException {
+        assertEquals(2, dao.insertValues(CERT_A, Arrays.asList(123L, 234L)));
+        assertEquals(1, dao.insertValues(CERT_A, Arrays.asList(123L, 512L)));
+        assertEquals(1, dao.selectValues(123L).size());
+    }
+
+    @Test
+    public void batchInsert() throws SQLException {
+        Map<String, List<Long>> batch = new LinkedHashMap<>();
+        batch.put(CERT_A, Arrays.asList(123L, 234L));
+        batch.put(CERT_B, Arrays.asList(234L, 345L));
+        assertEquals(4, dao.insertValues(batch));
+        assertEquals(0, dao.insertValues(batch));
+
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates(234L));
+        assertEquals(Collections.singleton(CERT_B), certificates(345L));
+    }
+
+    @Test
+    public void databaseUsesWriteAheadLog() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(resultSet.next());
+            assertEquals("wal", resultSet.getString(1).toLowerCase());
+        }
+    }
+
+    @Test
+    public void entriesAreVisibleToUnpooledDao() throws SQLException {
+        dao.insertValues(CERT_A, Collections.singletonList(1337L));
+        SqliteSubkeyLookupDaoImpl unpooled = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertEquals(1, unpooled.selectValues(1337L).size());
+
+        unpooled.insertValues(CERT_B, Collections.singletonList(1337L));
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates(1337L));
+    }
+
+    @Test
+    public void concurrentInsertsAndQueries() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                long subkeyId = i;
+                futures.add(executor.submit(() -> {
+                    dao.insertValues(CERT_A, Collections.singletonList(subkeyId));
+                    return dao.selectValues(subkeyId);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (long i = 0; i < 64; i++) {
+            assertEquals(Collections.singleton(CERT_A), certificates(i));
+        }
+    }
+
+    @Test
+    public void closedDaoThrows() {
+        dao.close();
+        assertThrows(SQLException.class, () -> dao.selectValues(123L));
+        assertThrows(SQLException.class, () -> dao.insertValues(CERT_A, Collections.singletonList(123L)));
+    }
+
+    @Test
+    public void pooledFactory() throws IOException {
+        File tempDir = databaseFile.getParentFile();
+        try (DatabaseSubkeyLookup lookup = (DatabaseSubkeyLookup) DatabaseSubkeyLookupFactory.pooled()
+                .createFileBasedInstance(tempDir)) {
+            lookup.storeCertificateSubkeyIds(CERT_B, Collections.singletonList(42L));
+            assertEquals(Collections.singleton(CERT_B), lookup.getCertificateFingerprintsForSubkeyId(42L));
+        }
+    }
+
+    private HashSet<String> certificates(long subkeyId) throws SQLException {
+        HashSet<String> certificates = new HashSet<>();
+        for (Entry entry : dao.selectValues(subkeyId)) {
+            certificates.add(entry.getCertificate());
+        }
+        return certificates;
+    }
+
+    @Test
+    public void selectManySubkeyIds() throws SQLException {
+        long[] subkeyIds = new long[SubkeyLookupSchema.MAX_QUERY_IDS * 2 + 1];
+        List<Long> storedIds = new ArrayList<>();
+        for (int i = 0; i < subkeyIds.length; i++) {
+            subkeyIds[i] = i;
+            if (i % 100 == 0) {
+                storedIds.add((long) i);
+            }
+        }
+        dao.insertValues(CERT_A, storedIds);
+        dao.insertValues(CERT_B, Collections.singletonList((long) subkeyIds.length - 1));
+
+        HashSet<String> certificates = new HashSet<>();
+        List<Entry> entries = dao.selectValues(subkeyIds);
+        for (Entry entry : entries) {
+            certificates.add(entry.getCertificate());
+        }
+        assertEquals(storedIds.size() + 1, entries.size());
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates);
+
+        SqliteSubkeyLookupDaoImpl unpooled = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertEquals(entries.size(), unpooled.selectValues(subkeyIds).size());
+    }
+}
@@ -15,7 +15,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -66,6 +68,22 @@ public class SqliteSubkeyLookupTest {
         store("d1a66e1a23b182c9980f788cfbfcc82a015e7330", 123L, 512L);
     }
 
+    @Test
+    public void batchInsertAndGet() throws IOException {
+        Map<String, List<Long>> batch = new LinkedHashMap<>();
+        batch.put("eb85bb5fa33a75e15e944e63f231550c4f47e38e", Arrays.asList(123L, 234L));
+        batch.put("d1a66e1a23b182c9980f788cfbfcc82a015e7330", Arrays.asList(234L, 345L));
+        lookup.storeCertificatesSubkeyIds(batch);
+        // duplicates are ignored
+        lookup.storeCertificatesSubkeyIds(batch);
+
+        assertEquals(Collections.singleton("eb85bb5fa33a75e15e944e63f231550c4f47e38e"), lookup.getCertificateFingerprintsForSubkeyId(123L));
+        assertEquals(
+                new HashSet<>(Arrays.asList("eb85bb5fa33a75e15e944e63f231550c4f47e38e", "d1a66e1a23b182c9980f788cfbfcc82a015e7330")),
+                lookup.getCertificateFingerprintsForSubkeyId(234L));
+        assertEquals(Collections.singleton("d1a66e1a23b182c9980f788cfbfcc82a015e7330"), lookup.getCertificateFingerprintsForSubkeyId(345L));
+    }
+
     private void store(String cert, long... ids) throws IOException {
         List<Long> idList = new ArrayList<>();
         for (long id : ids) {
@@ -0,0 +1,143 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jdbc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SubkeyLookupSchemaTest {
+
+    private static final String CERT_A = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String CERT_B = "d1a66e1a23b182c9980f788cfbfcc82a015e7330";
+
+    private static final String VERSION_1_CREATE_TABLE_STMT = "" +
+            "CREATE TABLE IF NOT EXISTS subkey_lookup (\n" +
+            "  id integer PRIMARY KEY,\n" +
+            "  certificate text NOT NULL,\n" +
+            "  subkey_id integer NOT NULL,\n" +
+            "  UNIQUE(certificate, subkey_id)\n" +
+            ")";
+
+    private File databaseFile;
+    private String databaseUrl;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d").toFile();
+        tempDir.deleteOnExit();
+        databaseFile = new File(tempDir, "_pgpainless_subkey_map.db");
+        databaseFile.deleteOnExit();
+        databaseUrl = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+    }
+
+    @Test
+    public void newDatabaseUsesCurrentSchemaVersion() throws SQLException {
+        SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertEquals(SubkeyLookupSchema.SCHEMA_VERSION, userVersion());
+    }
+
+    @Test
+    public void queryBySubkeyIdUsesPrimaryKey() throws SQLException {
+        SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        try (Connection connection = DriverManager.getConnection(databaseUrl);
+             Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery("EXPLAIN QUERY PLAN " +
+                     SubkeyLookupSchema.QUERY_STMT.replace("?", "123"))) {
+            assertTrue(plan.next());
+            String detail = plan.getString("detail");
+            assertTrue(detail.contains("USING PRIMARY KEY"), detail);
+        }
+    }
+
+    @Test
+    public void migrateVersion1Database() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(databaseUrl);
+             Statement statement = connection.createStatement()) {
+            statement.execute(VERSION_1_CREATE_TABLE_STMT);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO subkey_lookup(certificate, subkey_id) VALUES (?,?)")) {
+                insertVersion1(insert, CERT_A, 123L);
+                insertVersion1(insert, CERT_A, 234L);
+                insertVersion1(insert, CERT_B, 234L);
+                insertVersion1(insert, "not a fingerprint", 234L);
+            }
+        }
+
+        SqliteSubkeyLookupDaoImpl dao = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertEquals(SubkeyLookupSchema.SCHEMA_VERSION, userVersion());
+        assertEquals(Collections.singleton(CERT_A), certificates(dao, 123L));
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates(dao, 234L));
+
+        // migrating again is a no-op
+        dao = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertEquals(new HashSet<>(Arrays.asList(CERT_A, CERT_B)), certificates(dao, 234L));
+    }
+
+    @Test
+    public void newerSchemaVersionIsRejected() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(databaseUrl);
+             Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA user_version = " + (SubkeyLookupSchema.SCHEMA_VERSION + 1));
+        }
+        assertThrows(SQLException.class, () -> SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile));
+    }
+
+    @Test
+    public void insertingMalformedFingerprintThrows() throws SQLException {
+        SqliteSubkeyLookupDaoImpl dao = SqliteSubkeyLookupDaoImpl.forDatabaseFile(databaseFile);
+        assertThrows(SQLException.class, () -> dao.insertValues("xyz", Collections.singletonList(123L)));
+    }
+
+    @Test
+    public void fingerprintEncoding() throws SQLException {
+        byte[] encoded = SubkeyLookupSchema.encodeFingerprint(CERT_A);
+        assertEquals(20, encoded.length);
+        assertEquals(CERT_A, SubkeyLookupSchema.toHex(encoded));
+        // same validation as the directory
+        assertThrows(SQLException.class, () -> SubkeyLookupSchema.encodeFingerprint(CERT_A.toUpperCase()));
+        assertThrows(SQLException.class, () -> SubkeyLookupSchema.encodeFingerprint("0a0b"));
+    }
+
+    private static void insertVersion1(PreparedStatement insert, String certificate, long subkeyId)
+            throws SQLException {
+        insert.setString(1, certificate);
+        insert.setLong(2, subkeyId);
+        insert.executeUpdate();
+    }
+
+    private int userVersion() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(databaseUrl);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static Set<String> certificates(SubkeyLookupDao dao, long subkeyId) throws SQLException {
+        Set<String> certificates = new HashSet<>();
+        for (Entry entry : dao.selectValues(subkeyId)) {
+            certificates.add(entry.getCertificate());
+        }
+        return certificates;
+    }
+}
@@ -0,0 +1,56 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point for running the benchmarks.
+ * In addition to the regular JMH command line options, this accepts the option <pre>--threads 1,8,64</pre>,
+ * which runs the selected benchmarks once for every given thread count.
+ */
+public final class BenchmarkMain {
+
+    private static final String THREADS = "--threads";
+
+    private BenchmarkMain() {
+
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        List<Integer> threadCounts = new ArrayList<>();
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (THREADS.equals(args[i]) && i + 1 < args.length) {
+                for (String count : args[++i].split(",")) {
+                    threadCounts.add(Integer.parseInt(count.trim()));
+                }
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (threadCounts.isEmpty()) {
+            new Runner(options).run();
+            return;
+        }
+
+        for (int threads : threadCounts) {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .threads(threads)
+                    .build())
+                    .run();
+        }
+    }
+}
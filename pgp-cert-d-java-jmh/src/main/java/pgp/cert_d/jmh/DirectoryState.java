@@ -0,0 +1,186 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.backend.CachingCertificateDirectoryBackend;
+import pgp.cert_d.backend.ConcurrentInMemoryCertificateDirectoryBackend;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmark state containing a pre-populated {@link PGPCertificateDirectory}.
+ * The state is shared between all benchmark threads, so running the benchmarks with multiple threads measures
+ * contention on the directory.
+ */
+@State(Scope.Benchmark)
+public class DirectoryState {
+
+    /**
+     * Number of certificates which are used as lookup and update candidates.
+     */
+    static final int SAMPLE_SIZE = 1024;
+
+    /**
+     * Merger, which always replaces the existing certificate with the update.
+     */
+    static final KeyMaterialMerger REPLACE = (data, existing) -> data;
+
+    @Param({"file", "cached-file", "in-memory", "concurrent-in-memory"})
+    public String backend;
+
+    // Larger stores and certificates can be selected using -p, see README.md
+    @Param({"1000", "100000"})
+    public int storeSize;
+
+    @Param({"2048"})
+    public int certificateSize;
+
+    public PGPCertificateDirectory directory;
+
+    String[] sampleFingerprints;
+    long[] sampleTags;
+    long[] sampleSubkeyIds;
+    byte[][] sampleEncodings;
+
+    private File baseDirectory;
+    private SubkeyLookup subkeyLookup;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        KeyMaterialReaderBackend reader = new SyntheticKeyMaterialReaderBackend();
+        PGPCertificateDirectory.Backend storageBackend;
+        switch (backend) {
+            case "file":
+                baseDirectory = Files.createTempDirectory("pgp-cert-d-jmh").toFile();
+                storageBackend = new FileBasedCertificateDirectoryBackend(baseDirectory, reader);
+                break;
+            case "cached-file":
+                baseDirectory = Files.createTempDirectory("pgp-cert-d-jmh").toFile();
+                storageBackend = new CachingCertificateDirectoryBackend(
+                        new FileBasedCertificateDirectoryBackend(baseDirectory, reader),
+                        SAMPLE_SIZE, Long.MAX_VALUE);
+                break;
+            case "in-memory":
+                storageBackend = new InMemoryCertificateDirectoryBackend(reader);
+                break;
+            case "concurrent-in-memory":
+                storageBackend = new ConcurrentInMemoryCertificateDirectoryBackend(reader);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend " + backend);
+        }
+        subkeyLookup = createSubkeyLookup(baseDirectory);
+        directory = new PGPCertificateDirectory(storageBackend, subkeyLookup);
+
+        for (long i = 0; i < storeSize; i++) {
+            directory.insert(new ByteArrayInputStream(SyntheticCertificates.encode(i, certificateSize)), REPLACE);
+        }
+
+        int sampleSize = Math.min(SAMPLE_SIZE, storeSize);
+        sampleFingerprints = new String[sampleSize];
+        sampleTags = new long[sampleSize];
+        sampleSubkeyIds = new long[sampleSize];
+        sampleEncodings = new byte[sampleSize][];
+        Random random = new Random(storeSize);
+        for (int i = 0; i < sampleSize; i++) {
+            long index = random.nextInt(storeSize);
+            sampleFingerprints[i] = SyntheticCertificates.hexFingerprint(index);
+            sampleSubkeyIds[i] = SyntheticCertificates.subkeyId(index, random.nextInt(SyntheticCertificates.NUM_SUBKEYS));
+            sampleEncodings[i] = SyntheticCertificates.encode(index, certificateSize);
+        }
+        refreshTags();
+    }
+
+    /**
+     * Create the {@link SubkeyLookup} used by the directory.
+     *
+     * @param baseDirectory base directory of the store, or null for in-memory stores
+     * @return subkey lookup
+     * @throws IOException in case of an IO error
+     */
+    protected SubkeyLookup createSubkeyLookup(File baseDirectory) throws IOException {
+        return new InMemorySubkeyLookup();
+    }
+
+    /**
+     * Re-read the tags of the sampled certificates.
+     * Benchmarks that modify the store must call this, so that tag-based lookups hit the unchanged path.
+     *
+     * @throws IOException in case of an IO error
+     */
+    void refreshTags() throws IOException {
+        try {
+            for (int i = 0; i < sampleFingerprints.length; i++) {
+                sampleTags[i] = directory.getByFingerprint(sampleFingerprints[i]).getTag();
+            }
+        } catch (BadDataException | BadNameException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Return a random index into the sampled certificates.
+     *
+     * @return index
+     */
+    int randomSample() {
+        return ThreadLocalRandom.current().nextInt(sampleFingerprints.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (subkeyLookup instanceof InMemorySubkeyLookup) {
+            ((InMemorySubkeyLookup) subkeyLookup).clear();
+        }
+        if (subkeyLookup instanceof Closeable) {
+            ((Closeable) subkeyLookup).close();
+        }
+        if (baseDirectory != null) {
+            deleteRecursively(baseDirectory.toPath());
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks for the write paths {@link pgp.cert_d.PGPCertificateDirectory#insert} and
+ * {@link pgp.cert_d.PGPCertificateDirectory#tryInsert} and {@link pgp.cert_d.PGPCertificateDirectory#insertAll}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+    static final int BATCH_SIZE = 100;
+
+    /**
+     * Source of indices of certificates which are not yet part of the store.
+     */
+    @State(Scope.Benchmark)
+    public static class NewCertificates {
+
+        private AtomicLong next;
+
+        @Setup(Level.Trial)
+        public void setup(DirectoryState state) {
+            next = new AtomicLong(state.storeSize);
+        }
+
+        byte[] next(int certificateSize) {
+            return SyntheticCertificates.encode(next.getAndIncrement(), certificateSize);
+        }
+    }
+
+    /**
+     * Update an existing certificate, which involves reading the existing copy, merging and writing.
+     *
+     * @param state directory
+     * @return merged certificate
+     */
+    @Benchmark
+    public Certificate insertUpdate(DirectoryState state)
+            throws IOException, BadDataException, InterruptedException {
+        byte[] encoding = state.sampleEncodings[state.randomSample()];
+        return state.directory.insert(new ByteArrayInputStream(encoding), DirectoryState.REPLACE);
+    }
+
+    /**
+     * Insert a certificate which is not yet part of the store.
+     * Note, that this lets the store grow by one certificate per invocation.
+     *
+     * @param state directory
+     * @param newCertificates source of new certificates
+     * @return inserted certificate
+     */
+    @Benchmark
+    public Certificate insertNew(DirectoryState state, NewCertificates newCertificates)
+            throws IOException, BadDataException, InterruptedException {
+        byte[] encoding = newCertificates.next(state.certificateSize);
+        return state.directory.insert(new ByteArrayInputStream(encoding), DirectoryState.REPLACE);
+    }
+
+    /**
+     * Update a batch of existing certificates using a single write-lock acquisition.
+     *
+     * @param state directory
+     * @return merged certificates
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Certificate> insertAllUpdate(DirectoryState state)
+            throws IOException, BadDataException, InterruptedException {
+        List<InputStream> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new ByteArrayInputStream(state.sampleEncodings[state.randomSample()]));
+        }
+        return state.directory.insertAll(batch, DirectoryState.REPLACE);
+    }
+
+    /**
+     * Non-blocking update of an existing certificate.
+     * Under contention, this returns null instead of waiting for the write-lock.
+     *
+     * @param state directory
+     * @return merged certificate or null
+     */
+    @Benchmark
+    public Certificate tryInsertUpdate(DirectoryState state)
+            throws IOException, BadDataException {
+        byte[] encoding = state.sampleEncodings[state.randomSample()];
+        return state.directory.tryInsert(new ByteArrayInputStream(encoding), DirectoryState.REPLACE);
+    }
+}
@@ -0,0 +1,60 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pgp.certificate_store.certificate.Certificate;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks for a full scan of the store using {@link pgp.cert_d.PGPCertificateDirectory#items()} and
+ * {@link pgp.cert_d.PGPCertificateDirectory#itemsStream()}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ItemsBenchmark {
+
+    @Benchmark
+    public int items(DirectoryState state, Blackhole blackhole) {
+        int count = 0;
+        Iterator<Certificate> items = state.directory.items();
+        while (items.hasNext()) {
+            blackhole.consume(items.next());
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long itemsStreamParallel(DirectoryState state) {
+        try (Stream<Certificate> items = state.directory.itemsStream().parallel()) {
+            return items.count();
+        }
+    }
+
+    @Benchmark
+    public int fingerprints(DirectoryState state, Blackhole blackhole) {
+        int count = 0;
+        Iterator<String> fingerprints = state.directory.fingerprints();
+        while (fingerprints.hasNext()) {
+            blackhole.consume(fingerprints.next());
+            count++;
+        }
+        return count;
+    }
+}
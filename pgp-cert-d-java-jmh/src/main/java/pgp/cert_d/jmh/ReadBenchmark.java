@@ -0,0 +1,63 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the read paths {@link pgp.cert_d.PGPCertificateDirectory#getByFingerprint(String)} and
+ * {@link pgp.cert_d.PGPCertificateDirectory#getByFingerprintIfChanged(String, long)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Benchmark
+    public Certificate getByFingerprint(DirectoryState state)
+            throws IOException, BadNameException, BadDataException {
+        return state.directory.getByFingerprint(state.sampleFingerprints[state.randomSample()]);
+    }
+
+    /**
+     * Query with the current tag, which is the fast path of an application cache that is in sync with the store.
+     *
+     * @param state directory
+     * @return null
+     */
+    @Benchmark
+    public Certificate getByFingerprintIfChangedUnchanged(DirectoryState state)
+            throws IOException, BadNameException, BadDataException {
+        int i = state.randomSample();
+        return state.directory.getByFingerprintIfChanged(state.sampleFingerprints[i], state.sampleTags[i]);
+    }
+
+    /**
+     * Query with an outdated tag, which forces the certificate to be read.
+     *
+     * @param state directory
+     * @return certificate
+     */
+    @Benchmark
+    public Certificate getByFingerprintIfChangedChanged(DirectoryState state)
+            throws IOException, BadNameException, BadDataException {
+        int i = state.randomSample();
+        return state.directory.getByFingerprintIfChanged(state.sampleFingerprints[i], state.sampleTags[i] - 1);
+    }
+}
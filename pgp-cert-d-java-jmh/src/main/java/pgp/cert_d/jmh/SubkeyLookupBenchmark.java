@@ -0,0 +1,80 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pgp.cert_d.jdbc.sqlite.DatabaseSubkeyLookupFactory;
+import pgp.cert_d.subkey_lookup.CompactSubkeyLookup;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.MappedSubkeyLookupFactory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link pgp.cert_d.PGPCertificateDirectory#getCertificateFingerprintsForSubkeyId(long)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubkeyLookupBenchmark {
+
+    /**
+     * {@link DirectoryState} with an additional parameter for the {@link SubkeyLookup} implementation.
+     */
+    @State(Scope.Benchmark)
+    public static class LookupState extends DirectoryState {
+
+        @Param({"in-memory", "compact", "compact-off-heap", "mapped", "sqlite", "sqlite-pooled"})
+        public String subkeyLookup;
+
+        @Override
+        protected SubkeyLookup createSubkeyLookup(File baseDirectory) throws IOException {
+            switch (subkeyLookup) {
+                case "in-memory":
+                    return new InMemorySubkeyLookup();
+                case "compact":
+                    return new CompactSubkeyLookup(CompactSubkeyLookup.Storage.HEAP);
+                case "compact-off-heap":
+                    return new CompactSubkeyLookup(CompactSubkeyLookup.Storage.OFF_HEAP);
+                case "mapped":
+                    File indexDirectory = baseDirectory != null ? baseDirectory :
+                            Files.createTempDirectory("pgp-cert-d-jmh-mapped").toFile();
+                    indexDirectory.deleteOnExit();
+                    return new MappedSubkeyLookupFactory().createFileBasedInstance(indexDirectory);
+                case "sqlite":
+                case "sqlite-pooled":
+                    File databaseDirectory = baseDirectory != null ? baseDirectory :
+                            Files.createTempDirectory("pgp-cert-d-jmh-sqlite").toFile();
+                    databaseDirectory.deleteOnExit();
+                    DatabaseSubkeyLookupFactory factory = subkeyLookup.equals("sqlite-pooled") ?
+                            DatabaseSubkeyLookupFactory.pooled() : new DatabaseSubkeyLookupFactory();
+                    return factory.createFileBasedInstance(databaseDirectory);
+                default:
+                    throw new IllegalArgumentException("Unknown subkey lookup " + subkeyLookup);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<String> getCertificateFingerprintsForSubkeyId(LookupState state) throws IOException {
+        return state.directory.getCertificateFingerprintsForSubkeyId(state.sampleSubkeyIds[state.randomSample()]);
+    }
+}
@@ -0,0 +1,109 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Generator for synthetic certificates.
+ * Generating real OpenPGP keys for stores of a million certificates is way too slow, and parsing them would dominate
+ * the measurements. Instead, we generate deterministic blobs, which are understood by
+ * {@link SyntheticKeyMaterialReaderBackend}.
+ *
+ * The encoding is as follows:
+ * <pre>
+ *     [1 byte fingerprint length][fingerprint][1 byte number of subkeys][8 bytes per subkey-id][padding]
+ * </pre>
+ */
+public final class SyntheticCertificates {
+
+    /**
+     * Number of subkeys (including the primary key) of each synthetic certificate.
+     */
+    public static final int NUM_SUBKEYS = 3;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private SyntheticCertificates() {
+
+    }
+
+    /**
+     * Return the 20 byte (v4-sized) fingerprint of the synthetic certificate with the given index.
+     * Fingerprints are SHA-1 hashes of the index, so they are evenly distributed across the
+     * <pre>xx</pre> shards of a file based store.
+     *
+     * @param index index of the certificate
+     * @return fingerprint
+     */
+    public static byte[] fingerprint(long index) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return sha1.digest(ByteBuffer.allocate(8).putLong(index).array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-1 is a mandatory algorithm", e);
+        }
+    }
+
+    /**
+     * Return the lowercase hex encoded fingerprint of the synthetic certificate with the given index.
+     *
+     * @param index index of the certificate
+     * @return hex fingerprint
+     */
+    public static String hexFingerprint(long index) {
+        return toHex(fingerprint(index));
+    }
+
+    /**
+     * Return the subkey-id of the n-th subkey of the synthetic certificate with the given index.
+     *
+     * @param index index of the certificate
+     * @param n index of the subkey
+     * @return subkey-id
+     */
+    public static long subkeyId(long index, int n) {
+        return index * NUM_SUBKEYS + n;
+    }
+
+    /**
+     * Encode the synthetic certificate with the given index.
+     *
+     * @param index index of the certificate
+     * @param size total size of the encoding in bytes
+     * @return encoding
+     */
+    public static byte[] encode(long index, int size) {
+        byte[] fingerprint = fingerprint(index);
+        int headerLength = 1 + fingerprint.length + 1 + 8 * NUM_SUBKEYS;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(size, headerLength));
+        buffer.put((byte) fingerprint.length);
+        buffer.put(fingerprint);
+        buffer.put((byte) NUM_SUBKEYS);
+        for (int n = 0; n < NUM_SUBKEYS; n++) {
+            buffer.putLong(subkeyId(index, n));
+        }
+        // pad with pseudo-random data, so that compressing file systems do not skew the results
+        long state = index + 1;
+        while (buffer.hasRemaining()) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            buffer.put((byte) state);
+        }
+        return buffer.array();
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,58 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jmh;
+
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link KeyMaterialReaderBackend} which understands the encoding produced by {@link SyntheticCertificates}.
+ * It still reads the complete stream, so the measured IO cost is realistic, but does not do any OpenPGP parsing.
+ */
+public class SyntheticKeyMaterialReaderBackend implements KeyMaterialReaderBackend {
+
+    @Override
+    public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = data.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        data.close();
+        byte[] bytes = out.toByteArray();
+        return read(bytes, 0, bytes.length, tag);
+    }
+
+    @Override
+    public KeyMaterial read(byte[] data, int offset, int length, Long tag) throws BadDataException {
+        // take ownership of the array without copying, if possible
+        byte[] bytes = offset == 0 && length == data.length ? data : Arrays.copyOfRange(data, offset, offset + length);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            byte[] fingerprint = new byte[in.get()];
+            in.get(fingerprint);
+            int numSubkeys = in.get();
+            List<Long> subkeyIds = new ArrayList<>(numSubkeys);
+            for (int i = 0; i < numSubkeys; i++) {
+                subkeyIds.add(in.getLong());
+            }
+            return new Certificate(bytes, SyntheticCertificates.toHex(fingerprint), subkeyIds, tag);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new BadDataException("Cannot read synthetic certificate", e);
+        }
+    }
+}
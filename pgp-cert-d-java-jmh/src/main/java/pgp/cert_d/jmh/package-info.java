@@ -0,0 +1,8 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+/**
+ * JMH benchmarks for the hot paths of the Shared PGP Certificate Directory implementation.
+ */
+package pgp.cert_d.jmh;
@@ -0,0 +1,86 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+/**
+ * Notification about a certificate in a {@link PGPCertificateDirectory} that was created, modified or deleted.
+ * A change is addressed either by fingerprint or by special name.
+ */
+public final class CertificateChange {
+
+    private final String fingerprint;
+    private final String specialName;
+    private final Long tag;
+
+    private CertificateChange(String fingerprint, String specialName, Long tag) {
+        this.fingerprint = fingerprint;
+        this.specialName = specialName;
+        this.tag = tag;
+    }
+
+    /**
+     * Create a change of the certificate with the given fingerprint.
+     *
+     * @param fingerprint lowercase hex fingerprint
+     * @param tag new tag of the certificate, or null if it was deleted
+     * @return change
+     */
+    public static CertificateChange forFingerprint(String fingerprint, Long tag) {
+        return new CertificateChange(fingerprint, null, tag);
+    }
+
+    /**
+     * Create a change of the certificate stored under the given special name.
+     *
+     * @param specialName special name
+     * @param tag new tag of the certificate, or null if it was deleted
+     * @return change
+     */
+    public static CertificateChange forSpecialName(String specialName, Long tag) {
+        return new CertificateChange(null, specialName, tag);
+    }
+
+    /**
+     * Return the fingerprint of the changed certificate, or null if the certificate is addressed by special name.
+     *
+     * @return fingerprint or null
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Return the special name of the changed certificate, or null if the certificate is addressed by fingerprint.
+     *
+     * @return special name or null
+     */
+    public String getSpecialName() {
+        return specialName;
+    }
+
+    /**
+     * Return the new tag of the certificate, or null if the certificate was deleted.
+     *
+     * @return tag or null
+     */
+    public Long getTag() {
+        return tag;
+    }
+
+    /**
+     * Return true, if the certificate was deleted.
+     *
+     * @return true if deleted
+     */
+    public boolean isDeleted() {
+        return tag == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CertificateChange{" + (fingerprint != null ? "fingerprint=" + fingerprint : "specialName=" + specialName) +
+                ", tag=" + tag + "}";
+    }
+}
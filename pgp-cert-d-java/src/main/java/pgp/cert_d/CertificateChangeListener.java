@@ -0,0 +1,20 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+/**
+ * Listener which is notified about {@link CertificateChange CertificateChanges} in a {@link PGPCertificateDirectory}.
+ */
+@FunctionalInterface
+public interface CertificateChangeListener {
+
+    /**
+     * Called when a certificate was created, modified or deleted.
+     * Listeners are called from a background thread and should return quickly.
+     *
+     * @param change change
+     */
+    void onChange(CertificateChange change);
+}
@@ -0,0 +1,87 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import pgp.certificate_store.certificate.Certificate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Metadata of a certificate stored in a {@link PGPCertificateDirectory}, which can be obtained without reading
+ * or parsing the certificate itself.
+ */
+public final class CertificateEntry {
+
+    private final String fingerprint;
+    private final Long tag;
+    private final long size;
+
+    /**
+     * Create an entry.
+     *
+     * @param fingerprint lowercase hex fingerprint of the certificate
+     * @param tag tag of the certificate
+     * @param size size of the encoded certificate in bytes
+     */
+    public CertificateEntry(String fingerprint, Long tag, long size) {
+        this.fingerprint = fingerprint;
+        this.tag = tag;
+        this.size = size;
+    }
+
+    /**
+     * Create an entry describing the given certificate.
+     *
+     * @param certificate certificate
+     * @return entry
+     */
+    public static CertificateEntry of(Certificate certificate) {
+        long size = 0;
+        try (InputStream in = certificate.getInputStream()) {
+            long skipped;
+            while ((skipped = in.skip(Long.MAX_VALUE)) > 0) {
+                size += skipped;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CertificateEntry(certificate.getFingerprint(), certificate.getTag(), size);
+    }
+
+    /**
+     * Return the lowercase hex fingerprint of the certificate.
+     *
+     * @return fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Return the tag of the certificate.
+     * It can be passed to {@link ReadOnlyPGPCertificateDirectory#getByFingerprintIfChanged(String, long)}.
+     *
+     * @return tag
+     */
+    public Long getTag() {
+        return tag;
+    }
+
+    /**
+     * Return the size of the encoded certificate in bytes.
+     *
+     * @return size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "CertificateEntry{fingerprint=" + fingerprint + ", tag=" + tag + ", size=" + size + "}";
+    }
+}
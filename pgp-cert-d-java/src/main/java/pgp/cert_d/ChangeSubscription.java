@@ -0,0 +1,17 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import java.io.Closeable;
+
+/**
+ * Handle of a subscription to changes of a {@link PGPCertificateDirectory}.
+ * Closing the subscription stops the delivery of further changes.
+ */
+public interface ChangeSubscription extends Closeable {
+
+    @Override
+    void close();
+}
@@ -0,0 +1,188 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import pgp.certificate_store.exception.BadNameException;
+
+import java.util.Arrays;
+
+/**
+ * OpenPGP v4 (20 bytes) or v6 (32 bytes) fingerprint.
+ * Contrary to the lower-case hex strings used elsewhere in the API, instances are validated once on creation,
+ * have a cached hash code and derive the shard directory and file name of the certificate without regular expressions.
+ */
+public final class Fingerprint {
+
+    /**
+     * Length of an OpenPGP v4 fingerprint in bytes.
+     */
+    public static final int V4_LENGTH = 20;
+
+    /**
+     * Length of an OpenPGP v6 fingerprint in bytes.
+     */
+    public static final int V6_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] bytes;
+    private final int hashCode;
+    // lazily encoded, racy but idempotent like String#hashCode
+    private String hex;
+
+    private Fingerprint(byte[] bytes, String hex) {
+        this.bytes = bytes;
+        this.hashCode = Arrays.hashCode(bytes);
+        this.hex = hex;
+    }
+
+    /**
+     * Parse a lower-case hexadecimal OpenPGP v4 or v6 fingerprint.
+     *
+     * @param fingerprint lower-case hex fingerprint
+     * @return fingerprint
+     *
+     * @throws BadNameException if the string is not a lower-case hex fingerprint of 40 or 64 characters
+     */
+    public static Fingerprint fromHex(String fingerprint) throws BadNameException {
+        if (!isValid(fingerprint)) {
+            throw new BadNameException("Fingerprint '" + fingerprint +
+                    "' does neither match OpenPGP v4 nor OpenPGP v6 format.");
+        }
+        byte[] bytes = new byte[fingerprint.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((digit(fingerprint.charAt(2 * i)) << 4) | digit(fingerprint.charAt(2 * i + 1)));
+        }
+        return new Fingerprint(bytes, fingerprint);
+    }
+
+    /**
+     * Create a fingerprint from its binary representation.
+     *
+     * @param fingerprint 20 or 32 fingerprint bytes
+     * @return fingerprint
+     *
+     * @throws IllegalArgumentException if the length does not match an OpenPGP v4 or v6 fingerprint
+     */
+    public static Fingerprint fromBytes(byte[] fingerprint) {
+        if (fingerprint.length != V4_LENGTH && fingerprint.length != V6_LENGTH) {
+            throw new IllegalArgumentException("Fingerprint length of " + fingerprint.length +
+                    " bytes does neither match OpenPGP v4 nor OpenPGP v6 format.");
+        }
+        return new Fingerprint(fingerprint.clone(), null);
+    }
+
+    /**
+     * Return true, if the given string is a lower-case hexadecimal OpenPGP v4 (40 characters) or
+     * v6 (64 characters) fingerprint.
+     *
+     * @param fingerprint string
+     * @return true if the string is a valid fingerprint
+     */
+    public static boolean isValid(String fingerprint) {
+        int length = fingerprint.length();
+        if (length != 2 * V4_LENGTH && length != 2 * V6_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (digit(fingerprint.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Return a copy of the binary fingerprint.
+     *
+     * @return fingerprint bytes
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Return the length of the fingerprint in bytes.
+     *
+     * @return {@link #V4_LENGTH} or {@link #V6_LENGTH}
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * Return the name of the shard directory of the certificate, which consists of the first two hex characters.
+     *
+     * @return shard directory name
+     */
+    public String getShardName() {
+        return new String(new char[] {HEX[(bytes[0] >> 4) & 0x0f], HEX[bytes[0] & 0x0f]});
+    }
+
+    /**
+     * Return the name of the certificate file inside its shard directory, which consists of the remaining hex
+     * characters.
+     *
+     * @return certificate file name
+     */
+    public String getFileName() {
+        String encoded = hex;
+        if (encoded != null) {
+            return encoded.substring(2);
+        }
+        return encode(1);
+    }
+
+    private String encode(int offset) {
+        char[] chars = new char[2 * (bytes.length - offset)];
+        for (int i = offset; i < bytes.length; i++) {
+            chars[2 * (i - offset)] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[2 * (i - offset) + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Return the lower-case hexadecimal representation of the fingerprint.
+     *
+     * @return hex fingerprint
+     */
+    @Override
+    public String toString() {
+        String encoded = hex;
+        if (encoded == null) {
+            encoded = encode(0);
+            hex = encoded;
+        }
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Fingerprint)) {
+            return false;
+        }
+        Fingerprint other = (Fingerprint) obj;
+        return hashCode == other.hashCode && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import pgp.certificate_store.certificate.Certificate;
+
+/**
+ * Result of inserting a certificate into a {@link PGPCertificateDirectory}.
+ * If merging the inserted certificate with the stored certificate did not change its encoding, the stored
+ * certificate is neither rewritten nor does its tag change.
+ */
+public final class InsertResult {
+
+    private final Certificate certificate;
+    private final boolean changed;
+
+    private InsertResult(Certificate certificate, boolean changed) {
+        this.certificate = certificate;
+        this.changed = changed;
+    }
+
+    /**
+     * Create a result for a certificate which was written to the store.
+     *
+     * @param certificate written certificate
+     * @return result
+     */
+    public static InsertResult changed(Certificate certificate) {
+        return new InsertResult(certificate, true);
+    }
+
+    /**
+     * Create a result for an insert, which did not change the stored certificate.
+     *
+     * @param certificate stored certificate
+     * @return result
+     */
+    public static InsertResult unchanged(Certificate certificate) {
+        return new InsertResult(certificate, false);
+    }
+
+    /**
+     * Return the stored certificate after the insert.
+     *
+     * @return certificate
+     */
+    public Certificate getCertificate() {
+        return certificate;
+    }
+
+    /**
+     * Return true, if the insert changed the stored certificate.
+     * If false, the certificate was not rewritten and its tag is unchanged.
+     *
+     * @return true if the certificate changed
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "InsertResult{" + certificate.getFingerprint() + ", changed=" + changed + "}";
+    }
+}
@@ -4,14 +4,17 @@
 
 package pgp.cert_d;
 
+import pgp.cert_d.backend.ConcurrentInMemoryCertificateDirectoryBackend;
 import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
 import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
+import pgp.cert_d.backend.PackfileCertificateDirectoryBackend;
 import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
 import pgp.certificate_store.exception.NotAStoreException;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Static factory methods that return implementations of the {@link PGPCertificateDirectory} class.
@@ -28,6 +31,12 @@ public final class PGPCertificateDirectories {
                 new InMemoryCertificateDirectoryBackend(keyReader), new InMemorySubkeyLookup());
     }
 
+    public static PGPCertificateDirectory concurrentInMemoryCertificateDirectory(
+            KeyMaterialReaderBackend keyReader) {
+        return new PGPCertificateDirectory(
+                new ConcurrentInMemoryCertificateDirectoryBackend(keyReader), new InMemorySubkeyLookup());
+    }
+
     public static PGPCertificateDirectory defaultFileBasedCertificateDirectory(
             KeyMaterialReaderBackend keyReader,
             SubkeyLookup subkeyLookup)
@@ -43,4 +52,50 @@ public final class PGPCertificateDirectories {
         return new PGPCertificateDirectory(
                 new FileBasedCertificateDirectoryBackend(baseDirectory, keyReader), subkeyLookup);
     }
+
+    public static PGPCertificateDirectory fileBasedCertificateDirectory(
+            KeyMaterialReaderBackend keyReader,
+            File baseDirectory,
+            SubkeyLookup subkeyLookup,
+            FileBasedCertificateDirectoryBackend.WriteMode writeMode,
+            FileBasedCertificateDirectoryBackend.Durability durability)
+            throws NotAStoreException {
+        return new PGPCertificateDirectory(
+                new FileBasedCertificateDirectoryBackend(baseDirectory, keyReader, writeMode, durability),
+                subkeyLookup);
+    }
+
+    public static PGPCertificateDirectory fileBasedCertificateDirectory(
+            KeyMaterialReaderBackend keyReader,
+            File baseDirectory,
+            SubkeyLookup subkeyLookup,
+            FileBasedCertificateDirectoryBackend.WriteMode writeMode,
+            FileBasedCertificateDirectoryBackend.Durability durability,
+            FileBasedCertificateDirectoryBackend.ReadMode readMode)
+            throws NotAStoreException {
+        return new PGPCertificateDirectory(
+                new FileBasedCertificateDirectoryBackend(baseDirectory, keyReader, writeMode, durability, readMode),
+                subkeyLookup);
+    }
+
+    /**
+     * Open a directory backed by a {@link PackfileCertificateDirectoryBackend}.
+     * The returned directory holds the lock file and open segment files of the store and MUST be
+     * {@link PGPCertificateDirectory#close() closed} after use.
+     *
+     * @param keyReader reader for key material
+     * @param baseDirectory directory of the packfile store
+     * @param subkeyLookup subkey lookup
+     * @return directory
+     *
+     * @throws IOException if the store cannot be opened
+     */
+    public static PGPCertificateDirectory packfileCertificateDirectory(
+            KeyMaterialReaderBackend keyReader,
+            File baseDirectory,
+            SubkeyLookup subkeyLookup)
+            throws IOException {
+        return new PGPCertificateDirectory(
+                new PackfileCertificateDirectoryBackend(baseDirectory, keyReader), subkeyLookup);
+    }
 }
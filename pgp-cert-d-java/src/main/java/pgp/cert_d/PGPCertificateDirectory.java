@@ -4,6 +4,8 @@
 
 package pgp.cert_d;
 
+import pgp.cert_d.metrics.DirectoryMetrics;
+import pgp.cert_d.metrics.Instrumentation;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 import pgp.certificate_store.certificate.Certificate;
 import pgp.certificate_store.certificate.KeyMaterial;
@@ -11,14 +13,23 @@ import pgp.certificate_store.certificate.KeyMaterialMerger;
 import pgp.certificate_store.exception.BadDataException;
 import pgp.certificate_store.exception.BadNameException;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of the Shared PGP Certificate Directory.
@@ -26,12 +37,40 @@ import java.util.regex.Pattern;
  * @see <a href="https://sequoia-pgp.gitlab.io/pgp-cert-d/">Shared PGP Certificate Directory Specification</a>
  */
 public class PGPCertificateDirectory
-        implements ReadOnlyPGPCertificateDirectory, WritingPGPCertificateDirectory, SubkeyLookup {
+        implements ReadOnlyPGPCertificateDirectory, WritingPGPCertificateDirectory, SubkeyLookup, Closeable {
+
+    /**
+     * Strategy used to insert single certificates via {@link #insert(InputStream, KeyMaterialMerger)} and
+     * {@link #tryInsert(InputStream, KeyMaterialMerger)}.
+     */
+    public enum InsertMode {
+        /**
+         * Parse, merge and write the certificate while holding the directory lock.
+         */
+        LOCKED,
+
+        /**
+         * Parse and merge the certificate without holding the directory lock, remembering the tag of the stored
+         * certificate.
+         * The lock is only held to compare the tag and write the merged certificate.
+         * If the stored certificate changed in the meantime, the insert is retried.
+         * After {@value #MAX_OPTIMISTIC_ATTEMPTS} failed attempts, or if the backend does not support
+         * {@link Backend#prepareInsert(InputStream, KeyMaterialMerger) optimistic inserts}, the certificate is
+         * inserted like in {@link #LOCKED} mode.
+         */
+        OPTIMISTIC;
+
+        /**
+         * Number of optimistic attempts before falling back to a locked insert.
+         */
+        public static final int MAX_OPTIMISTIC_ATTEMPTS = 3;
+    }
 
     final Backend backend;
     final SubkeyLookup subkeyLookup;
-    private final Pattern openPgpV4FingerprintPattern = Pattern.compile("^[a-f0-9]{40}$");
-    private final Pattern openPgpV6FingerprintPattern = Pattern.compile("^[a-f0-9]{64}$");
+    private final InsertMode insertMode;
+    // true if the backend already stores subkey-ids in the subkey lookup as part of its inserts
+    private final boolean backendUpdatesSubkeyLookup;
 
     /**
      * Constructor for a PGP certificate directory.
@@ -40,14 +79,58 @@ public class PGPCertificateDirectory
      * @param subkeyLookup subkey lookup mechanism to map subkey-ids to certificates
      */
     public PGPCertificateDirectory(Backend backend, SubkeyLookup subkeyLookup) {
+        this(backend, subkeyLookup, InsertMode.LOCKED);
+    }
+
+    /**
+     * Constructor for a PGP certificate directory using the given insert mode.
+     *
+     * @param backend storage backend
+     * @param subkeyLookup subkey lookup mechanism to map subkey-ids to certificates
+     * @param insertMode strategy used to insert single certificates
+     */
+    public PGPCertificateDirectory(Backend backend, SubkeyLookup subkeyLookup, InsertMode insertMode) {
         this.backend = backend;
         this.subkeyLookup = subkeyLookup;
+        this.insertMode = insertMode;
+        this.backendUpdatesSubkeyLookup = backend.updatesSubkeyLookup(subkeyLookup);
+    }
+
+    /**
+     * Constructor for a PGP certificate directory, whose backend and subkey lookup operations are recorded by the
+     * given metrics.
+     * In order to record parse times, the {@link pgp.certificate_store.certificate.KeyMaterialReaderBackend} of the
+     * backend needs to be instrumented using
+     * {@link Instrumentation#instrumentReader(pgp.certificate_store.certificate.KeyMaterialReaderBackend,
+     * DirectoryMetrics)}
+     * before the backend is created.
+     *
+     * @param backend storage backend
+     * @param subkeyLookup subkey lookup mechanism to map subkey-ids to certificates
+     * @param metrics metrics
+     */
+    public PGPCertificateDirectory(Backend backend, SubkeyLookup subkeyLookup, DirectoryMetrics metrics) {
+        this(backend, subkeyLookup, metrics, InsertMode.LOCKED);
+    }
+
+    /**
+     * Constructor for a PGP certificate directory using the given insert mode, whose backend and subkey lookup
+     * operations are recorded by the given metrics.
+     *
+     * @param backend storage backend
+     * @param subkeyLookup subkey lookup mechanism to map subkey-ids to certificates
+     * @param metrics metrics
+     * @param insertMode strategy used to insert single certificates
+     */
+    public PGPCertificateDirectory(Backend backend, SubkeyLookup subkeyLookup, DirectoryMetrics metrics,
+                                   InsertMode insertMode) {
+        this(Instrumentation.instrument(backend, metrics), Instrumentation.instrument(subkeyLookup, metrics),
+                insertMode);
     }
 
     @Override
     public Certificate getByFingerprint(String fingerprint) throws BadDataException, BadNameException, IOException {
-        if (!openPgpV4FingerprintPattern.matcher(fingerprint).matches() &&
-                !openPgpV6FingerprintPattern.matcher(fingerprint).matches()) {
+        if (!Fingerprint.isValid(fingerprint)) {
             throw new BadNameException("Queried fingerprint '" + fingerprint + "' does neither match OpenPGP v4 nor OpenPGP v6 format.");
         }
         Certificate certificate = backend.readByFingerprint(fingerprint);
@@ -57,6 +140,15 @@ public class PGPCertificateDirectory
         return certificate;
     }
 
+    @Override
+    public Certificate getByFingerprint(Fingerprint fingerprint) throws BadDataException, IOException {
+        Certificate certificate = backend.readByFingerprint(fingerprint);
+        if (certificate == null) {
+            throw new NoSuchElementException("No certificate with fingerprint '" + fingerprint + "' found.");
+        }
+        return certificate;
+    }
+
     @Override
     public Certificate getByFingerprintIfChanged(String fingerprint, long tag)
             throws IOException, BadNameException, BadDataException {
@@ -66,6 +158,15 @@ public class PGPCertificateDirectory
         return null;
     }
 
+    @Override
+    public Certificate getByFingerprintIfChanged(Fingerprint fingerprint, long tag)
+            throws IOException, BadDataException {
+        if (!Objects.equals(tag, backend.getTagForFingerprint(fingerprint))) {
+            return getByFingerprint(fingerprint);
+        }
+        return null;
+    }
+
 
     @Override
     public Certificate getBySpecialName(String specialName)
@@ -110,18 +211,55 @@ public class PGPCertificateDirectory
         return backend.readItems();
     }
 
+    @Override
+    public Stream<Certificate> itemsStream() {
+        return backend.readItemsStream();
+    }
+
+    @Override
+    public Iterator<CertificateEntry> entries() {
+        return backend.listEntries();
+    }
+
+    /**
+     * Subscribe to changes of certificates in the directory.
+     * The listener receives the fingerprint (or special name) and new tag of each created, modified or deleted
+     * certificate, including changes made by other processes if the backend supports it.
+     * This can be used to invalidate caches instead of polling {@link #getByFingerprintIfChanged(String, long)}.
+     *
+     * @param listener listener
+     * @return subscription, which must be closed to stop receiving changes
+     *
+     * @throws IOException in case of an IO error
+     * @throws UnsupportedOperationException if the backend does not support change notifications,
+     * see {@link #supportsChangeNotifications()}
+     */
+    public ChangeSubscription subscribe(CertificateChangeListener listener) throws IOException {
+        return backend.subscribe(listener);
+    }
+
+    /**
+     * Return true, if the backend supports subscribing to changes using
+     * {@link #subscribe(CertificateChangeListener)}.
+     *
+     * @return true if change notifications are supported
+     */
+    public boolean supportsChangeNotifications() {
+        return backend.supportsChangeNotifications();
+    }
+
     @Override
     public Iterator<String> fingerprints() {
-        Iterator<Certificate> certs = items();
+        Iterator<CertificateEntry> entries = entries();
         return new Iterator<String>() {
             @Override
             public boolean hasNext() {
-                return certs.hasNext();
+                return entries.hasNext();
             }
 
             @Override
             public String next() {
-                return certs.next().getFingerprint();
+                return entries.next().getFingerprint();
             }
         };
     }
@@ -142,23 +280,29 @@ public class PGPCertificateDirectory
     @Override
     public KeyMaterial insertTrustRoot(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException, InterruptedException {
-        backend.getLock().lockDirectory();
-        KeyMaterial inserted = backend.doInsertTrustRoot(data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
-        return inserted;
+        backend.getLock().lockDirectoryShared();
+        try {
+            KeyMaterial inserted = backend.doInsertTrustRoot(data, merge);
+            storeSubkeyIds(inserted);
+            return inserted;
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
     }
 
     @Override
     public KeyMaterial tryInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException {
-        if (!backend.getLock().tryLockDirectory()) {
+        if (!backend.getLock().tryLockDirectoryShared()) {
             return null;
         }
-        KeyMaterial inserted = backend.doInsertTrustRoot(data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
-        return inserted;
+        try {
+            KeyMaterial inserted = backend.doInsertTrustRoot(data, merge);
+            storeSubkeyIds(inserted);
+            return inserted;
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
     }
 
 
@@ -166,45 +310,218 @@ public class PGPCertificateDirectory
     @Override
     public Certificate insert(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException, InterruptedException {
-        backend.getLock().lockDirectory();
-        Certificate inserted = backend.doInsert(data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
-        return inserted;
+        return insertIfChanged(data, merge).getCertificate();
     }
 
     @Override
     public Certificate tryInsert(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException {
-        if (!backend.getLock().tryLockDirectory()) {
+        InsertResult result = tryInsertIfChanged(data, merge);
+        return result == null ? null : result.getCertificate();
+    }
+
+    @Override
+    public InsertResult insertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException {
+        return insertIfChanged(data, merge, () -> {
+            backend.getLock().lockDirectoryShared();
+            return true;
+        });
+    }
+
+    @Override
+    public InsertResult tryInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        return insertIfChanged(data, merge, () -> backend.getLock().tryLockDirectoryShared());
+    }
+
+    /**
+     * Insert a certificate, acquiring the shared directory lock using the given strategy.
+     * In {@link InsertMode#OPTIMISTIC} mode, the certificate is merged outside the lock first, and the lock is only
+     * held to commit the prepared insert, which is retried if the stored certificate changed in the meantime.
+     *
+     * @param data input stream containing the certificate
+     * @param merge callback for merging with an existing certificate
+     * @param lock strategy to acquire the shared directory lock
+     * @param <E> exception thrown while waiting for the lock
+     * @return result of the insert, or null if the lock could not be acquired
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the data stream or existing certificate contains bad data
+     * @throws E if waiting for the lock fails
+     */
+    private <E extends Exception> InsertResult insertIfChanged(InputStream data, KeyMaterialMerger merge,
+                                                               SharedLockStrategy<E> lock)
+            throws IOException, BadDataException, E {
+        if (insertMode == InsertMode.OPTIMISTIC) {
+            byte[] encoding = data.readAllBytes();
+            for (int attempt = 0; attempt < InsertMode.MAX_OPTIMISTIC_ATTEMPTS; attempt++) {
+                try (PreparedInsert prepared = backend.prepareInsert(new ByteArrayInputStream(encoding), merge)) {
+                    if (prepared == null) {
+                        break;
+                    }
+                    if (!lock.acquire()) {
+                        return null;
+                    }
+                    InsertResult result = commit(prepared);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+            data = new ByteArrayInputStream(encoding);
+        }
+
+        if (!lock.acquire()) {
             return null;
         }
-        Certificate inserted = backend.doInsert(data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
+        try {
+            return storeSubkeyIds(backend.doInsertIfChanged(data, merge));
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
+    }
+
+    /**
+     * Strategy to acquire the shared directory lock, either blocking or non-blocking.
+     *
+     * @param <E> exception thrown while waiting for the lock
+     */
+    private interface SharedLockStrategy<E extends Exception> {
+
+        /**
+         * Acquire the shared directory lock.
+         *
+         * @return true if the lock was acquired, false if it is held by someone else
+         *
+         * @throws IOException in case of an IO error
+         * @throws E if waiting for the lock fails
+         */
+        boolean acquire() throws IOException, E;
+    }
+
+    /**
+     * Commit a prepared insert and store the subkey-ids of the written certificate.
+     * The caller MUST hold the shared directory lock, which is released by this method.
+     *
+     * @param prepared prepared insert
+     * @return result of the insert, or null if the stored certificate changed since the insert was prepared
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the certificate contains bad data
+     */
+    private InsertResult commit(PreparedInsert prepared) throws IOException, BadDataException {
+        try {
+            InsertResult result = prepared.commit();
+            return result == null ? null : storeSubkeyIds(result);
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
+    }
+
+    /**
+     * Store the subkey-ids of the inserted certificate, unless the insert did not change the stored certificate,
+     * in which case the subkey lookup already knows them.
+     *
+     * @param result result of the insert
+     * @return result
+     *
+     * @throws IOException in case of an IO error
+     */
+    private InsertResult storeSubkeyIds(InsertResult result) throws IOException {
+        if (result.isChanged()) {
+            storeSubkeyIds(result.getCertificate());
+        }
+        return result;
+    }
+
+    /**
+     * Store the subkey-ids of the inserted key material, unless the backend already stored them in the subkey lookup
+     * as part of the insert.
+     *
+     * @param inserted inserted key material
+     *
+     * @throws IOException in case of an IO error
+     */
+    private void storeSubkeyIds(KeyMaterial inserted) throws IOException {
+        if (!backendUpdatesSubkeyLookup) {
+            subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
+        }
+    }
+
+    @Override
+    public List<Certificate> insertAll(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException {
+        backend.getLock().lockDirectoryShared();
+        try {
+            return doInsertAll(data, merge);
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
+    }
+
+    @Override
+    public List<Certificate> tryInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        if (!backend.getLock().tryLockDirectoryShared()) {
+            return null;
+        }
+        try {
+            return doInsertAll(data, merge);
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
+    }
+
+    private List<Certificate> doInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        List<InsertResult> results = new ArrayList<>();
+        List<Certificate> inserted = new ArrayList<>();
+        Map<String, List<Long>> subkeyIds = new LinkedHashMap<>();
+        try {
+            backend.doInsertAll(data, merge, results);
+        } finally {
+            // Even if one certificate fails, record the subkeys of the ones already written
+            for (InsertResult result : results) {
+                Certificate merged = result.getCertificate();
+                inserted.add(merged);
+                if (result.isChanged()) {
+                    subkeyIds.put(merged.getFingerprint(), merged.getSubkeyIds());
+                }
+            }
+            if (!backendUpdatesSubkeyLookup) {
+                subkeyLookup.storeCertificatesSubkeyIds(subkeyIds);
+            }
+        }
         return inserted;
     }
 
     @Override
     public Certificate insertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException, BadNameException, InterruptedException {
-        backend.getLock().lockDirectory();
-        Certificate inserted = backend.doInsertWithSpecialName(specialName, data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
-        return inserted;
+        backend.getLock().lockDirectoryShared();
+        try {
+            Certificate inserted = backend.doInsertWithSpecialName(specialName, data, merge);
+            storeSubkeyIds(inserted);
+            return inserted;
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
     }
 
     @Override
     public Certificate tryInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException, BadNameException {
-        if (!backend.getLock().tryLockDirectory()) {
+        if (!backend.getLock().tryLockDirectoryShared()) {
             return null;
         }
-        Certificate inserted = backend.doInsertWithSpecialName(specialName, data, merge);
-        subkeyLookup.storeCertificateSubkeyIds(inserted.getFingerprint(), inserted.getSubkeyIds());
-        backend.getLock().releaseDirectory();
-        return inserted;
+        try {
+            Certificate inserted = backend.doInsertWithSpecialName(specialName, data, merge);
+            storeSubkeyIds(inserted);
+            return inserted;
+        } finally {
+            backend.getLock().releaseDirectoryShared();
+        }
     }
 
     @Override
@@ -212,15 +529,62 @@ public class PGPCertificateDirectory
         return subkeyLookup.getCertificateFingerprintsForSubkeyId(subkeyId);
     }
 
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyIds(long... subkeyIds) throws IOException {
+        return subkeyLookup.getCertificateFingerprintsForSubkeyIds(subkeyIds);
+    }
+
     @Override
     public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
         subkeyLookup.storeCertificateSubkeyIds(certificate, subkeyIds);
     }
 
+    @Override
+    public void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) throws IOException {
+        subkeyLookup.storeCertificatesSubkeyIds(certificateSubkeyIds);
+    }
+
+    /**
+     * Insert of a certificate, which was parsed and merged without holding the directory lock.
+     *
+     * @see Backend#prepareInsert(InputStream, KeyMaterialMerger)
+     */
+    public interface PreparedInsert extends AutoCloseable {
+
+        /**
+         * Write the merged certificate, if the stored certificate did not change since the insert was prepared.
+         * The caller MUST hold the directory lock.
+         *
+         * @return result of the insert, or null if the stored certificate changed in the meantime
+         *
+         * @throws IOException in case of an IO error
+         * @throws BadDataException if the certificate contains bad data
+         */
+        InsertResult commit() throws IOException, BadDataException;
+
+        /**
+         * Discard resources held by the prepared insert, e.g. staged temporary files.
+         * Closing a committed insert has no effect.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Close the storage backend, releasing resources like open segment files or database connections.
+     * The subkey lookup is not closed, since it might be shared with other directories.
+     *
+     * @throws IOException in case of an IO error
+     */
+    @Override
+    public void close() throws IOException {
+        backend.close();
+    }
+
     /**
      * Storage backend.
      */
-    public interface Backend {
+    public interface Backend extends Closeable {
 
         /**
          * Get the locking mechanism to write-lock the backend.
@@ -241,6 +605,26 @@ public class PGPCertificateDirectory
          */
         Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException;
 
+        /**
+         * Read a {@link Certificate} by its OpenPGP fingerprint.
+         * Backends should override this method to avoid validating and parsing the hex encoding.
+         * The default implementation delegates to {@link #readByFingerprint(String)}.
+         *
+         * @param fingerprint fingerprint
+         * @return certificate or null if no such certificate exists
+         *
+         * @throws IOException in case of an IO error
+         * @throws BadDataException if the certificate contains bad data
+         */
+        default Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+            try {
+                return readByFingerprint(fingerprint.toString());
+            } catch (BadNameException e) {
+                // Does not happen, since the fingerprint is valid
+                throw new RuntimeException(e);
+            }
+        }
+
         /**
          * Read a {@link Certificate} or {@link pgp.certificate_store.certificate.Key} by the given special name.
          *
@@ -261,6 +645,82 @@ public class PGPCertificateDirectory
          */
         Iterator<Certificate> readItems();
 
+        /**
+         * Return a {@link Stream} of all {@link Certificate Certificates} in the store, except for certificates
+         * stored under a special name.
+         * Backends should override this method, if they can process the stream in parallel.
+         *
+         * @return stream of certificates
+         */
+        default Stream<Certificate> readItemsStream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(readItems(), Spliterator.NONNULL), false);
+        }
+
+        /**
+         * Return an {@link Iterator} of {@link CertificateEntry CertificateEntries} describing all certificates in
+         * the store, except for certificates stored under a special name.
+         * Backends should override this method, if they can list entries without reading the certificates.
+         *
+         * @return iterator of entries
+         */
+        default Iterator<CertificateEntry> listEntries() {
+            Iterator<Certificate> items = readItems();
+            return new Iterator<CertificateEntry>() {
+                @Override
+                public boolean hasNext() {
+                    return items.hasNext();
+                }
+
+                @Override
+                public CertificateEntry next() {
+                    return CertificateEntry.of(items.next());
+                }
+            };
+        }
+
+        /**
+         * Subscribe to changes of certificates in the store.
+         * Backends that do not support change notifications throw an {@link UnsupportedOperationException}.
+         * Backends overriding this method MUST also override {@link #supportsChangeNotifications()}.
+         *
+         * @param listener listener
+         * @return subscription, which must be closed to stop receiving changes
+         *
+         * @throws IOException in case of an IO error
+         */
+        default ChangeSubscription subscribe(CertificateChangeListener listener) throws IOException {
+            throw new UnsupportedOperationException("Backend does not support change notifications.");
+        }
+
+        /**
+         * Return true, if {@link #subscribe(CertificateChangeListener)} is supported by this backend.
+         *
+         * @return true if change notifications are supported
+         */
+        default boolean supportsChangeNotifications() {
+            return false;
+        }
+
+        /**
+         * Prepare the insert of a certificate without holding the directory lock.
+         * The certificate is parsed and merged with the currently stored certificate, whose tag is remembered.
+         * The returned {@link PreparedInsert} is committed while holding the lock and only succeeds if the tag of
+         * the stored certificate did not change in the meantime.
+         * Per default, this method returns null without reading the data, indicating that the backend does not
+         * support optimistic inserts.
+         *
+         * @param data input stream containing the new certificate
+         * @param merge callback for merging with an existing certificate
+         * @return prepared insert, or null if not supported
+         *
+         * @throws IOException in case of an IO error
+         * @throws BadDataException if the data stream or existing certificate contains bad data
+         */
+        default PreparedInsert prepareInsert(InputStream data, KeyMaterialMerger merge)
+                throws IOException, BadDataException {
+            return null;
+        }
+
         /**
          * Insert a {@link pgp.certificate_store.certificate.Key} or {@link Certificate} as trust-root.
          *
@@ -287,6 +747,58 @@ public class PGPCertificateDirectory
         Certificate doInsert(InputStream data, KeyMaterialMerger merge)
                         throws IOException, BadDataException;
 
+        /**
+         * Insert a {@link Certificate} identified by its fingerprint into the directory, unless merging it with the
+         * stored certificate results in the same encoding.
+         * In that case, the stored certificate is not rewritten and keeps its tag.
+         * The default implementation always writes the certificate.
+         *
+         * @param data input stream containing the certificate data
+         * @param merge callback to merge the certificate with existing key material
+         * @return result containing the merged or inserted certificate
+         *
+         * @throws IOException in case of an IO error
+         * @throws BadDataException if the data stream or existing certificate contains bad data
+         */
+        default InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+                throws IOException, BadDataException {
+            return InsertResult.changed(doInsert(data, merge));
+        }
+
+        /**
+         * Insert multiple {@link Certificate Certificates} using
+         * {@link #doInsertIfChanged(InputStream, KeyMaterialMerger)} and add the results to the given list in order.
+         * If an insert fails, the certificates inserted before remain stored and their results remain in the list.
+         * Backends which support transactions may override this method to insert all certificates atomically.
+         * In that case, if any certificate cannot be parsed, merged or written, none of the certificates are stored
+         * and no results are added.
+         *
+         * @param data input streams containing the certificate data
+         * @param merge callback to merge the certificates with existing key material
+         * @param results list to which the results are added
+         *
+         * @throws IOException in case of an IO error
+         * @throws BadDataException if a data stream or existing certificate contains bad data
+         */
+        default void doInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge, List<InsertResult> results)
+                throws IOException, BadDataException {
+            for (InputStream certificate : data) {
+                results.add(doInsertIfChanged(certificate, merge));
+            }
+        }
+
+        /**
+         * Return true, if this backend stores the subkey-ids of inserted key material in the given subkey lookup as
+         * part of its inserts, in which case the directory does not store them again.
+         * Per default, this method returns false.
+         *
+         * @param subkeyLookup subkey lookup of the directory
+         * @return true if inserts already update the subkey lookup
+         */
+        default boolean updatesSubkeyLookup(SubkeyLookup subkeyLookup) {
+            return false;
+        }
+
         /**
          * Insert a {@link pgp.certificate_store.certificate.Key} or {@link Certificate} under the given special name.
          *
@@ -314,6 +826,24 @@ public class PGPCertificateDirectory
          */
         Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException;
 
+        /**
+         * Calculate the tag of the certificate with the given fingerprint.
+         * The default implementation delegates to {@link #getTagForFingerprint(String)}.
+         *
+         * @param fingerprint fingerprint
+         * @return tag
+         *
+         * @throws IOException in case of an IO error
+         */
+        default Long getTagForFingerprint(Fingerprint fingerprint) throws IOException {
+            try {
+                return getTagForFingerprint(fingerprint.toString());
+            } catch (BadNameException e) {
+                // Does not happen, since the fingerprint is valid
+                throw new RuntimeException(e);
+            }
+        }
+
         /**
          * Calculate the tag of the certificate identified by the given special name.
          *
@@ -325,6 +855,17 @@ public class PGPCertificateDirectory
          * @throws IllegalArgumentException if the certificate or key does not exist
          */
         Long getTagForSpecialName(String specialName) throws BadNameException, IOException;
+
+        /**
+         * Release resources held by the backend, like open files or database connections.
+         * Per default, this method does nothing.
+         *
+         * @throws IOException in case of an IO error
+         */
+        @Override
+        default void close() throws IOException {
+
+        }
     }
 
     /**
@@ -351,6 +892,32 @@ public class PGPCertificateDirectory
          */
         boolean tryLockDirectory() throws IOException;
 
+        /**
+         * Lock the store for writes, waiting at most the given time for the lock to become available.
+         * Per default, this method repeatedly calls {@link #tryLockDirectory()} with an increasing back-off.
+         * Implementations should override this method to wait for the lock in a fair manner.
+         *
+         * @param timeout maximum time to wait
+         * @param unit unit of the timeout
+         * @return true if locking succeeded, false if the timeout elapsed
+         *
+         * @throws IOException in case of an IO error
+         * @throws InterruptedException if the thread gets interrupted
+         */
+        default boolean lockDirectory(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long backoff = TimeUnit.MILLISECONDS.toNanos(1);
+            while (!tryLockDirectory()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, TimeUnit.MILLISECONDS.toNanos(50));
+            }
+            return true;
+        }
+
         /**
          * Return true if the lock is in locked state.
          *
@@ -365,5 +932,40 @@ public class PGPCertificateDirectory
          */
         void releaseDirectory() throws IOException;
 
+        /**
+         * Lock the store for a single insert operation.
+         * Backends which synchronize concurrent inserts of different certificates themselves can override this
+         * method to acquire a lock which is shared between inserting threads and only excludes holders of the
+         * exclusive lock acquired via {@link #lockDirectory()}.
+         * Per default, this method acquires the exclusive lock.
+         *
+         * @throws IOException in case of an IO error
+         * @throws InterruptedException if the thread gets interrupted
+         */
+        default void lockDirectoryShared() throws IOException, InterruptedException {
+            lockDirectory();
+        }
+
+        /**
+         * Try to lock the store for a single insert operation.
+         * Return false without locking the store in case the store was already locked exclusively.
+         * Per default, this method tries to acquire the exclusive lock.
+         *
+         * @return true if locking succeeded, false otherwise
+         *
+         * @throws IOException in case of an IO error
+         */
+        default boolean tryLockDirectoryShared() throws IOException {
+            return tryLockDirectory();
+        }
+
+        /**
+         * Release the lock acquired via {@link #lockDirectoryShared()} or {@link #tryLockDirectoryShared()}.
+         *
+         * @throws IOException in case of an IO error
+         */
+        default void releaseDirectoryShared() throws IOException {
+            releaseDirectory();
+        }
     }
 }
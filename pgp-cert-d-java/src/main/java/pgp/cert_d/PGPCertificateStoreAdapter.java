@@ -12,9 +12,15 @@ import pgp.certificate_store.exception.BadNameException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Adapter class to adapt a {@link PGPCertificateDirectory} to the {@link  PGPCertificateStore} interface.
@@ -22,9 +28,22 @@ import java.util.Set;
 public class PGPCertificateStoreAdapter implements PGPCertificateStore {
 
     private final PGPCertificateDirectory directory;
+    private final Executor executor;
 
     public PGPCertificateStoreAdapter(PGPCertificateDirectory directory) {
+        this(directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an adapter which reads certificates on the given {@link Executor} when looking up multiple
+     * certificates via {@link #getCertificatesBySubkeyIds(long...)}.
+     *
+     * @param directory certificate directory
+     * @param executor executor used to read certificates concurrently
+     */
+    public PGPCertificateStoreAdapter(PGPCertificateDirectory directory, Executor executor) {
         this.directory = directory;
+        this.executor = executor;
     }
 
     @Override
@@ -50,18 +69,84 @@ public class PGPCertificateStoreAdapter implements PGPCertificateStore {
     @Override
     public Iterator<Certificate> getCertificatesBySubkeyId(long subkeyId)
             throws IOException, BadDataException {
-        Set<String> fingerprints = directory.getCertificateFingerprintsForSubkeyId(subkeyId);
-        Set<Certificate> certificates = new HashSet<>();
+        return getCertificatesBySubkeyIds(subkeyId);
+    }
+
+    /**
+     * Return an {@link Iterator} over all certificates in the store that contain a subkey with any of the given
+     * subkey ids.
+     * All subkey ids are resolved by a single query to the subkey lookup. If multiple certificates match, they are
+     * read concurrently on the {@link Executor} of this adapter.
+     * Certificates that are referenced by the subkey lookup, but no longer exist in the directory, are skipped.
+     *
+     * @param subkeyIds ids of the subkeys
+     * @return iterator
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if any of the certificate files contains invalid data
+     */
+    @Override
+    public Iterator<Certificate> getCertificatesBySubkeyIds(long... subkeyIds)
+            throws IOException, BadDataException {
+        Set<String> fingerprints = directory.getCertificateFingerprintsForSubkeyIds(subkeyIds);
+        List<Certificate> certificates = new ArrayList<>(fingerprints.size());
+        if (fingerprints.size() <= 1) {
+            for (String fingerprint : fingerprints) {
+                addIfPresent(certificates, readCertificate(fingerprint));
+            }
+            return certificates.iterator();
+        }
+
+        List<CompletableFuture<Certificate>> futures = new ArrayList<>(fingerprints.size());
         for (String fingerprint : fingerprints) {
-            try {
-                certificates.add(directory.getByFingerprint(fingerprint));
-            } catch (BadNameException e) {
-                throw new RuntimeException(e);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return readCertificate(fingerprint);
+                } catch (IOException | BadDataException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        try {
+            for (CompletableFuture<Certificate> future : futures) {
+                addIfPresent(certificates, future.join());
+            }
+        } catch (CompletionException e) {
+            for (CompletableFuture<Certificate> future : futures) {
+                future.cancel(false);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
+            if (cause instanceof BadDataException) {
+                throw (BadDataException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
         }
         return certificates.iterator();
     }
 
+    private Certificate readCertificate(String fingerprint) throws IOException, BadDataException {
+        try {
+            return directory.getByFingerprint(fingerprint);
+        } catch (NoSuchElementException e) {
+            // subkey lookup references a certificate which was removed from the directory
+            return null;
+        } catch (BadNameException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void addIfPresent(List<Certificate> certificates, Certificate certificate) {
+        if (certificate != null) {
+            certificates.add(certificate);
+        }
+    }
+
     @Override
     public Certificate insertCertificate(InputStream data, KeyMaterialMerger merge)
             throws IOException, InterruptedException, BadDataException {
@@ -69,6 +154,12 @@ public class PGPCertificateStoreAdapter implements PGPCertificateStore {
         return certificate;
     }
 
+    @Override
+    public List<Certificate> insertCertificates(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, InterruptedException, BadDataException {
+        return directory.insertAll(data, merge);
+    }
+
     @Override
     public Certificate insertCertificateBySpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
             throws IOException, InterruptedException, BadDataException, BadNameException {
@@ -11,6 +11,7 @@ import pgp.certificate_store.exception.BadNameException;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 /**
  * Interface for a read-only OpenPGP certificate directory.
@@ -60,6 +61,20 @@ public interface ReadOnlyPGPCertificateDirectory {
     Certificate getByFingerprint(String fingerprint)
             throws IOException, BadNameException, BadDataException;
 
+    /**
+     * Get the certificate identified by the given fingerprint.
+     * Contrary to {@link #getByFingerprint(String)}, the fingerprint does not need to be validated again.
+     *
+     * @param fingerprint fingerprint of the certificate
+     * @return certificate
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the certificate contains bad data
+     * @throws NoSuchElementException if no such certificate is found
+     */
+    Certificate getByFingerprint(Fingerprint fingerprint)
+            throws IOException, BadDataException;
+
     /**
      * Get the certificate identified by the given fingerprint if it has changed.
      * This method uses the <pre>tag</pre> to calculate, if the certificate might have changed.
@@ -78,6 +93,21 @@ public interface ReadOnlyPGPCertificateDirectory {
     Certificate getByFingerprintIfChanged(String fingerprint, long tag)
             throws IOException, BadNameException, BadDataException;
 
+    /**
+     * Get the certificate identified by the given fingerprint if it has changed.
+     * If the computed tag equals the given tag, the certificate has not changed, so <pre>null</pre> is returned.
+     *
+     * @param fingerprint fingerprint of the certificate
+     * @param tag tag
+     * @return certificate or null if the certificate has not been changed
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the certificate contains bad data
+     * @throws NoSuchElementException if no such certificate is found
+     */
+    Certificate getByFingerprintIfChanged(Fingerprint fingerprint, long tag)
+            throws IOException, BadDataException;
+
     /**
      * Get the certificate identified by the given special name.
      *
@@ -117,9 +147,30 @@ public interface ReadOnlyPGPCertificateDirectory {
      */
     Iterator<Certificate> items();
 
+    /**
+     * Get all certificates in the directory as a {@link Stream}, except for certificates which are stored by
+     * special name.
+     * Contrary to {@link #items()}, the stream can be turned into a {@link Stream#parallel() parallel} stream to
+     * read and parse certificates concurrently.
+     * The stream should be closed after use, for example by using a try-with-resources statement.
+     *
+     * @return stream of certificates
+     */
+    Stream<Certificate> itemsStream();
+
+    /**
+     * Get the fingerprints, tags and sizes of all certificates in the directory, except for certificates which are
+     * stored by special name.
+     * Contrary to {@link #items()}, backends can list entries without reading or parsing the certificates.
+     *
+     * @return iterator of entries
+     */
+    Iterator<CertificateEntry> entries();
+
     /**
      * Get the fingerprints of all certificates in the directory, except for certificates which are stored by
      * special name.
+     * The fingerprints are taken from {@link #entries()}, so the certificates are not parsed.
      *
      * @return iterator of fingerprints
      */
@@ -12,6 +12,7 @@ import pgp.certificate_store.exception.BadNameException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Interface for a writing OpenPGP certificate directory.
@@ -89,6 +90,71 @@ public interface WritingPGPCertificateDirectory {
     Certificate tryInsert(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException;
 
+    /**
+     * Insert a certificate identified by its fingerprint.
+     * Contrary to {@link #insert(InputStream, KeyMaterialMerger)}, the stored certificate is not rewritten if
+     * merging does not change its encoding, in which case its tag and subkey-ids stay as they are.
+     * This method blocks until the certificate has been written or found unchanged.
+     *
+     * @param data input stream containing the certificate data
+     * @param merge merge callback to merge the certificate with existing certificate material
+     * @return result containing the merged or inserted certificate and whether it changed
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the data stream or existing certificate contains bad data
+     * @throws InterruptedException if the thread is interrupted
+     */
+    InsertResult insertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException;
+
+    /**
+     * Insert a certificate identified by its fingerprint, unless merging does not change the stored certificate.
+     * Contrary to {@link #insertIfChanged(InputStream, KeyMaterialMerger)}, this method does not block.
+     * Instead, it returns null if the write-lock cannot be obtained.
+     *
+     * @param data input stream containing the certificate data
+     * @param merge merge callback to merge the certificate with existing certificate material
+     * @return result containing the merged or inserted certificate, or null if the write-lock cannot be obtained
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the data stream or existing certificate contains bad data
+     */
+    InsertResult tryInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException;
+
+    /**
+     * Insert multiple certificates identified by their fingerprints.
+     * This method blocks until the write-lock has been acquired and then holds it while inserting all certificates,
+     * instead of acquiring it once per certificate.
+     * The subkey-ids of all inserted certificates are stored in the subkey lookup in a single batch.
+     *
+     * @param data input streams containing the certificate data
+     * @param merge merge callback to merge the certificates with existing certificate material
+     * @return the merged or inserted certificates in the order of the input streams
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if any of the data streams or existing certificates contains bad data
+     * @throws InterruptedException if the thread is interrupted
+     */
+    List<Certificate> insertAll(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, InterruptedException;
+
+    /**
+     * Insert multiple certificates identified by their fingerprints.
+     * Contrary to {@link #insertAll(Iterable, KeyMaterialMerger)}, this method does not block.
+     * Instead, it returns null if the write-lock cannot be obtained.
+     *
+     * @param data input streams containing the certificate data
+     * @param merge merge callback to merge the certificates with existing certificate material
+     * @return the merged or inserted certificates in the order of the input streams,
+     * or null if the write-lock cannot be obtained
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if any of the data streams or existing certificates contains bad data
+     */
+    List<Certificate> tryInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, BadDataException;
+
     /**
      * Insert a certificate or key under the given special name.
      * This method blocks until the certificate/key has been written.
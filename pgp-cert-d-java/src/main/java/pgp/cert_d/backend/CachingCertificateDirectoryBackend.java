@@ -0,0 +1,314 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.cert_d.CertificateChangeListener;
+import pgp.cert_d.CertificateEntry;
+import pgp.cert_d.ChangeSubscription;
+import pgp.cert_d.Fingerprint;
+import pgp.cert_d.InsertResult;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Decorator for a {@link PGPCertificateDirectory.Backend}, which caches certificates read by fingerprint.
+ * On a cache hit, only the tag of the certificate is queried from the underlying backend (e.g. a single
+ * <pre>stat</pre> call for the {@link FileBasedCertificateDirectoryBackend}).
+ * The certificate is only read and parsed again, if the tag differs from the tag of the cached copy.
+ *
+ * The cache is bounded both by the number of certificates and by their total size in bytes.
+ * If either bound is exceeded, the least recently used certificates are evicted.
+ */
+public class CachingCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
+
+    private final PGPCertificateDirectory.Backend delegate;
+    private final int maximumSize;
+    private final long maximumWeight;
+
+    // access-ordered, guarded by this
+    private final LinkedHashMap<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    /**
+     * Create a caching decorator for the given backend.
+     *
+     * @param delegate backend
+     * @param maximumSize maximum number of cached certificates
+     * @param maximumWeight maximum total size of all cached certificates in bytes
+     */
+    public CachingCertificateDirectoryBackend(PGPCertificateDirectory.Backend delegate,
+                                              int maximumSize,
+                                              long maximumWeight) {
+        if (maximumSize < 0 || maximumWeight < 0) {
+            throw new IllegalArgumentException("Cache bounds MUST NOT be negative.");
+        }
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return delegate.getLock();
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        return readByFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+        String hex = fingerprint.toString();
+        Certificate cached = getCached(hex);
+        if (cached != null) {
+            Long tag;
+            try {
+                tag = delegate.getTagForFingerprint(fingerprint);
+            } catch (NoSuchElementException e) {
+                tag = null;
+            }
+            if (tag == null) {
+                // certificate got deleted
+                invalidate(hex);
+                return null;
+            }
+            if (tag.equals(cached.getTag())) {
+                return cached;
+            }
+        }
+
+        // Read and parse outside the lock
+        Certificate certificate = delegate.readByFingerprint(fingerprint);
+        if (certificate == null) {
+            invalidate(hex);
+        } else {
+            put(certificate);
+        }
+        return certificate;
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException, IOException, BadDataException {
+        return delegate.readBySpecialName(specialName);
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        return delegate.readItems();
+    }
+
+    @Override
+    public Stream<Certificate> readItemsStream() {
+        return delegate.readItemsStream();
+    }
+
+    @Override
+    public Iterator<CertificateEntry> listEntries() {
+        return delegate.listEntries();
+    }
+
+    @Override
+    public ChangeSubscription subscribe(CertificateChangeListener listener) throws IOException {
+        return delegate.subscribe(listener);
+    }
+
+    @Override
+    public boolean supportsChangeNotifications() {
+        return delegate.supportsChangeNotifications();
+    }
+
+    @Override
+    public boolean updatesSubkeyLookup(SubkeyLookup subkeyLookup) {
+        return delegate.updatesSubkeyLookup(subkeyLookup);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        return delegate.doInsertTrustRoot(data, merge);
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge) throws IOException, BadDataException {
+        Certificate inserted = delegate.doInsert(data, merge);
+        put(inserted);
+        return inserted;
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        InsertResult result = delegate.doInsertIfChanged(data, merge);
+        if (result.isChanged()) {
+            put(result.getCertificate());
+        }
+        return result;
+    }
+
+    @Override
+    public void doInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge, List<InsertResult> results)
+            throws IOException, BadDataException {
+        int first = results.size();
+        try {
+            delegate.doInsertAll(data, merge, results);
+        } finally {
+            // cache the certificates written before a failure as well
+            for (InsertResult result : results.subList(first, results.size())) {
+                if (result.isChanged()) {
+                    put(result.getCertificate());
+                }
+            }
+        }
+    }
+
+    @Override
+    public PGPCertificateDirectory.PreparedInsert prepareInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        PGPCertificateDirectory.PreparedInsert prepared = delegate.prepareInsert(data, merge);
+        if (prepared == null) {
+            return null;
+        }
+        return new PGPCertificateDirectory.PreparedInsert() {
+            @Override
+            public InsertResult commit() throws IOException, BadDataException {
+                InsertResult result = prepared.commit();
+                if (result != null && result.isChanged()) {
+                    put(result.getCertificate());
+                }
+                return result;
+            }
+
+            @Override
+            public void close() {
+                prepared.close();
+            }
+        };
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        return delegate.doInsertWithSpecialName(specialName, data, merge);
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException {
+        return delegate.getTagForFingerprint(fingerprint);
+    }
+
+    @Override
+    public Long getTagForFingerprint(Fingerprint fingerprint) throws IOException {
+        return delegate.getTagForFingerprint(fingerprint);
+    }
+
+    @Override
+    public Long getTagForSpecialName(String specialName) throws BadNameException, IOException {
+        return delegate.getTagForSpecialName(specialName);
+    }
+
+    /**
+     * Remove the certificate with the given fingerprint from the cache.
+     *
+     * @param fingerprint fingerprint
+     */
+    public synchronized void invalidate(String fingerprint) {
+        Cached removed = cache.remove(fingerprint);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Remove all certificates from the cache.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+        weight = 0;
+    }
+
+    /**
+     * Return the number of cached certificates.
+     *
+     * @return number of cached certificates
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Return the total size of all cached certificates in bytes.
+     *
+     * @return total size of cached certificates
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    private synchronized Certificate getCached(String fingerprint) {
+        Cached cached = cache.get(fingerprint);
+        return cached == null ? null : cached.certificate;
+    }
+
+    private synchronized void put(Certificate certificate) {
+        long certificateWeight = weigh(certificate);
+        if (certificateWeight > maximumWeight) {
+            // Would evict everything else, do not cache at all
+            invalidate(certificate.getFingerprint());
+            return;
+        }
+
+        Cached replaced = cache.put(certificate.getFingerprint(), new Cached(certificate, certificateWeight));
+        if (replaced != null) {
+            weight -= replaced.weight;
+        }
+        weight += certificateWeight;
+
+        Iterator<Map.Entry<String, Cached>> leastRecentlyUsed = cache.entrySet().iterator();
+        while (cache.size() > maximumSize || weight > maximumWeight) {
+            Cached evicted = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            weight -= evicted.weight;
+        }
+    }
+
+    private static long weigh(Certificate certificate) {
+        // Lazy certificates report the known file size without loading their encoding
+        return certificate.getEncodedLength();
+    }
+
+    /**
+     * Cached certificate together with the weight it was accounted with, since the encoded length of a lazy
+     * certificate may change once it is loaded.
+     */
+    private static final class Cached {
+        private final Certificate certificate;
+        private final long weight;
+
+        private Cached(Certificate certificate, long weight) {
+            this.certificate = certificate;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.cert_d.InsertResult;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.SpecialNames;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.Key;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the {@link PGPCertificateDirectory.Backend} which stores key material in-memory and
+ * supports concurrent readers and writers.
+ * Reads are lock-free.
+ * Inserts only hold a shared lock on the directory and a write lock on the stripe of the inserted fingerprint,
+ * so that inserts of independent certificates can happen in parallel.
+ * The exclusive directory lock ({@link PGPCertificateDirectory.LockingMechanism#lockDirectory()}) still blocks
+ * all inserts.
+ */
+public class ConcurrentInMemoryCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
+
+    /**
+     * Number of write lock stripes. Certificates are assigned to stripes by the first byte of their fingerprint.
+     */
+    private static final int STRIPES = 256;
+
+    private final ConcurrentMap<String, Certificate> certificateFingerprintMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, KeyMaterial> keyMaterialSpecialNameMap = new ConcurrentHashMap<>();
+    private final PGPCertificateDirectory.LockingMechanism lock = new StampedLockingMechanism();
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Lock specialNameLock = new ReentrantLock();
+    private final KeyMaterialReaderBackend reader;
+    private final AtomicLong lastTag = new AtomicLong();
+
+    public ConcurrentInMemoryCertificateDirectoryBackend(KeyMaterialReaderBackend reader) {
+        this.reader = reader;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return lock;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) {
+        return certificateFingerprintMap.get(fingerprint);
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException {
+        if (SpecialNames.lookupSpecialName(specialName) == null) {
+            throw new BadNameException("Invalid special name " + specialName);
+        }
+        return keyMaterialSpecialNameMap.get(specialName);
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        // weakly consistent, never throws ConcurrentModificationException
+        return certificateFingerprintMap.values().iterator();
+    }
+
+    @Override
+    public Stream<Certificate> readItemsStream() {
+        return certificateFingerprintMap.values().stream();
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        try {
+            return doInsertKeyMaterialWithSpecialName(SpecialNames.TRUST_ROOT, data, merge);
+        } catch (BadNameException e) {
+            // Does not happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        return doInsertIfChanged(data, merge).getCertificate();
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        // Parse outside the stripe lock
+        KeyMaterial update = reader.read(data, null);
+        String fingerprint = update.getFingerprint();
+        Lock stripe = stripeFor(fingerprint);
+        stripe.lock();
+        try {
+            Certificate existing = certificateFingerprintMap.get(fingerprint);
+            Certificate merged = merge.merge(update, existing).asCertificate();
+            if (existing != null && KeyMaterialEncodings.equal(merged, existing)) {
+                return InsertResult.unchanged(existing);
+            }
+            merged = new Certificate(merged, newTag());
+            certificateFingerprintMap.put(fingerprint, merged);
+            return InsertResult.changed(merged);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        return doInsertKeyMaterialWithSpecialName(specialName, data, merge).asCertificate();
+    }
+
+    private KeyMaterial doInsertKeyMaterialWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        if (SpecialNames.lookupSpecialName(specialName) == null) {
+            throw new BadNameException("Invalid special name " + specialName);
+        }
+        KeyMaterial update = reader.read(data, null);
+        specialNameLock.lock();
+        try {
+            KeyMaterial existing = keyMaterialSpecialNameMap.get(specialName);
+            KeyMaterial merged = merge.merge(update, existing);
+            if (merged instanceof Key) {
+                merged = new Key((Key) merged, newTag());
+            } else {
+                merged = new Certificate((Certificate) merged, newTag());
+            }
+            keyMaterialSpecialNameMap.put(specialName, merged);
+            return merged;
+        } finally {
+            specialNameLock.unlock();
+        }
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) {
+        Certificate certificate = certificateFingerprintMap.get(fingerprint);
+        if (certificate == null) {
+            return null;
+        }
+        return certificate.getTag();
+    }
+
+    @Override
+    public Long getTagForSpecialName(String specialName) throws BadNameException {
+        if (SpecialNames.lookupSpecialName(specialName) == null) {
+            throw new BadNameException("Invalid special name " + specialName);
+        }
+        KeyMaterial tagged = keyMaterialSpecialNameMap.get(specialName);
+        if (tagged == null) {
+            return null;
+        }
+        return tagged.getTag();
+    }
+
+    private Lock stripeFor(String fingerprint) throws BadDataException {
+        int high = fingerprint.length() < 2 ? -1 : Character.digit(fingerprint.charAt(0), 16);
+        int low = fingerprint.length() < 2 ? -1 : Character.digit(fingerprint.charAt(1), 16);
+        if (high < 0 || low < 0) {
+            throw new BadDataException("Malformed key fingerprint: " + fingerprint);
+        }
+        return stripes[high << 4 | low];
+    }
+
+    /**
+     * Return a new tag, which is strictly greater than any previously returned tag, even if multiple threads
+     * request tags within the same millisecond.
+     *
+     * @return tag
+     */
+    private Long newTag() {
+        return lastTag.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,228 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.cert_d.CertificateChange;
+import pgp.cert_d.CertificateChangeListener;
+import pgp.cert_d.ChangeSubscription;
+import pgp.cert_d.SpecialNames;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChangeSubscription} which watches the base directory and the shard directories of a
+ * {@link FileBasedCertificateDirectoryBackend} using a {@link WatchService}.
+ * Events are collected for a short coalescing window starting with the first event, after which each affected
+ * certificate file is inspected once and a {@link CertificateChange} is emitted if its tag differs from the last emitted tag.
+ * Since events are derived from the file system, writes by other processes are reported as well.
+ */
+final class DirectoryWatcher implements ChangeSubscription {
+
+    /**
+     * Function which computes the tag of a file.
+     */
+    interface TagFunction {
+
+        /**
+         * Return the tag of the given file, or null if the file does not exist.
+         *
+         * @param file file
+         * @return tag or null
+         *
+         * @throws IOException in case of an IO error
+         */
+        Long tagOf(Path file) throws IOException;
+    }
+
+    private static final WatchEvent.Kind<?>[] KINDS = {
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE
+    };
+
+    private final Path baseDirectory;
+    private final TagFunction tagFunction;
+    private final CertificateChangeListener listener;
+    private final long coalesceMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> shardKeys = new HashMap<>();
+    // last emitted tag per file, null for deleted files
+    private final Map<Path, Long> lastTags = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    DirectoryWatcher(Path baseDirectory, TagFunction tagFunction, CertificateChangeListener listener,
+                     long coalesceMillis)
+            throws IOException {
+        this.baseDirectory = baseDirectory;
+        this.tagFunction = tagFunction;
+        this.listener = listener;
+        this.coalesceMillis = coalesceMillis;
+        this.watchService = baseDirectory.getFileSystem().newWatchService();
+        try {
+            baseDirectory.register(watchService, KINDS);
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(baseDirectory, this::isShard)) {
+                for (Path shard : shards) {
+                    registerShard(shard);
+                }
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "pgp-cert-d-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // nothing we can do
+        }
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watchService.take();
+                // the window is fixed by the first event, so a steady stream of writes cannot delay emitting
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+                while (key != null) {
+                    collect(key, changed);
+                    long remaining = deadline - System.nanoTime();
+                    // events after the deadline are picked up by the next window
+                    key = remaining > 0 ? watchService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                }
+                emit(changed);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // subscription was closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path shard = shardKeys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, consider the whole directory changed
+                collectDirectory(shard != null ? shard : baseDirectory, changed);
+                continue;
+            }
+            Path file = (shard != null ? shard : baseDirectory).resolve((Path) event.context());
+            if (shard == null && isShard(file)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerShard(file);
+                    // files might have been created before the shard was registered
+                    collectDirectory(file, changed);
+                }
+            } else if (isCertificateFile(file)) {
+                changed.add(file);
+            }
+        }
+        if (!key.reset()) {
+            shardKeys.remove(key);
+        }
+    }
+
+    private void collectDirectory(Path directory, Set<Path> changed) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (directory.equals(baseDirectory) && isShard(file)) {
+                    registerShard(file);
+                    collectDirectory(file, changed);
+                } else if (isCertificateFile(file)) {
+                    changed.add(file);
+                }
+            }
+        } catch (IOException e) {
+            // directory was deleted
+        }
+        // files that were deleted in the meantime
+        for (Path known : lastTags.keySet()) {
+            if (known.startsWith(directory) && lastTags.get(known) != null) {
+                changed.add(known);
+            }
+        }
+    }
+
+    private void registerShard(Path shard) {
+        if (shardKeys.containsValue(shard)) {
+            return;
+        }
+        try {
+            shardKeys.put(shard.register(watchService, KINDS), shard);
+        } catch (NoSuchFileException e) {
+            // shard was deleted again
+        } catch (IOException e) {
+            // cannot watch this shard
+        }
+    }
+
+    private void emit(Set<Path> changed) {
+        for (Path file : changed) {
+            Long tag;
+            try {
+                tag = tagFunction.tagOf(file);
+            } catch (IOException e) {
+                continue;
+            }
+            if (lastTags.containsKey(file) && Objects.equals(lastTags.get(file), tag)) {
+                continue;
+            }
+            lastTags.put(file, tag);
+            CertificateChange change = file.getParent().equals(baseDirectory) ?
+                    CertificateChange.forSpecialName(file.getFileName().toString(), tag) :
+                    CertificateChange.forFingerprint(
+                            file.getParent().getFileName().toString() + file.getFileName().toString(), tag);
+            try {
+                listener.onChange(change);
+            } catch (RuntimeException e) {
+                // a failing listener must not stop the watcher
+            }
+        }
+    }
+
+    private boolean isShard(Path path) {
+        return path.getParent().equals(baseDirectory) &&
+                FileBasedCertificateDirectoryBackend.isHex(path.getFileName().toString(), 2) &&
+                Files.isDirectory(path);
+    }
+
+    private boolean isCertificateFile(Path path) {
+        String name = path.getFileName().toString();
+        if (path.getParent().equals(baseDirectory)) {
+            return SpecialNames.lookupSpecialName(name) != null;
+        }
+        return FileBasedCertificateDirectoryBackend.isHex(name, 38) ||
+                FileBasedCertificateDirectoryBackend.isHex(name, 62);
+    }
+}
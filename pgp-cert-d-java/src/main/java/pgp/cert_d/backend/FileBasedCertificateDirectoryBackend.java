@@ -4,37 +4,56 @@
 
 package pgp.cert_d.backend;
 
+import pgp.cert_d.CertificateChangeListener;
+import pgp.cert_d.CertificateEntry;
+import pgp.cert_d.ChangeSubscription;
+import pgp.cert_d.Fingerprint;
+import pgp.cert_d.InsertResult;
 import pgp.cert_d.PGPCertificateDirectory;
 import pgp.cert_d.SpecialNames;
+import pgp.cert_d.jfr.FlightRecorderEvents;
 import pgp.certificate_store.certificate.Certificate;
 import pgp.certificate_store.certificate.Key;
 import pgp.certificate_store.certificate.KeyMaterial;
 import pgp.certificate_store.certificate.KeyMaterialMerger;
 import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.certificate.LazyCertificate;
 import pgp.certificate_store.exception.BadDataException;
 import pgp.certificate_store.exception.BadNameException;
 import pgp.certificate_store.exception.NotAStoreException;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
 import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of {@link PGPCertificateDirectory.Backend} which stores certificates in a directory structure.
@@ -43,18 +62,27 @@ import java.util.regex.Pattern;
  */
 public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
 
-    private abstract static class Lazy<E> {
-        abstract E get() throws BadDataException;
-    }
-
     /**
      * Locking mechanism which uses a lock file to synchronize write-access to the store.
+     * The lock file and its channel are opened once and kept open, so that locking does not create, open and delete
+     * the lock file each time.
+     * Threads of this process first queue up in arrival order on a fair {@link Semaphore}, so that only a single
+     * thread at a time contends for the {@link FileLock} with other processes.
+     * Waiting on the semaphore does not pin the carrier thread when running on virtual threads.
      */
     private static class FileLockingMechanism implements PGPCertificateDirectory.LockingMechanism {
 
+        private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+        private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
         private final File lockFile;
-        private RandomAccessFile randomAccessFile;
+        // fair, so that writers of this process acquire the lock in arrival order
+        private final Semaphore writers = new Semaphore(1, true);
+        // the following fields are only accessed by the thread holding a permit of the semaphore
+        private FileChannel channel;
         private FileLock fileLock;
+        private Object holdEvent;
+        private volatile boolean locked;
 
         FileLockingMechanism(File lockFile) {
             this.lockFile = lockFile;
@@ -65,87 +93,283 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
         }
 
         @Override
-        public synchronized void lockDirectory() throws IOException, InterruptedException {
-            if (randomAccessFile != null) {
-                // we own the lock already. Let's wait...
-                this.wait();
+        public void lockDirectory() throws IOException, InterruptedException {
+            Object waitEvent = FlightRecorderEvents.beginLockWait();
+            writers.acquire();
+            try {
+                acquireFileLock(Long.MAX_VALUE);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                writers.release();
+                throw e;
             }
+            FlightRecorderEvents.commitLockWait(waitEvent, lockFile.getPath());
+            onLocked();
+        }
 
+        @Override
+        public boolean lockDirectory(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+            Object waitEvent = FlightRecorderEvents.beginLockWait();
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!writers.tryAcquire(timeout, unit)) {
+                return false;
+            }
+            boolean acquired = false;
             try {
-                randomAccessFile = new RandomAccessFile(lockFile, "rw");
-            } catch (FileNotFoundException e) {
-                lockFile.createNewFile();
-                randomAccessFile = new RandomAccessFile(lockFile, "rw");
+                acquired = acquireFileLock(deadline);
+            } finally {
+                if (!acquired) {
+                    writers.release();
+                }
             }
-
-            fileLock = randomAccessFile.getChannel().lock();
+            if (!acquired) {
+                return false;
+            }
+            FlightRecorderEvents.commitLockWait(waitEvent, lockFile.getPath());
+            onLocked();
+            return true;
         }
 
         @Override
-        public synchronized boolean tryLockDirectory() throws IOException {
-            if (randomAccessFile != null) {
+        public boolean tryLockDirectory() throws IOException {
+            if (!writers.tryAcquire()) {
                 // We already locked the directory for another write operation.
-                // We fail, since we have not yet released the lock from the other operation.
                 return false;
             }
-
+            boolean acquired = false;
             try {
-                randomAccessFile = new RandomAccessFile(lockFile, "rw");
-            } catch (FileNotFoundException e) {
-                lockFile.createNewFile();
-                randomAccessFile = new RandomAccessFile(lockFile, "rw");
+                acquired = tryAcquireFileLock();
+            } finally {
+                if (!acquired) {
+                    writers.release();
+                }
             }
+            if (!acquired) {
+                return false;
+            }
+            onLocked();
+            return true;
+        }
 
-            try {
-                fileLock = randomAccessFile.getChannel().tryLock();
-                if (fileLock == null) {
-                    // try-lock failed, file is locked by another process.
-                    randomAccessFile.close();
-                    randomAccessFile = null;
+        /**
+         * Acquire the {@link FileLock} on the lock file.
+         * The caller MUST hold the permit of the semaphore.
+         *
+         * @param deadline {@link System#nanoTime()} until which to wait, or {@link Long#MAX_VALUE} to wait forever
+         * @return true if the lock was acquired, false if the deadline passed
+         *
+         * @throws IOException in case of an IO error
+         * @throws InterruptedException if the thread gets interrupted
+         */
+        private boolean acquireFileLock(long deadline) throws IOException, InterruptedException {
+            long backoff = MIN_BACKOFF_NANOS;
+            while (true) {
+                if (deadline == Long.MAX_VALUE) {
+                    try {
+                        fileLock = openChannel().lock();
+                        if (isCurrentLockFile()) {
+                            return true;
+                        }
+                    } catch (ClosedByInterruptException | FileLockInterruptionException e) {
+                        // an interrupted channel is closed
+                        channel = null;
+                        Thread.interrupted();
+                        throw new InterruptedException("Interrupted while waiting for lock file " + lockFile);
+                    } catch (OverlappingFileLockException e) {
+                        // another instance in this process holds the lock, fall back to polling
+                    }
+                } else if (tryAcquireFileLock()) {
+                    return true;
+                }
+
+                long remaining = deadline == Long.MAX_VALUE ? backoff : deadline - System.nanoTime();
+                if (remaining <= 0) {
                     return false;
                 }
+                TimeUnit.NANOSECONDS.sleep(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            }
+        }
+
+        private boolean tryAcquireFileLock() throws IOException {
+            try {
+                fileLock = openChannel().tryLock();
             } catch (OverlappingFileLockException e) {
-                // Some other object is holding the lock.
-                randomAccessFile.close();
-                randomAccessFile = null;
+                // Some other instance in this process is holding the lock.
                 return false;
             }
-            return true;
+            // null if the lock is held by another process
+            return fileLock != null && isCurrentLockFile();
+        }
+
+        /**
+         * Check, whether the lock file was deleted (e.g. by an older implementation releasing the lock) after we
+         * opened it, in which case locking our channel would not exclude anyone.
+         * If so, the lock is released and the channel is closed, so that the next attempt opens the new file.
+         *
+         * @return true if the locked file is still the lock file of the store
+         *
+         * @throws IOException in case of an IO error
+         */
+        private boolean isCurrentLockFile() throws IOException {
+            if (lockFile.exists()) {
+                return true;
+            }
+            fileLock.release();
+            fileLock = null;
+            channel.close();
+            channel = null;
+            return false;
+        }
+
+        private FileChannel openChannel() throws IOException {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+
+        private void onLocked() {
+            locked = true;
+            holdEvent = FlightRecorderEvents.beginLockHold();
         }
 
         @Override
         public boolean isLocked() {
-            return randomAccessFile != null;
+            return locked;
         }
 
         @Override
-        public synchronized void releaseDirectory() throws IOException {
-            // unlock file
-            if (fileLock != null) {
-                fileLock.release();
-                fileLock = null;
-            }
-            // close file
-            if (randomAccessFile != null) {
-                randomAccessFile.close();
-                randomAccessFile = null;
+        public void releaseDirectory() throws IOException {
+            if (!locked) {
+                return;
             }
-            // delete file
-            if (lockFile.exists()) {
-                lockFile.delete();
+            locked = false;
+            try {
+                // the lock file is kept, deleting it would race with other processes opening it
+                if (fileLock != null && fileLock.isValid()) {
+                    fileLock.release();
+                }
+            } finally {
+                fileLock = null;
+                FlightRecorderEvents.commitLockHold(holdEvent, lockFile.getPath());
+                holdEvent = null;
+                writers.release();
             }
-            // notify waiters
-            this.notify();
         }
     }
 
+    /**
+     * Strategy used to write certificate files.
+     */
+    public enum WriteMode {
+        /**
+         * Truncate the certificate file and overwrite it in place.
+         * Concurrent readers might observe a partially written certificate.
+         */
+        IN_PLACE,
+
+        /**
+         * Write the certificate to a temporary file in the same directory and atomically rename it over the
+         * certificate file.
+         * Concurrent readers either observe the old or the new certificate, but never a partially written one.
+         */
+        ATOMIC_RENAME
+    }
+
+    /**
+     * Policy which determines, which data is flushed to the storage device before an insert operation returns.
+     */
+    public enum Durability {
+        /**
+         * Do not explicitly flush any data and leave it up to the operating system.
+         */
+        NONE,
+
+        /**
+         * Flush the contents of the certificate file.
+         */
+        FILE,
+
+        /**
+         * Flush the contents of the certificate file, as well as the directory containing it, so that the
+         * creation or rename of the file is durable as well.
+         * On platforms that do not support flushing directories, this behaves like {@link #FILE}.
+         */
+        FILE_AND_DIRECTORY
+    }
+
+    /**
+     * Strategy used to read certificate files.
+     */
+    public enum ReadMode {
+        /**
+         * Read and parse certificate files immediately.
+         */
+        EAGER,
+
+        /**
+         * Return {@link LazyCertificate LazyCertificates}, whose fingerprint is taken from the file path and whose
+         * tag is taken from the file attributes.
+         * The certificate file is only read once the encoding is accessed and only parsed once the subkey-ids are
+         * accessed.
+         * Errors reading or parsing the file are thrown as {@link UncheckedIOException} at that point.
+         */
+        LAZY
+    }
+
+    static final long WATCH_COALESCE_MILLIS = 50;
+
     private final File baseDirectory;
     private final PGPCertificateDirectory.LockingMechanism lock;
     private final FilenameResolver resolver;
     private final KeyMaterialReaderBackend reader;
+    private final WriteMode writeMode;
+    private final Durability durability;
+    private final ReadMode readMode;
 
     public FileBasedCertificateDirectoryBackend(File baseDirectory, KeyMaterialReaderBackend reader) throws NotAStoreException {
+        this(baseDirectory, reader, WriteMode.IN_PLACE, Durability.NONE);
+    }
+
+    /**
+     * Create a file based backend with the given write mode and durability policy.
+     *
+     * @param baseDirectory base directory of the store
+     * @param reader reader to parse key material
+     * @param writeMode strategy used to write certificate files
+     * @param durability policy which determines, which data is flushed before an insert returns
+     *
+     * @throws NotAStoreException if the base directory cannot be used as a store
+     */
+    public FileBasedCertificateDirectoryBackend(File baseDirectory,
+                                                KeyMaterialReaderBackend reader,
+                                                WriteMode writeMode,
+                                                Durability durability)
+            throws NotAStoreException {
+        this(baseDirectory, reader, writeMode, durability, ReadMode.EAGER);
+    }
+
+    /**
+     * Create a file based backend with the given write mode, durability policy and read mode.
+     *
+     * @param baseDirectory base directory of the store
+     * @param reader reader to parse key material
+     * @param writeMode strategy used to write certificate files
+     * @param durability policy which determines, which data is flushed before an insert returns
+     * @param readMode strategy used to read certificate files
+     *
+     * @throws NotAStoreException if the base directory cannot be used as a store
+     */
+    public FileBasedCertificateDirectoryBackend(File baseDirectory,
+                                                KeyMaterialReaderBackend reader,
+                                                WriteMode writeMode,
+                                                Durability durability,
+                                                ReadMode readMode)
+            throws NotAStoreException {
         this.baseDirectory = baseDirectory;
+        this.writeMode = writeMode;
+        this.durability = durability;
+        this.readMode = readMode;
         this.resolver = new FilenameResolver(baseDirectory);
 
         if (!baseDirectory.exists()) {
@@ -158,7 +382,7 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
             }
         }
         this.lock = FileLockingMechanism.defaultDirectoryFileLock(baseDirectory);
-        this.reader = reader;
+        this.reader = FlightRecorderEvents.instrument(reader);
     }
 
     @Override
@@ -168,18 +392,32 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
 
     @Override
     public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        return readByFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+        if (readMode == ReadMode.LAZY) {
+            File certFile = resolver.getCertFileByFingerprint(fingerprint);
+            if (!certFile.exists()) {
+                return null;
+            }
+            return lazyCertificate(certFile.toPath(), fingerprint.toString());
+        }
+        return readByFingerprintEagerly(fingerprint);
+    }
+
+    private Certificate readByFingerprintEagerly(Fingerprint fingerprint)
+            throws IOException, BadDataException {
         File certFile = resolver.getCertFileByFingerprint(fingerprint);
         if (!certFile.exists()) {
             return null;
         }
 
-        long tag = getTagForFingerprint(fingerprint);
+        long tag = getTag(certFile);
 
-        FileInputStream fileIn = new FileInputStream(certFile);
-        BufferedInputStream bufferedIn = new BufferedInputStream(fileIn);
-
-        Certificate certificate = reader.read(bufferedIn, tag).asCertificate();
-        if (!certificate.getFingerprint().equals(fingerprint)) {
+        Certificate certificate = readKeyMaterial(certFile.toPath(), tag).asCertificate();
+        if (!certificate.getFingerprint().equals(fingerprint.toString())) {
             // TODO: Figure out more suitable exception
             throw new BadDataException("Identified certificate fingerprint does not match queried fingerprint:\n" +
                     "found: " + certificate.getFingerprint() + "\n" +
@@ -198,82 +436,272 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
 
         long tag = getTagForSpecialName(specialName);
 
-        FileInputStream fileIn = new FileInputStream(certFile);
-        BufferedInputStream bufferedIn = new BufferedInputStream(fileIn);
-        KeyMaterial keyMaterial = reader.read(bufferedIn, tag);
-
-        return keyMaterial;
+        return readKeyMaterial(certFile.toPath(), tag);
     }
 
     @Override
     public Iterator<Certificate> readItems() {
+        Iterator<Path> certFiles = listCertFiles();
         return new Iterator<Certificate>() {
+            @Override
+            public boolean hasNext() {
+                return certFiles.hasNext();
+            }
 
-            private final List<Lazy<Certificate>> certificateQueue = Collections.synchronizedList(new ArrayList<>());
+            @Override
+            public Certificate next() {
+                return readCertFile(certFiles.next());
+            }
+        };
+    }
 
-            // Constructor... wtf.
-            {
-                File[] subdirectories = baseDirectory.listFiles(new FileFilter() {
-                    @Override
-                    public boolean accept(File file) {
-                        return file.isDirectory() && file.getName().matches("^[a-f0-9]{2}$");
-                    }
-                });
+    /**
+     * Return {@link CertificateEntry CertificateEntries} for all certificates in the store, except for certificates
+     * stored under a special name.
+     * Entries are created from the directory listing and file attributes only, certificate files are not opened.
+     *
+     * @return iterator of entries
+     */
+    @Override
+    public Iterator<CertificateEntry> listEntries() {
+        Iterator<Path> certFiles = listCertFiles();
+        return new Iterator<CertificateEntry>() {
+            @Override
+            public boolean hasNext() {
+                return certFiles.hasNext();
+            }
 
-                if (subdirectories == null) {
-                    subdirectories = new File[0];
+            @Override
+            public CertificateEntry next() {
+                Path certFile = certFiles.next();
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(certFile, BasicFileAttributes.class);
+                    return new CertificateEntry(fingerprintOf(certFile), getTag(attrs), attrs.size());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read attributes of " + certFile, e);
                 }
+            }
+        };
+    }
 
-                for (File subdirectory : subdirectories) {
-                    File[] files = subdirectory.listFiles(new FileFilter() {
-                        @Override
-                        public boolean accept(File file) {
-                            return file.isFile() && file.getName().matches("^[a-f0-9]{38}$");
-                        }
-                    });
-
-                    if (files == null) {
-                        files = new File[0];
-                    }
+    /**
+     * Return an {@link Iterator} of all certificate files in the store.
+     * Shard directories are listed lazily, one at a time.
+     * Each shard directory is listed completely and closed before its files are returned, so that no directory
+     * handle is left open if the caller stops iterating early.
+     *
+     * @return iterator of certificate files
+     */
+    private Iterator<Path> listCertFiles() {
+        return new Iterator<Path>() {
 
-                    for (File certFile : files) {
-                        certificateQueue.add(new Lazy<Certificate>() {
-                            @Override
-                            Certificate get() throws BadDataException {
-                                try {
-                                    long tag = getTag(certFile);
-                                    Certificate certificate = reader.read(new FileInputStream(certFile), tag).asCertificate();
-                                    if (!(subdirectory.getName() + certFile.getName()).equals(certificate.getFingerprint())) {
-                                        throw new BadDataException("Certificate fingerprint does not match file location+name.\n" +
-                                                "Fingerprint: " + certificate.getFingerprint() + "\n" +
-                                                "Location+name: " + subdirectory.getName() + certFile.getName());
-                                    }
-                                    return certificate;
-                                } catch (IOException e) {
-                                    throw new AssertionError("File got deleted.");
-                                }
-                            }
-                        });
-                    }
-                }
-            }
+            private final Iterator<Path> shards = listShards().iterator();
+            private Iterator<Path> certFiles = Collections.emptyIterator();
 
             @Override
             public boolean hasNext() {
-                return !certificateQueue.isEmpty();
+                while (!certFiles.hasNext()) {
+                    if (!shards.hasNext()) {
+                        return false;
+                    }
+                    certFiles = listCertFiles(shards.next()).iterator();
+                }
+                return true;
             }
 
             @Override
-            public Certificate next() {
-                try {
-                    return certificateQueue.remove(0).get();
-                } catch (BadDataException e) {
-                    throw new AssertionError("Could not retrieve item: " + e.getMessage());
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
+                return certFiles.next();
             }
         };
     }
 
+    /**
+     * Return all certificate files in the given shard directory.
+     *
+     * @param shard shard directory
+     * @return certificate files
+     */
+    private static List<Path> listCertFiles(Path shard) {
+        List<Path> certFiles = new ArrayList<>();
+        try (DirectoryStream<Path> shardStream = Files.newDirectoryStream(shard, CERT_FILE_FILTER)) {
+            for (Path certFile : shardStream) {
+                certFiles.add(certFile);
+            }
+        } catch (NoSuchFileException e) {
+            // Shard was deleted, so it is empty
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list shard directory", e);
+        }
+        return certFiles;
+    }
+
+    /**
+     * Return a {@link Stream} of all {@link Certificate Certificates} in the store, except for certificates stored
+     * under a special name.
+     * Certificate files are listed and parsed lazily, shard by shard.
+     * If the stream is turned into a {@link Stream#parallel() parallel} stream, the shards are processed concurrently
+     * on the {@link java.util.concurrent.ForkJoinPool} executing the terminal operation.
+     *
+     * @return stream of certificates
+     */
+    @Override
+    public Stream<Certificate> readItemsStream() {
+        return listShards().stream()
+                .flatMap(shard -> {
+                    try {
+                        DirectoryStream<Path> shardStream = Files.newDirectoryStream(shard, CERT_FILE_FILTER);
+                        return StreamSupport.stream(shardStream.spliterator(), false)
+                                .onClose(() -> {
+                                    try {
+                                        shardStream.close();
+                                    } catch (IOException e) {
+                                        throw new UncheckedIOException("Cannot close shard directory", e);
+                                    }
+                                });
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot list shard directory", e);
+                    }
+                })
+                .map(this::readCertFile);
+    }
+
+    /**
+     * Return the <pre>xx</pre> shard directories of the store.
+     * There are at most 256 of them, so listing them eagerly is cheap.
+     *
+     * @return shard directories
+     */
+    private List<Path> listShards() {
+        List<Path> shards = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(baseDirectory.toPath(),
+                path -> isHex(path.getFileName().toString(), 2) && Files.isDirectory(path))) {
+            for (Path shard : stream) {
+                shards.add(shard);
+            }
+        } catch (NoSuchFileException e) {
+            // Store was deleted, so it is empty
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list base directory", e);
+        }
+        return shards;
+    }
+
+    private static String fingerprintOf(Path certFile) {
+        return certFile.getParent().getFileName().toString() + certFile.getFileName().toString();
+    }
+
+    private Certificate readCertFile(Path certFile) {
+        String fingerprint = fingerprintOf(certFile);
+        if (readMode == ReadMode.LAZY) {
+            try {
+                return lazyCertificate(certFile, fingerprint);
+            } catch (IOException e) {
+                throw new AssertionError("File got deleted.");
+            }
+        }
+        try {
+            long tag = getTag(certFile.toFile());
+            Certificate certificate = readKeyMaterial(certFile, tag).asCertificate();
+            if (!fingerprint.equals(certificate.getFingerprint())) {
+                throw new BadDataException("Certificate fingerprint does not match file location+name.\n" +
+                        "Fingerprint: " + certificate.getFingerprint() + "\n" +
+                        "Location+name: " + fingerprint);
+            }
+            return certificate;
+        } catch (BadDataException e) {
+            throw new AssertionError("Could not retrieve item: " + e.getMessage());
+        } catch (IOException e) {
+            throw new AssertionError("File got deleted.");
+        }
+    }
+
+    /**
+     * Read the key material stored in the given file.
+     * The file is read with a single bulk read into an array sized from the file length, which is then handed to
+     * the {@link KeyMaterialReaderBackend} without further copying.
+     *
+     * @param file file
+     * @param tag tag of the file
+     * @return key material
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the file does not contain valid key material
+     */
+    private KeyMaterial readKeyMaterial(Path file, Long tag) throws IOException, BadDataException {
+        byte[] bytes = readFile(file);
+        return reader.read(bytes, 0, bytes.length, tag);
+    }
+
+    /**
+     * Return a {@link LazyCertificate} for the given certificate file, whose tag and size are determined
+     * immediately, while the file is only read on demand.
+     *
+     * @param certFile certificate file
+     * @param fingerprint fingerprint derived from the file location
+     * @return lazy certificate
+     *
+     * @throws IOException if the file attributes cannot be read
+     */
+    private LazyCertificate lazyCertificate(Path certFile, String fingerprint) throws IOException {
+        BasicFileAttributes attrs = readAttributes(certFile.toFile());
+        return new LazyCertificate(fingerprint, getTag(attrs), attrs.size(), () -> readFile(certFile), reader);
+    }
+
+    /**
+     * Read the contents of the given file with a single bulk read into an array sized from the file length.
+     *
+     * @param file file
+     * @return file contents
+     *
+     * @throws IOException in case of an IO error
+     */
+    private static byte[] readFile(Path file) throws IOException {
+        Object event = FlightRecorderEvents.beginFileRead();
+        byte[] bytes;
+        int length = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " is too large.");
+            }
+            bytes = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int read;
+            // the file might be truncated concurrently by an in-place write
+            while (buffer.hasRemaining() && (read = channel.read(buffer)) != -1) {
+                length += read;
+            }
+        }
+        FlightRecorderEvents.commitFileRead(event, file, length);
+        return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Filter accepting names of certificate files inside a shard directory.
+     * Those are the remaining 38 (v4) or 62 (v6) lowercase hex characters of the fingerprint.
+     */
+    private static final DirectoryStream.Filter<Path> CERT_FILE_FILTER = path -> {
+        String name = path.getFileName().toString();
+        return isHex(name, 38) || isHex(name, 62);
+    };
+
+    static boolean isHex(String name, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge) throws BadDataException, IOException {
         KeyMaterial newCertificate = reader.read(data, null);
@@ -301,22 +729,144 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
 
     @Override
     public Certificate doInsert(InputStream data, KeyMaterialMerger merge) throws IOException, BadDataException {
+        return doInsertIfChanged(data, merge).getCertificate();
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        KeyMaterial newCertificate = reader.read(data, null);
+        Fingerprint fingerprint = parseFingerprint(newCertificate);
+        File certFile = resolver.getCertFileByFingerprint(fingerprint);
+        Certificate existingCertificate = readByFingerprintEagerly(fingerprint);
+
+        if (existingCertificate != null) {
+            newCertificate = merge.merge(newCertificate, existingCertificate);
+            if (KeyMaterialEncodings.equal(newCertificate, existingCertificate)) {
+                return InsertResult.unchanged(existingCertificate);
+            }
+        }
+
+        long tag = writeToFile(newCertificate.getInputStream(), certFile);
+        return InsertResult.changed(new Certificate(newCertificate.asCertificate(), tag));
+    }
+
+    /**
+     * Prepare an optimistic insert.
+     * The new certificate is parsed and merged with the existing certificate without holding the lock.
+     * The merged certificate is written to a temporary file, so that committing the insert only compares the tag
+     * and renames the file.
+     * If the merged certificate has the same encoding as the existing certificate, nothing is staged and committing
+     * only compares the tag.
+     *
+     * Optimistic inserts are only supported in {@link WriteMode#ATOMIC_RENAME} mode.
+     * The tag is derived from the modification time and file key of the certificate file.
+     * An in-place write keeps the file key, so two in-place writes within the timestamp granularity of the file
+     * system may leave the tag unchanged, and a concurrent write would be overwritten on commit.
+     * In {@link WriteMode#IN_PLACE} mode, this method therefore returns null without reading the data, so that the
+     * certificate is inserted while holding the lock.
+     *
+     * @param data input stream containing the new certificate
+     * @param merge callback for merging with an existing certificate
+     * @return prepared insert, or null in {@link WriteMode#IN_PLACE} mode
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if the data stream or existing certificate contains bad data
+     */
+    @Override
+    public PGPCertificateDirectory.PreparedInsert prepareInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        if (writeMode != WriteMode.ATOMIC_RENAME) {
+            return null;
+        }
         KeyMaterial newCertificate = reader.read(data, null);
+        Fingerprint fingerprint = parseFingerprint(newCertificate);
+        File certFile = resolver.getCertFileByFingerprint(fingerprint);
         Certificate existingCertificate;
-        File certFile;
         try {
-            existingCertificate = readByFingerprint(newCertificate.getFingerprint());
-            certFile = resolver.getCertFileByFingerprint(newCertificate.getFingerprint());
-        } catch (BadNameException e) {
-            throw new BadDataException("Malformed key fingerprint: " + newCertificate.getFingerprint());
+            // reads the tag before the contents, so that a concurrent write is detected on commit
+            existingCertificate = readByFingerprintEagerly(fingerprint);
+        } catch (NoSuchElementException e) {
+            // deleted concurrently, commit only succeeds if the file is still absent
+            existingCertificate = null;
         }
 
         if (existingCertificate != null) {
             newCertificate = merge.merge(newCertificate, existingCertificate);
+            if (KeyMaterialEncodings.equal(newCertificate, existingCertificate)) {
+                return new PreparedFileInsert(null, certFile, existingCertificate);
+            }
         }
 
-        long tag = writeToFile(newCertificate.getInputStream(), certFile);
-        return new Certificate(newCertificate.asCertificate(), tag);
+        PreparedFileInsert prepared = new PreparedFileInsert(newCertificate.asCertificate(), certFile,
+                existingCertificate);
+        prepared.stage();
+        return prepared;
+    }
+
+    /**
+     * Insert prepared by {@link #prepareInsert(InputStream, KeyMaterialMerger)}.
+     */
+    private final class PreparedFileInsert implements PGPCertificateDirectory.PreparedInsert {
+
+        // merged certificate, null if merging did not change the existing certificate
+        private final Certificate certificate;
+        private final File certFile;
+        // certificate at preparation time, null if it did not exist
+        private final Certificate existingCertificate;
+        private Path tempFile;
+
+        private PreparedFileInsert(Certificate certificate, File certFile, Certificate existingCertificate) {
+            this.certificate = certificate;
+            this.certFile = certFile;
+            this.existingCertificate = existingCertificate;
+        }
+
+        private void stage() throws IOException {
+            Object event = FlightRecorderEvents.beginFileWrite();
+            certFile.getParentFile().mkdirs();
+            Path staged = tempFileFor(certFile.toPath());
+            try {
+                long written = writeTempFile(certificate.getInputStream(), staged);
+                tempFile = staged;
+                FlightRecorderEvents.commitFileWrite(event, certFile.toPath(), written);
+            } catch (IOException e) {
+                Files.deleteIfExists(staged);
+                throw e;
+            }
+        }
+
+        @Override
+        public InsertResult commit() throws IOException {
+            Long expectedTag = existingCertificate != null ? existingCertificate.getTag() : null;
+            Long currentTag = certFile.exists() ? getTag(certFile) : null;
+            if (!Objects.equals(expectedTag, currentTag)) {
+                return null;
+            }
+            if (certificate == null) {
+                return InsertResult.unchanged(existingCertificate);
+            }
+
+            Files.move(tempFile, certFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            tempFile = null;
+            if (durability == Durability.FILE_AND_DIRECTORY) {
+                syncDirectory(certFile.getParentFile().toPath());
+            }
+            return InsertResult.changed(new Certificate(certificate, getTag(certFile)));
+        }
+
+        @Override
+        public void close() {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    // hidden temporary files are ignored by readers
+                }
+                tempFile = null;
+            }
+        }
     }
 
     @Override
@@ -339,12 +889,54 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
         return new Certificate(newCertificate.asCertificate(), tag);
     }
 
+    /**
+     * Subscribe to changes of the store.
+     * The base directory and the shard directories are watched using a {@link java.nio.file.WatchService}, so
+     * changes made by other processes are reported as well.
+     * Events are coalesced for {@value #WATCH_COALESCE_MILLIS} milliseconds, so that multiple writes to the same
+     * certificate file in that window are reported as a single change.
+     *
+     * @param listener listener
+     * @return subscription
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    @Override
+    public ChangeSubscription subscribe(CertificateChangeListener listener) throws IOException {
+        return new DirectoryWatcher(baseDirectory.toPath(), file -> {
+            try {
+                return getTag(Files.readAttributes(file, BasicFileAttributes.class));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }, listener, WATCH_COALESCE_MILLIS);
+    }
+
+    @Override
+    public boolean supportsChangeNotifications() {
+        return true;
+    }
+
     @Override
     public Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException {
         File file = resolver.getCertFileByFingerprint(fingerprint);
         return getTag(file);
     }
 
+    @Override
+    public Long getTagForFingerprint(Fingerprint fingerprint) throws IOException {
+        File file = resolver.getCertFileByFingerprint(fingerprint);
+        return getTag(file);
+    }
+
+    private static Fingerprint parseFingerprint(KeyMaterial keyMaterial) throws BadDataException {
+        try {
+            return Fingerprint.fromHex(keyMaterial.getFingerprint());
+        } catch (BadNameException e) {
+            throw new BadDataException("Malformed key fingerprint: " + keyMaterial.getFingerprint());
+        }
+    }
+
     @Override
     public Long getTagForSpecialName(String specialName) throws BadNameException, IOException {
         File file = resolver.getCertFileBySpecialName(specialName);
@@ -352,12 +944,17 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
     }
 
     private Long getTag(File file) throws IOException {
+        return getTag(readAttributes(file));
+    }
+
+    private static BasicFileAttributes readAttributes(File file) throws IOException {
         if (!file.exists()) {
             throw new NoSuchElementException("File '" + file.getAbsolutePath() + "' does not exist.");
         }
-        Path path = file.toPath();
-        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    }
 
+    private static Long getTag(BasicFileAttributes attrs) {
         // On UNIX file systems, for example, fileKey() will return the device ID and inode
         int fileId = attrs.fileKey().hashCode();
         long lastMod = attrs.lastModifiedTime().toMillis();
@@ -367,7 +964,24 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
 
     private long writeToFile(InputStream inputStream, File certFile)
             throws IOException {
+        Object event = FlightRecorderEvents.beginFileWrite();
         certFile.getParentFile().mkdirs();
+        long written;
+        if (writeMode == WriteMode.ATOMIC_RENAME) {
+            written = writeToFileAtomically(inputStream, certFile.toPath());
+        } else {
+            written = writeToFileInPlace(inputStream, certFile);
+        }
+
+        if (durability == Durability.FILE_AND_DIRECTORY) {
+            syncDirectory(certFile.getParentFile().toPath());
+        }
+        FlightRecorderEvents.commitFileWrite(event, certFile.toPath(), written);
+        return getTag(certFile);
+    }
+
+    private long writeToFileInPlace(InputStream inputStream, File certFile)
+            throws IOException {
         if (!certFile.exists() && !certFile.createNewFile()) {
             throw new IOException("Could not create cert file " + certFile.getAbsolutePath());
         }
@@ -375,14 +989,67 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
         FileOutputStream fileOut = new FileOutputStream(certFile);
 
         byte[] buffer = new byte[4096];
+        long written = 0;
         int read;
         while ((read = inputStream.read(buffer)) != -1) {
             fileOut.write(buffer, 0, read);
+            written += read;
         }
 
         inputStream.close();
+        if (durability != Durability.NONE) {
+            fileOut.getFD().sync();
+        }
         fileOut.close();
-        return getTag(certFile);
+        return written;
+    }
+
+    private long writeToFileAtomically(InputStream inputStream, Path certFile)
+            throws IOException {
+        Path tempFile = tempFileFor(certFile);
+        try {
+            long written = writeTempFile(inputStream, tempFile);
+            Files.move(tempFile, certFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return written;
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private static Path tempFileFor(Path certFile) {
+        // Hidden file names do not match the certificate file name pattern, so readers ignore temporary files
+        return certFile.resolveSibling("." + certFile.getFileName() + "." +
+                Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    }
+
+    private long writeTempFile(InputStream inputStream, Path tempFile)
+            throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream fileOut = Channels.newOutputStream(channel);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                fileOut.write(buffer, 0, read);
+                written += read;
+            }
+            if (durability != Durability.NONE) {
+                channel.force(true);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return written;
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (e.g. Windows) do not allow opening directories, ignore
+        }
     }
 
     /**
@@ -391,8 +1058,6 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
     public static class FilenameResolver {
 
         private final File baseDirectory;
-        // matches v4 and v5 fingerprints (v4 = 40 hex chars, v5 = 64 hex chars)
-        private final Pattern openPgpFingerprint = Pattern.compile("^[a-f0-9]{40}([a-f0-9]{24})?$");
 
         public FilenameResolver(File baseDirectory) {
             this.baseDirectory = baseDirectory;
@@ -412,7 +1077,7 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
          * @throws BadNameException if the given fingerprint string is not a fingerprint
          */
         public File getCertFileByFingerprint(String fingerprint) throws BadNameException {
-            if (!isFingerprint(fingerprint)) {
+            if (!Fingerprint.isValid(fingerprint)) {
                 throw new BadNameException("Malformed query fingerprint '" + fingerprint + "'");
             }
 
@@ -422,6 +1087,16 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
             return file;
         }
 
+        /**
+         * Calculate the file location for the certificate addressed by the given fingerprint.
+         *
+         * @param fingerprint fingerprint
+         * @return absolute certificate file location
+         */
+        public File getCertFileByFingerprint(Fingerprint fingerprint) {
+            return new File(new File(getBaseDirectory(), fingerprint.getShardName()), fingerprint.getFileName());
+        }
+
         /**
          * Calculate the file location for the certification addressed using the given special name.
          * For known special names, see {@link SpecialNames}.
@@ -440,10 +1115,6 @@ public class FileBasedCertificateDirectoryBackend implements PGPCertificateDirec
             return new File(getBaseDirectory(), specialName);
         }
 
-        private boolean isFingerprint(String fingerprint) {
-            return openPgpFingerprint.matcher(fingerprint).matches();
-        }
-
         private boolean isSpecialName(String specialName) {
             return SpecialNames.lookupSpecialName(specialName) != null;
         }
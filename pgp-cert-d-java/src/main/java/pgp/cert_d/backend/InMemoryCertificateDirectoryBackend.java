@@ -4,6 +4,7 @@
 
 package pgp.cert_d.backend;
 
+import pgp.cert_d.InsertResult;
 import pgp.cert_d.PGPCertificateDirectory;
 import pgp.cert_d.SpecialNames;
 import pgp.certificate_store.certificate.Certificate;
@@ -19,44 +20,91 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the {@link PGPCertificateDirectory.Backend} which stores key material in-memory.
- * It uses object locking with {@link #wait()} and {@link #notify()} to synchronize write-access.
+ * It uses a {@link ReentrantLock} and a {@link Condition} to synchronize write-access, so that threads waiting for
+ * the lock do not pin the carrier thread when running on virtual threads.
  */
 public class InMemoryCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
 
     protected static class ObjectLockingMechanism implements PGPCertificateDirectory.LockingMechanism {
 
+        private final ReentrantLock monitor = new ReentrantLock();
+        private final Condition released = monitor.newCondition();
         private boolean locked = false;
 
         @Override
-        public synchronized void lockDirectory() throws InterruptedException {
-            if (isLocked()) {
-                wait();
+        public void lockDirectory() throws InterruptedException {
+            monitor.lockInterruptibly();
+            try {
+                while (locked) {
+                    released.await();
+                }
+                locked = true;
+            } finally {
+                monitor.unlock();
             }
-            locked = true;
         }
 
         @Override
-        public synchronized boolean tryLockDirectory() {
-            if (isLocked()) {
+        public boolean lockDirectory(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            if (!monitor.tryLock(remaining, TimeUnit.NANOSECONDS)) {
                 return false;
             }
-            locked = true;
-            return true;
+            try {
+                while (locked) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                locked = true;
+                return true;
+            } finally {
+                monitor.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLockDirectory() {
+            monitor.lock();
+            try {
+                if (locked) {
+                    return false;
+                }
+                locked = true;
+                return true;
+            } finally {
+                monitor.unlock();
+            }
         }
 
         @Override
-        public synchronized boolean isLocked() {
-            return locked;
+        public boolean isLocked() {
+            monitor.lock();
+            try {
+                return locked;
+            } finally {
+                monitor.unlock();
+            }
         }
 
         @Override
-        public synchronized void releaseDirectory() {
-            locked = false;
-            notify();
+        public void releaseDirectory() {
+            monitor.lock();
+            try {
+                locked = false;
+                released.signal();
+            } finally {
+                monitor.unlock();
+            }
         }
     }
 
@@ -95,6 +143,11 @@ public class InMemoryCertificateDirectoryBackend implements PGPCertificateDirect
         return certificateFingerprintMap.values().iterator();
     }
 
+    @Override
+    public Stream<Certificate> readItemsStream() {
+        return certificateFingerprintMap.values().stream();
+    }
+
     @Override
     public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
             throws BadDataException, IOException {
@@ -120,12 +173,21 @@ public class InMemoryCertificateDirectoryBackend implements PGPCertificateDirect
     @Override
     public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
             throws IOException, BadDataException {
+        return doInsertIfChanged(data, merge).getCertificate();
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
         KeyMaterial update = reader.read(data, null);
         Certificate existing = readByFingerprint(update.getFingerprint());
         Certificate merged = merge.merge(update, existing).asCertificate();
+        if (existing != null && KeyMaterialEncodings.equal(merged, existing)) {
+            return InsertResult.unchanged(existing);
+        }
         merged = new Certificate(merged, newTag());
         certificateFingerprintMap.put(update.getFingerprint(), merged);
-        return merged;
+        return InsertResult.changed(merged);
     }
 
     @Override
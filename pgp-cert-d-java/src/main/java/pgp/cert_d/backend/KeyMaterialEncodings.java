@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.certificate_store.certificate.KeyMaterial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Utility to compare the encodings of key material, in order to detect inserts which do not change the store.
+ */
+final class KeyMaterialEncodings {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private KeyMaterialEncodings() {
+
+    }
+
+    /**
+     * Return true, if both key materials have the same binary encoding.
+     *
+     * @param first first key material
+     * @param second second key material
+     * @return true if the encodings are equal
+     *
+     * @throws IOException if an encoding cannot be read
+     */
+    static boolean equal(KeyMaterial first, KeyMaterial second) throws IOException {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null) {
+            return false;
+        }
+        if (!first.getFingerprint().equals(second.getFingerprint())) {
+            return false;
+        }
+        try (InputStream a = first.getInputStream(); InputStream b = second.getInputStream()) {
+            byte[] bufferA = new byte[BUFFER_SIZE];
+            byte[] bufferB = new byte[BUFFER_SIZE];
+            while (true) {
+                int readA = readFully(a, bufferA);
+                int readB = readFully(b, bufferB);
+                if (readA != readB || !Arrays.equals(bufferA, 0, readA, bufferB, 0, readB)) {
+                    return false;
+                }
+                if (readA < BUFFER_SIZE) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+}
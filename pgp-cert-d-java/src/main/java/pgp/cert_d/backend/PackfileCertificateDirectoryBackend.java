@@ -0,0 +1,938 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.cert_d.CertificateEntry;
+import pgp.cert_d.Fingerprint;
+import pgp.cert_d.InsertResult;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.SpecialNames;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of the {@link PGPCertificateDirectory.Backend} which appends key material to large segment
+ * files instead of storing one file per certificate.
+ * It is intended for mirrors and keyservers holding millions of certificates, which do not need to share the
+ * store with other cert-d implementations.
+ * The resulting directory layout is NOT compatible with the cert-d specification.
+ *
+ * Every insert appends a record to the active segment. Once a segment reaches {@link #getSegmentSize()} bytes,
+ * it is sealed, never written again and memory-mapped for reads.
+ * The index mapping fingerprints to records is kept in memory and rebuilt by scanning the record headers of all
+ * segments when the store is opened. A partially written record at the end of the newest segment is dropped.
+ * Sealed segments whose share of superseded records exceeds {@link #getGarbageRatio()} are compacted by a
+ * background thread, which copies their live records into the active segment and deletes the segment file.
+ *
+ * Like the {@link ConcurrentInMemoryCertificateDirectoryBackend}, reads are lock-free and inserts of different
+ * certificates can happen in parallel, except for the short append to the active segment.
+ * Appends are not synced to disk on every insert, so inserts shortly before a system crash may be lost.
+ * The store MUST only be opened by a single instance at a time, which is enforced by a lock file.
+ */
+public class PackfileCertificateDirectoryBackend implements PGPCertificateDirectory.Backend {
+
+    /**
+     * Default size in bytes after which a segment is sealed.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Default share of superseded bytes after which a sealed segment is compacted.
+     */
+    public static final double DEFAULT_GARBAGE_RATIO = 0.5;
+
+    /**
+     * Name of the lock file, which prevents the store from being opened by multiple instances.
+     */
+    public static final String LOCK_FILE_NAME = "packfile.lock";
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    // "PGPK"
+    private static final int MAGIC = 0x5047504b;
+    private static final int VERSION = 1;
+    // magic, version
+    private static final int SEGMENT_HEADER_SIZE = 4 + 4;
+    // record length, kind, name length, tag, crc32
+    private static final int RECORD_OVERHEAD = 4 + 1 + 1 + 8 + 4;
+    private static final byte KIND_CERTIFICATE = 1;
+    private static final byte KIND_SPECIAL_NAME = 2;
+
+    /**
+     * Number of write lock stripes. Certificates are assigned to stripes by the hash code of their fingerprint.
+     */
+    private static final int STRIPES = 256;
+
+    /**
+     * Number of bytes of live records which are copied per acquisition of the append lock during compaction.
+     */
+    private static final int COMPACTION_BATCH_SIZE = 256 * 1024;
+
+    private final Path baseDirectory;
+    private final KeyMaterialReaderBackend reader;
+    private final long segmentSize;
+    private final double garbageRatio;
+
+    private final ConcurrentMap<Fingerprint, Entry> certificates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Entry> specialNames = new ConcurrentHashMap<>();
+    private final PGPCertificateDirectory.LockingMechanism lock = new StampedLockingMechanism();
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Lock specialNameLock = new ReentrantLock();
+
+    // guards appends to the active segment, index updates and segment rolls
+    private final Lock appendLock = new ReentrantLock();
+    // serializes compactions, which only hold the append lock while moving a batch of records
+    private final Lock compactionLock = new ReentrantLock();
+    private final List<Segment> sealedSegments = new ArrayList<>();
+    private final Set<Segment> pendingCompactions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pgp-cert-d-packfile-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private Segment active;
+    private long lastTag;
+    private boolean closed;
+
+    /**
+     * Open or create a packfile store in the given directory using the default segment size and garbage ratio.
+     *
+     * @param baseDirectory directory
+     * @param reader reader for key material
+     *
+     * @throws IOException if the store cannot be opened, or if it is already opened by another instance
+     */
+    public PackfileCertificateDirectoryBackend(File baseDirectory, KeyMaterialReaderBackend reader)
+            throws IOException {
+        this(baseDirectory, reader, DEFAULT_SEGMENT_SIZE, DEFAULT_GARBAGE_RATIO);
+    }
+
+    /**
+     * Open or create a packfile store in the given directory.
+     *
+     * @param baseDirectory directory
+     * @param reader reader for key material
+     * @param segmentSize size in bytes after which a segment is sealed
+     * @param garbageRatio share of superseded bytes after which a sealed segment is compacted
+     *
+     * @throws IOException if the store cannot be opened, or if it is already opened by another instance
+     */
+    public PackfileCertificateDirectoryBackend(File baseDirectory,
+                                               KeyMaterialReaderBackend reader,
+                                               long segmentSize,
+                                               double garbageRatio)
+            throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size MUST be between " + (SEGMENT_HEADER_SIZE + 1) +
+                    " and " + Integer.MAX_VALUE + " bytes.");
+        }
+        if (!(garbageRatio > 0 && garbageRatio <= 1)) {
+            throw new IllegalArgumentException("Garbage ratio MUST be greater than 0 and at most 1.");
+        }
+        this.baseDirectory = baseDirectory.toPath();
+        this.reader = reader;
+        this.segmentSize = segmentSize;
+        this.garbageRatio = garbageRatio;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        Files.createDirectories(this.baseDirectory);
+        lockChannel = FileChannel.open(this.baseDirectory.resolve(LOCK_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            fileLock = tryLock(lockChannel);
+            if (fileLock == null) {
+                throw new IOException("Packfile store " + baseDirectory + " is already opened by another instance.");
+            }
+            open();
+        } catch (IOException | RuntimeException e) {
+            compactor.shutdownNow();
+            closeSegments();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // already locked by this JVM
+            return null;
+        }
+    }
+
+    /**
+     * Return the size in bytes after which a segment is sealed.
+     *
+     * @return segment size
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Return the share of superseded bytes after which a sealed segment is compacted.
+     *
+     * @return garbage ratio
+     */
+    public double getGarbageRatio() {
+        return garbageRatio;
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return lock;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        return readByFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+        Entry entry = certificates.get(fingerprint);
+        if (entry == null) {
+            return null;
+        }
+        return read(entry).asCertificate();
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException, IOException, BadDataException {
+        Entry entry = specialNames.get(checkSpecialName(specialName));
+        if (entry == null) {
+            return null;
+        }
+        return read(entry);
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        // weakly consistent, never throws ConcurrentModificationException
+        Iterator<Entry> entries = certificates.values().iterator();
+        return new Iterator<Certificate>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Certificate next() {
+                try {
+                    return read(entries.next()).asCertificate();
+                } catch (BadDataException e) {
+                    throw new AssertionError("Could not retrieve item: " + e.getMessage());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Iterator<CertificateEntry> listEntries() {
+        Iterator<Map.Entry<Fingerprint, Entry>> entries = certificates.entrySet().iterator();
+        return new Iterator<CertificateEntry>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public CertificateEntry next() {
+                Map.Entry<Fingerprint, Entry> next = entries.next();
+                Entry entry = next.getValue();
+                return new CertificateEntry(next.getKey().toString(), entry.tag, entry.dataLength());
+            }
+        };
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        try {
+            return doInsertKeyMaterialWithSpecialName(SpecialNames.TRUST_ROOT, data, merge);
+        } catch (BadNameException e) {
+            // Does not happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        return doInsertIfChanged(data, merge).getCertificate();
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        // Parse outside the stripe lock
+        KeyMaterial update = reader.read(data, null);
+        Fingerprint fingerprint = parseFingerprint(update);
+        Lock stripe = stripes[(fingerprint.hashCode() & 0x7fffffff) % STRIPES];
+        stripe.lock();
+        try {
+            Entry entry = certificates.get(fingerprint);
+            Certificate existing = entry == null ? null : read(entry).asCertificate();
+            Certificate merged = merge.merge(update, existing).asCertificate();
+            if (existing != null && KeyMaterialEncodings.equal(merged, existing)) {
+                return InsertResult.unchanged(existing);
+            }
+            long tag = append(KIND_CERTIFICATE, fingerprint.getBytes(), encode(merged), fingerprint, certificates);
+            return InsertResult.changed(new Certificate(merged, tag));
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        return doInsertKeyMaterialWithSpecialName(specialName, data, merge).asCertificate();
+    }
+
+    private KeyMaterial doInsertKeyMaterialWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        String name = checkSpecialName(specialName);
+        KeyMaterial update = reader.read(data, null);
+        specialNameLock.lock();
+        try {
+            Entry entry = specialNames.get(name);
+            KeyMaterial existing = entry == null ? null : read(entry);
+            KeyMaterial merged = merge.merge(update, existing);
+            byte[] encoding = encode(merged);
+            long tag = append(KIND_SPECIAL_NAME, name.getBytes(StandardCharsets.UTF_8), encoding, name, specialNames);
+            return reader.read(new ByteArrayInputStream(encoding), tag);
+        } finally {
+            specialNameLock.unlock();
+        }
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) throws BadNameException {
+        return getTagForFingerprint(Fingerprint.fromHex(fingerprint));
+    }
+
+    @Override
+    public Long getTagForFingerprint(Fingerprint fingerprint) {
+        Entry entry = certificates.get(fingerprint);
+        return entry == null ? null : entry.tag;
+    }
+
+    @Override
+    public Long getTagForSpecialName(String specialName) throws BadNameException {
+        Entry entry = specialNames.get(checkSpecialName(specialName));
+        return entry == null ? null : entry.tag;
+    }
+
+    /**
+     * Synchronously compact all sealed segments which contain superseded records, regardless of the
+     * {@link #getGarbageRatio() garbage ratio}.
+     *
+     * @throws IOException in case of an IO error
+     */
+    public void compact() throws IOException {
+        List<Segment> candidates;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            candidates = new ArrayList<>();
+            for (Segment segment : sealedSegments) {
+                if (segment.liveBytes.get() < segment.size - SEGMENT_HEADER_SIZE) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment segment : candidates) {
+            compact(segment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.channel.force(false);
+            }
+            closeSegments();
+        } finally {
+            appendLock.unlock();
+            try {
+                fileLock.release();
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Packfile store is closed.");
+        }
+    }
+
+    private String checkSpecialName(String specialName) throws BadNameException {
+        String name = SpecialNames.lookupSpecialName(specialName);
+        if (name == null) {
+            throw new BadNameException("Invalid special name " + specialName);
+        }
+        return name;
+    }
+
+    private static Fingerprint parseFingerprint(KeyMaterial keyMaterial) throws BadDataException {
+        try {
+            return Fingerprint.fromHex(keyMaterial.getFingerprint());
+        } catch (BadNameException e) {
+            throw new BadDataException("Malformed key fingerprint: " + keyMaterial.getFingerprint());
+        }
+    }
+
+    private static byte[] encode(KeyMaterial keyMaterial) throws IOException {
+        try (InputStream in = keyMaterial.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private KeyMaterial read(Entry entry) throws IOException, BadDataException {
+        byte[] data = entry.segment.read(entry.dataOffset(), entry.dataLength());
+        return reader.read(new ByteArrayInputStream(data), entry.tag);
+    }
+
+    /**
+     * Append a new record to the active segment and point the index entry of the given key to it.
+     *
+     * @return tag of the record
+     */
+    private <K> long append(byte kind, byte[] name, byte[] data, K key, ConcurrentMap<K, Entry> index)
+            throws IOException {
+        int recordLength = RECORD_OVERHEAD + name.length + data.length;
+        if (recordLength < 0 || recordLength > Integer.MAX_VALUE - SEGMENT_HEADER_SIZE) {
+            throw new IOException("Key material too large: " + data.length + " bytes");
+        }
+        appendLock.lock();
+        try {
+            ensureOpen();
+            long tag = Math.max(lastTag + 1, System.currentTimeMillis());
+            ByteBuffer record = ByteBuffer.allocate(recordLength);
+            record.putInt(recordLength).put(kind).put((byte) name.length).put(name).putLong(tag).put(data);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, recordLength - 4);
+            record.putInt((int) crc.getValue());
+            Entry entry = write(record, name.length, tag);
+            lastTag = tag;
+            superseded(index.put(key, entry));
+            return tag;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Write an encoded record to the active segment, sealing the segment first if the record does not fit.
+     * Must be called while holding the append lock.
+     */
+    private Entry write(ByteBuffer record, int nameLength, long tag) throws IOException {
+        int recordLength = record.capacity();
+        if (active.size > SEGMENT_HEADER_SIZE && active.size + recordLength > segmentSize) {
+            roll();
+        }
+        record.flip();
+        long position = active.size;
+        while (record.hasRemaining()) {
+            active.channel.write(record, position + record.position());
+        }
+        Entry entry = new Entry(active, (int) position, recordLength, nameLength, tag);
+        active.size += recordLength;
+        active.liveBytes.addAndGet(recordLength);
+        return entry;
+    }
+
+    /**
+     * Account for a record which is no longer referenced by the index.
+     * Must be called while holding the append lock.
+     */
+    private void superseded(Entry previous) {
+        if (previous == null) {
+            return;
+        }
+        Segment segment = previous.segment;
+        segment.liveBytes.addAndGet(-previous.recordLength);
+        if (segment != active) {
+            scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    private void scheduleCompactionIfNeeded(Segment segment) {
+        long garbage = segment.size - SEGMENT_HEADER_SIZE - segment.liveBytes.get();
+        if (garbage < garbageRatio * (segment.size - SEGMENT_HEADER_SIZE) || !pendingCompactions.add(segment)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                try {
+                    compact(segment);
+                } catch (IOException e) {
+                    // The segment is retried after the next superseded record or on the next start
+                } finally {
+                    pendingCompactions.remove(segment);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closing
+            pendingCompactions.remove(segment);
+        }
+    }
+
+    /**
+     * Copy all live records of a sealed segment into the active segment and delete it.
+     * Copied records keep their tag, so that the compaction is invisible to readers.
+     * Live records are read in batches without holding the append lock, which is only taken to append each batch
+     * and swap the index entries, so that inserts are not blocked for the duration of the whole copy.
+     */
+    private void compact(Segment segment) throws IOException {
+        compactionLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (closed || !sealedSegments.contains(segment)) {
+                    return;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+
+            // sealed segments are immutable, so their records can be read without holding the append lock
+            ByteBuffer view = segment.mapped.duplicate();
+            int offset = SEGMENT_HEADER_SIZE;
+            while (offset < segment.size) {
+                List<LiveRecord<?>> batch = new ArrayList<>();
+                int batchBytes = 0;
+                while (offset < segment.size && batchBytes < COMPACTION_BATCH_SIZE) {
+                    int recordLength = view.getInt(offset);
+                    byte kind = view.get(offset + 4);
+                    int nameLength = view.get(offset + 5) & 0xff;
+                    byte[] name = new byte[nameLength];
+                    view.position(offset + 6);
+                    view.get(name);
+                    LiveRecord<?> record = kind == KIND_CERTIFICATE ?
+                            liveRecord(segment, offset, Fingerprint.fromBytes(name), certificates) :
+                            liveRecord(segment, offset, new String(name, StandardCharsets.UTF_8), specialNames);
+                    if (record != null) {
+                        batch.add(record);
+                        batchBytes += recordLength;
+                    }
+                    offset += recordLength;
+                }
+
+                appendLock.lock();
+                try {
+                    ensureOpen();
+                    for (LiveRecord<?> record : batch) {
+                        move(record);
+                    }
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+
+            appendLock.lock();
+            try {
+                ensureOpen();
+                // the copies MUST be on disk before the originals are deleted
+                active.channel.force(false);
+                sealedSegments.remove(segment);
+                segment.close();
+            } finally {
+                appendLock.unlock();
+            }
+            // may fail on platforms which do not allow deleting mapped files, in which case the superseded
+            // records are ignored and the segment is compacted again on the next start
+            Files.deleteIfExists(segment.file);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Read the record at the given offset, if it is still referenced by the index.
+     *
+     * @return live record or null if the record is superseded
+     */
+    private static <K> LiveRecord<K> liveRecord(Segment segment, int offset, K key, ConcurrentMap<K, Entry> index)
+            throws IOException {
+        Entry current = index.get(key);
+        if (current == null || current.segment != segment || current.offset != offset) {
+            // superseded
+            return null;
+        }
+        return new LiveRecord<>(key, index, current, segment.read(offset, current.recordLength));
+    }
+
+    /**
+     * Append a copy of a live record to the active segment and point the index to it, unless the record was
+     * superseded since it was read.
+     * Must be called while holding the append lock.
+     */
+    private <K> void move(LiveRecord<K> record) throws IOException {
+        if (record.index.get(record.key) != record.entry) {
+            // superseded in the meantime
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record.record);
+        buffer.position(record.record.length);
+        record.index.put(record.key, write(buffer, record.entry.nameLength, record.entry.tag));
+    }
+
+    /**
+     * Seal the active segment and start a new one.
+     * Must be called while holding the append lock.
+     */
+    private void roll() throws IOException {
+        Segment sealed = active;
+        sealed.seal();
+        sealedSegments.add(sealed);
+        active = Segment.create(segmentFile(sealed.id + 1), sealed.id + 1);
+        scheduleCompactionIfNeeded(sealed);
+    }
+
+    private Path segmentFile(int id) {
+        return baseDirectory.resolve(SEGMENT_PREFIX + String.format("%08x", id) + SEGMENT_SUFFIX);
+    }
+
+    private void closeSegments() throws IOException {
+        for (Segment segment : sealedSegments) {
+            segment.close();
+        }
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    /**
+     * Scan all segments and rebuild the index.
+     */
+    private void open() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDirectory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    ids.add(Integer.parseUnsignedInt(id, 16));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected segment file " + file);
+                }
+            }
+        }
+        ids.sort(null);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Path file = segmentFile(ids.get(i));
+            if (i < ids.size() - 1) {
+                Segment segment = Segment.openSealed(file, ids.get(i));
+                sealedSegments.add(segment);
+                scan(segment, segment.mapped.duplicate(), false);
+            } else {
+                active = Segment.openActive(file, ids.get(i));
+                ByteBuffer content = ByteBuffer.allocate((int) Math.min(active.channel.size(), Integer.MAX_VALUE));
+                while (content.hasRemaining()) {
+                    if (active.channel.read(content, content.position()) < 0) {
+                        break;
+                    }
+                }
+                content.flip();
+                active.size = scan(active, content, true);
+                // drop a partially written record
+                active.channel.truncate(active.size);
+            }
+        }
+        if (active == null) {
+            active = Segment.create(segmentFile(0), 0);
+        }
+
+        for (Entry entry : certificates.values()) {
+            entry.segment.liveBytes.addAndGet(entry.recordLength);
+        }
+        for (Entry entry : specialNames.values()) {
+            entry.segment.liveBytes.addAndGet(entry.recordLength);
+        }
+        for (Segment segment : sealedSegments) {
+            scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    /**
+     * Index the records of a segment.
+     * If verify is true, records are checked against their checksum and scanning stops at the first invalid record.
+     * Otherwise, invalid records are reported as an error.
+     *
+     * @return length of the valid part of the segment
+     */
+    private int scan(Segment segment, ByteBuffer content, boolean verify) throws IOException {
+        int limit = content.limit();
+        int offset = SEGMENT_HEADER_SIZE;
+        while (offset < limit) {
+            int recordLength = limit - offset >= 4 ? content.getInt(offset) : -1;
+            int nameLength = limit - offset >= 6 ? content.get(offset + 5) & 0xff : -1;
+            byte kind = limit - offset >= 5 ? content.get(offset + 4) : 0;
+            boolean valid = nameLength >= 0 && recordLength >= RECORD_OVERHEAD + nameLength &&
+                    recordLength <= limit - offset && (kind == KIND_CERTIFICATE || kind == KIND_SPECIAL_NAME);
+            if (valid && verify) {
+                CRC32 crc = new CRC32();
+                ByteBuffer checked = content.duplicate();
+                checked.position(offset).limit(offset + recordLength - 4);
+                crc.update(checked);
+                valid = (int) crc.getValue() == content.getInt(offset + recordLength - 4);
+            }
+            if (!valid) {
+                if (verify) {
+                    return offset;
+                }
+                throw new IOException("Corrupt record at offset " + offset + " of segment " + segment.file);
+            }
+
+            byte[] name = new byte[nameLength];
+            content.position(offset + 6);
+            content.get(name);
+            long tag = content.getLong(offset + 6 + nameLength);
+            Entry entry = new Entry(segment, offset, recordLength, nameLength, tag);
+            lastTag = Math.max(lastTag, tag);
+            if (kind == KIND_CERTIFICATE) {
+                if (nameLength != Fingerprint.V4_LENGTH && nameLength != Fingerprint.V6_LENGTH) {
+                    throw new IOException("Corrupt record at offset " + offset + " of segment " + segment.file);
+                }
+                certificates.merge(Fingerprint.fromBytes(name), entry, Entry::newer);
+            } else {
+                specialNames.merge(new String(name, StandardCharsets.UTF_8), entry, Entry::newer);
+            }
+            offset += recordLength;
+        }
+        return offset;
+    }
+
+    /**
+     * Location of a record inside a segment.
+     */
+    private static final class Entry {
+
+        private final Segment segment;
+        private final int offset;
+        private final int recordLength;
+        private final int nameLength;
+        private final long tag;
+
+        private Entry(Segment segment, int offset, int recordLength, int nameLength, long tag) {
+            this.segment = segment;
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.nameLength = nameLength;
+            this.tag = tag;
+        }
+
+        private int dataOffset() {
+            return offset + 6 + nameLength + 8;
+        }
+
+        private int dataLength() {
+            return recordLength - RECORD_OVERHEAD - nameLength;
+        }
+
+        private static Entry newer(Entry first, Entry second) {
+            // compacted copies of a record have the same tag, in which case either copy will do
+            return second.tag >= first.tag ? second : first;
+        }
+    }
+
+    /**
+     * Live record of a segment which is being compacted, together with the index entry pointing to it.
+     */
+    private static final class LiveRecord<K> {
+
+        private final K key;
+        private final ConcurrentMap<K, Entry> index;
+        private final Entry entry;
+        private final byte[] record;
+
+        private LiveRecord(K key, ConcurrentMap<K, Entry> index, Entry entry, byte[] record) {
+            this.key = key;
+            this.index = index;
+            this.entry = entry;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Segment file. The active segment is read and written through its file channel, while sealed segments are
+     * memory-mapped read-only.
+     */
+    private static final class Segment {
+
+        private final int id;
+        private final Path file;
+        // only modified while holding the append lock, sealed segments no longer change
+        private long size;
+        private final AtomicLong liveBytes = new AtomicLong();
+        private FileChannel channel;
+        private volatile MappedByteBuffer mapped;
+
+        private Segment(int id, Path file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        private static Segment create(Path file, int id) throws IOException {
+            Segment segment = new Segment(id, file);
+            segment.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                segment.channel.write(header, header.position());
+            }
+            segment.size = SEGMENT_HEADER_SIZE;
+            return segment;
+        }
+
+        private static Segment openActive(Path file, int id) throws IOException {
+            Segment segment = new Segment(id, file);
+            segment.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment.checkHeader();
+            return segment;
+        }
+
+        private static Segment openSealed(Path file, int id) throws IOException {
+            Segment segment = new Segment(id, file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                segment.channel = channel;
+                segment.checkHeader();
+                segment.size = channel.size();
+                if (segment.size > Integer.MAX_VALUE) {
+                    throw new IOException("Segment " + file + " is too large.");
+                }
+                segment.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            } finally {
+                segment.channel = null;
+            }
+            return segment;
+        }
+
+        private void checkHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated segment header in " + file);
+                }
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported segment format in " + file);
+            }
+        }
+
+        /**
+         * Force the segment to disk and map it for reading.
+         */
+        private synchronized void seal() throws IOException {
+            channel.force(false);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            channel.close();
+            channel = null;
+        }
+
+        private byte[] read(int offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            MappedByteBuffer view = mapped;
+            if (view == null) {
+                synchronized (this) {
+                    view = mapped;
+                    if (view == null) {
+                        if (channel == null) {
+                            throw new IOException("Packfile store is closed.");
+                        }
+                        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                                throw new EOFException("Truncated record in segment " + file);
+                            }
+                        }
+                        return bytes;
+                    }
+                }
+            }
+            ByteBuffer duplicate = view.duplicate();
+            duplicate.position(offset);
+            duplicate.get(bytes);
+            return bytes;
+        }
+
+        private synchronized void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.backend;
+
+import pgp.cert_d.PGPCertificateDirectory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Locking mechanism based on a {@link StampedLock}.
+ * The exclusive directory lock maps to the write lock, while inserts only acquire the read lock.
+ * Contrary to {@link java.util.concurrent.locks.ReentrantReadWriteLock}, the lock is not reentrant, so that
+ * a thread holding the exclusive lock cannot insert certificates either.
+ * The lock only synchronizes threads of the same process and is used by backends which are not shared with other
+ * processes.
+ */
+public class StampedLockingMechanism implements PGPCertificateDirectory.LockingMechanism {
+
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void lockDirectory() throws InterruptedException {
+        lock.writeLockInterruptibly();
+    }
+
+    @Override
+    public boolean lockDirectory(long timeout, TimeUnit unit) throws InterruptedException {
+        return lock.tryWriteLock(timeout, unit) != 0L;
+    }
+
+    @Override
+    public boolean tryLockDirectory() {
+        return lock.tryWriteLock() != 0L;
+    }
+
+    @Override
+    public boolean isLocked() {
+        return lock.isWriteLocked();
+    }
+
+    @Override
+    public void releaseDirectory() {
+        lock.asWriteLock().unlock();
+    }
+
+    @Override
+    public void lockDirectoryShared() throws InterruptedException {
+        lock.readLockInterruptibly();
+    }
+
+    @Override
+    public boolean tryLockDirectoryShared() {
+        return lock.tryReadLock() != 0L;
+    }
+
+    @Override
+    public void releaseDirectoryShared() {
+        lock.asReadLock().unlock();
+    }
+}
@@ -0,0 +1,238 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jfr;
+
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Emits Java Flight Recorder events for lock waits and holds, certificate file reads and writes, parsing and
+ * subkey lookups, so that stalls of the store can be correlated with GC and I/O activity in a single recording.
+ *
+ * Each operation is instrumented by a pair of {@code begin*} and {@code commit*} calls.
+ * The object returned by {@code begin*} is opaque and must be passed to the matching {@code commit*} method.
+ * If the {@code jdk.jfr} module is not available on the runtime, or if the event type is not enabled in a running
+ * recording, {@code begin*} returns null and the {@code commit*} methods do nothing.
+ *
+ * The events are enabled by default in every recording and belong to the category "PGP Certificate Directory".
+ * Frequent events (file reads, parsing and subkey lookup queries) have a default threshold of 1 ms.
+ */
+public final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private FlightRecorderEvents() {
+
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            // e.g. Android, or a runtime image without the jdk.jfr module
+            return false;
+        }
+    }
+
+    /**
+     * Return true, if the Flight Recorder API is available on this runtime.
+     *
+     * @return true if events can be emitted
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Start measuring the wait for a directory lock.
+     *
+     * @return event or null
+     */
+    public static Object beginLockWait() {
+        return AVAILABLE ? JfrEvents.beginLockWait() : null;
+    }
+
+    /**
+     * Commit the wait for a directory lock, after the lock was acquired.
+     *
+     * @param event event returned by {@link #beginLockWait()}
+     * @param lockFile path of the lock file
+     */
+    public static void commitLockWait(Object event, String lockFile) {
+        if (event != null) {
+            JfrEvents.commitLockWait(event, lockFile);
+        }
+    }
+
+    /**
+     * Start measuring the time a directory lock is held.
+     *
+     * @return event or null
+     */
+    public static Object beginLockHold() {
+        return AVAILABLE ? JfrEvents.beginLockHold() : null;
+    }
+
+    /**
+     * Commit the time a directory lock was held, after the lock was released.
+     *
+     * @param event event returned by {@link #beginLockHold()}
+     * @param lockFile path of the lock file
+     */
+    public static void commitLockHold(Object event, String lockFile) {
+        if (event != null) {
+            JfrEvents.commitLockHold(event, lockFile);
+        }
+    }
+
+    /**
+     * Start measuring a certificate file read.
+     *
+     * @return event or null
+     */
+    public static Object beginFileRead() {
+        return AVAILABLE ? JfrEvents.beginFileRead() : null;
+    }
+
+    /**
+     * Commit a certificate file read.
+     *
+     * @param event event returned by {@link #beginFileRead()}
+     * @param file certificate file
+     * @param bytes number of bytes read
+     */
+    public static void commitFileRead(Object event, Path file, long bytes) {
+        if (event != null) {
+            JfrEvents.commitFileRead(event, file, bytes);
+        }
+    }
+
+    /**
+     * Start measuring a certificate file write.
+     *
+     * @return event or null
+     */
+    public static Object beginFileWrite() {
+        return AVAILABLE ? JfrEvents.beginFileWrite() : null;
+    }
+
+    /**
+     * Commit a certificate file write.
+     *
+     * @param event event returned by {@link #beginFileWrite()}
+     * @param file certificate file
+     * @param bytes number of bytes written
+     */
+    public static void commitFileWrite(Object event, Path file, long bytes) {
+        if (event != null) {
+            JfrEvents.commitFileWrite(event, file, bytes);
+        }
+    }
+
+    /**
+     * Start measuring a subkey lookup query.
+     *
+     * @return event or null
+     */
+    public static Object beginSubkeyLookupQuery() {
+        return AVAILABLE ? JfrEvents.beginSubkeyLookupQuery() : null;
+    }
+
+    /**
+     * Commit a subkey lookup query.
+     *
+     * @param event event returned by {@link #beginSubkeyLookupQuery()}
+     * @param subkeyIds number of queried subkey-ids
+     * @param results number of returned records
+     */
+    public static void commitSubkeyLookupQuery(Object event, int subkeyIds, int results) {
+        if (event != null) {
+            JfrEvents.commitSubkeyLookupQuery(event, subkeyIds, results);
+        }
+    }
+
+    /**
+     * Start measuring storing records in a subkey lookup.
+     *
+     * @return event or null
+     */
+    public static Object beginSubkeyLookupStore() {
+        return AVAILABLE ? JfrEvents.beginSubkeyLookupStore() : null;
+    }
+
+    /**
+     * Commit storing records in a subkey lookup.
+     *
+     * @param event event returned by {@link #beginSubkeyLookupStore()}
+     * @param certificates number of certificates whose subkey-ids were stored
+     * @param inserted number of inserted records
+     */
+    public static void commitSubkeyLookupStore(Object event, int certificates, int inserted) {
+        if (event != null) {
+            JfrEvents.commitSubkeyLookupStore(event, certificates, inserted);
+        }
+    }
+
+    /**
+     * Return a {@link KeyMaterialReaderBackend} which emits an event for each parsed key material.
+     * If the Flight Recorder API is not available, the reader is returned as-is.
+     *
+     * @param reader reader
+     * @return instrumented reader
+     */
+    public static KeyMaterialReaderBackend instrument(KeyMaterialReaderBackend reader) {
+        if (!AVAILABLE || reader instanceof ParseEventReader) {
+            return reader;
+        }
+        return new ParseEventReader(reader);
+    }
+
+    private static final class ParseEventReader implements KeyMaterialReaderBackend {
+
+        private final KeyMaterialReaderBackend delegate;
+
+        private ParseEventReader(KeyMaterialReaderBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+            Object event = JfrEvents.beginParse();
+            KeyMaterial keyMaterial = delegate.read(data, tag);
+            commitParse(event, -1);
+            return keyMaterial;
+        }
+
+        @Override
+        public KeyMaterial read(byte[] data, int offset, int length, Long tag) throws IOException, BadDataException {
+            Object event = JfrEvents.beginParse();
+            KeyMaterial keyMaterial = delegate.read(data, offset, length, tag);
+            commitParse(event, length);
+            return keyMaterial;
+        }
+
+        @Override
+        public KeyMaterial read(ByteBuffer data, Long tag) throws IOException, BadDataException {
+            int length = data.remaining();
+            Object event = JfrEvents.beginParse();
+            KeyMaterial keyMaterial = delegate.read(data, tag);
+            commitParse(event, length);
+            return keyMaterial;
+        }
+
+        private static void commitParse(Object event, long bytes) {
+            if (event != null) {
+                JfrEvents.commitParse(event, bytes);
+            }
+        }
+    }
+}
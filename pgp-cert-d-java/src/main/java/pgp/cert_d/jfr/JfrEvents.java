@@ -0,0 +1,243 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.nio.file.Path;
+
+/**
+ * Flight Recorder event types and the code which creates and commits them.
+ * This is the only class referencing the {@code jdk.jfr} API, so it is only ever loaded through
+ * {@link FlightRecorderEvents} if the API is available.
+ */
+final class JfrEvents {
+
+    private static final String CATEGORY = "PGP Certificate Directory";
+
+    private JfrEvents() {
+
+    }
+
+    @Name("pgp.cert_d.LockWait")
+    @Label("Directory Lock Wait")
+    @Description("Waiting for the write-lock of a certificate directory")
+    @Category({CATEGORY, "Locking"})
+    @StackTrace(false)
+    static final class LockWaitEvent extends Event {
+
+        @Label("Lock File")
+        String lockFile;
+    }
+
+    @Name("pgp.cert_d.LockHold")
+    @Label("Directory Lock Hold")
+    @Description("Holding the write-lock of a certificate directory")
+    @Category({CATEGORY, "Locking"})
+    @StackTrace(false)
+    static final class LockHoldEvent extends Event {
+
+        @Label("Lock File")
+        String lockFile;
+    }
+
+    @Name("pgp.cert_d.FileRead")
+    @Label("Certificate File Read")
+    @Description("Reading a certificate file")
+    @Category({CATEGORY, "File I/O"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class FileReadEvent extends Event {
+
+        @Label("Shard")
+        @Description("Shard directory of the file, or null for special names")
+        String shard;
+
+        @Label("File Name")
+        String fileName;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("pgp.cert_d.FileWrite")
+    @Label("Certificate File Write")
+    @Description("Writing a certificate file")
+    @Category({CATEGORY, "File I/O"})
+    @StackTrace(false)
+    static final class FileWriteEvent extends Event {
+
+        @Label("Shard")
+        @Description("Shard directory of the file, or null for special names")
+        String shard;
+
+        @Label("File Name")
+        String fileName;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("pgp.cert_d.Parse")
+    @Label("Key Material Parse")
+    @Description("Parsing key material")
+    @Category({CATEGORY, "Parsing"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class ParseEvent extends Event {
+
+        @Label("Bytes Parsed")
+        @Description("Length of the parsed data, or -1 if parsed from a stream")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("pgp.cert_d.SubkeyLookupQuery")
+    @Label("Subkey Lookup Query")
+    @Description("Querying the subkey lookup database")
+    @Category({CATEGORY, "Subkey Lookup"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class SubkeyLookupQueryEvent extends Event {
+
+        @Label("Subkey-IDs")
+        int subkeyIds;
+
+        @Label("Results")
+        int results;
+    }
+
+    @Name("pgp.cert_d.SubkeyLookupStore")
+    @Label("Subkey Lookup Store")
+    @Description("Storing records in the subkey lookup database")
+    @Category({CATEGORY, "Subkey Lookup"})
+    @StackTrace(false)
+    static final class SubkeyLookupStoreEvent extends Event {
+
+        @Label("Certificates")
+        int certificates;
+
+        @Label("Records Inserted")
+        int inserted;
+    }
+
+    static Object beginLockWait() {
+        return begin(new LockWaitEvent());
+    }
+
+    static void commitLockWait(Object event, String lockFile) {
+        LockWaitEvent lockWait = (LockWaitEvent) event;
+        if (lockWait.shouldCommit()) {
+            lockWait.lockFile = lockFile;
+            lockWait.commit();
+        }
+    }
+
+    static Object beginLockHold() {
+        return begin(new LockHoldEvent());
+    }
+
+    static void commitLockHold(Object event, String lockFile) {
+        LockHoldEvent lockHold = (LockHoldEvent) event;
+        if (lockHold.shouldCommit()) {
+            lockHold.lockFile = lockFile;
+            lockHold.commit();
+        }
+    }
+
+    static Object beginFileRead() {
+        return begin(new FileReadEvent());
+    }
+
+    static void commitFileRead(Object event, Path file, long bytes) {
+        FileReadEvent read = (FileReadEvent) event;
+        if (read.shouldCommit()) {
+            read.shard = shardOf(file);
+            read.fileName = file.getFileName().toString();
+            read.bytes = bytes;
+            read.commit();
+        }
+    }
+
+    static Object beginFileWrite() {
+        return begin(new FileWriteEvent());
+    }
+
+    static void commitFileWrite(Object event, Path file, long bytes) {
+        FileWriteEvent write = (FileWriteEvent) event;
+        if (write.shouldCommit()) {
+            write.shard = shardOf(file);
+            write.fileName = file.getFileName().toString();
+            write.bytes = bytes;
+            write.commit();
+        }
+    }
+
+    static Object beginParse() {
+        return begin(new ParseEvent());
+    }
+
+    static void commitParse(Object event, long bytes) {
+        ParseEvent parse = (ParseEvent) event;
+        if (parse.shouldCommit()) {
+            parse.bytes = bytes;
+            parse.commit();
+        }
+    }
+
+    static Object beginSubkeyLookupQuery() {
+        return begin(new SubkeyLookupQueryEvent());
+    }
+
+    static void commitSubkeyLookupQuery(Object event, int subkeyIds, int results) {
+        SubkeyLookupQueryEvent query = (SubkeyLookupQueryEvent) event;
+        if (query.shouldCommit()) {
+            query.subkeyIds = subkeyIds;
+            query.results = results;
+            query.commit();
+        }
+    }
+
+    static Object beginSubkeyLookupStore() {
+        return begin(new SubkeyLookupStoreEvent());
+    }
+
+    static void commitSubkeyLookupStore(Object event, int certificates, int inserted) {
+        SubkeyLookupStoreEvent store = (SubkeyLookupStoreEvent) event;
+        if (store.shouldCommit()) {
+            store.certificates = certificates;
+            store.inserted = inserted;
+            store.commit();
+        }
+    }
+
+    private static Event begin(Event event) {
+        if (!event.isEnabled()) {
+            // not recording, skip taking the start time
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    private static String shardOf(Path file) {
+        String name = file.getFileName().toString();
+        Path parent = file.getParent();
+        if (parent == null || name.length() != 38 && name.length() != 62) {
+            // special names are stored in the base directory
+            return null;
+        }
+        return parent.getFileName().toString();
+    }
+}
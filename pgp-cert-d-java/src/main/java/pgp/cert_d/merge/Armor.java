@@ -0,0 +1,105 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.merge;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Streaming decoder for ASCII armored OpenPGP data.
+ * The armor checksum is not verified, since the packets are not interpreted anyway.
+ *
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc4880#section-6.2">RFC4880 Section 6.2. Forming ASCII Armor</a>
+ */
+final class Armor {
+
+    private Armor() {
+
+    }
+
+    /**
+     * Return a stream of the binary packets contained in the given stream.
+     * If the data is not ASCII armored, it is returned as is.
+     *
+     * @param in binary or ASCII armored data
+     * @return binary data
+     *
+     * @throws IOException in case of an IO error or if the armor header is malformed
+     */
+    static InputStream decoderStream(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        int b;
+        do {
+            buffered.mark(1);
+            b = buffered.read();
+        } while (b == ' ' || b == '\t' || b == '\r' || b == '\n');
+        buffered.reset();
+        if (b != '-') {
+            return buffered;
+        }
+
+        String begin = readLine(buffered);
+        if (begin == null || !begin.startsWith("-----BEGIN PGP ")) {
+            throw new IOException("Invalid ASCII armor header line: " + begin);
+        }
+        // skip armor headers, which are terminated by an empty line
+        String line;
+        do {
+            line = readLine(buffered);
+        } while (line != null && !line.trim().isEmpty());
+        return Base64.getMimeDecoder().wrap(new ArmorBodyInputStream(buffered));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Stream of the radix-64 lines of an armor body, which ends before the checksum or armor tail line.
+     */
+    private static final class ArmorBodyInputStream extends InputStream {
+
+        private final InputStream in;
+        private boolean lineStart = true;
+        private boolean ended;
+
+        private ArmorBodyInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (ended) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1 || (lineStart && (b == '=' || b == '-'))) {
+                ended = true;
+                return -1;
+            }
+            lineStart = b == '\n';
+            return b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.merge;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Raw OpenPGP packet as read by a {@link PacketReader}.
+ * The packet keeps its original encoding including the header, so that it can be written out unmodified.
+ */
+final class Packet {
+
+    static final int SIGNATURE = 2;
+    static final int PUBLIC_KEY = 6;
+    static final int MARKER = 10;
+    static final int TRUST = 12;
+    static final int USER_ID = 13;
+    static final int PUBLIC_SUBKEY = 14;
+    static final int USER_ATTRIBUTE = 17;
+
+    private final int tag;
+    private final byte[] encoding;
+    private final int headerLength;
+
+    Packet(int tag, byte[] encoding, int headerLength) {
+        this.tag = tag;
+        this.encoding = encoding;
+        this.headerLength = headerLength;
+    }
+
+    /**
+     * Return the packet tag.
+     *
+     * @return tag
+     */
+    int getTag() {
+        return tag;
+    }
+
+    /**
+     * Return true, if this packet starts a new component of a certificate, i.e. if it is a key, subkey,
+     * user-id or user-attribute packet.
+     * Signatures following the component packet belong to that component.
+     *
+     * @return true if the packet is a component packet
+     */
+    boolean isComponent() {
+        return tag == PUBLIC_KEY || tag == PUBLIC_SUBKEY || tag == USER_ID || tag == USER_ATTRIBUTE;
+    }
+
+    /**
+     * Create a digest for computing packet {@link #identity(MessageDigest) identities}.
+     * The digest is not thread-safe, so a merge should create one and reuse it for all of its packets.
+     *
+     * @return digest
+     */
+    static MessageDigest newIdentityDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is guaranteed to be supported by every Java platform
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Return a hash over the tag and body of the packet.
+     * The header is excluded, so that the same packet encoded with an old-format or new-format header has the same
+     * identity.
+     *
+     * @param digest digest created by {@link #newIdentityDigest()}, which is reset afterwards
+     * @return identity
+     */
+    ByteBuffer identity(MessageDigest digest) {
+        digest.update((byte) tag);
+        digest.update(encoding, headerLength, encoding.length - headerLength);
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * Write the original encoding of the packet.
+     *
+     * @param out output stream
+     *
+     * @throws IOException in case of an IO error
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(encoding);
+    }
+}
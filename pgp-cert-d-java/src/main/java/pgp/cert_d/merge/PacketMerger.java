@@ -0,0 +1,317 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.merge;
+
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.Key;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reference {@link KeyMaterialMerger} which merges certificates on the OpenPGP packet level.
+ * Neither certificate is decoded beyond its packet headers.
+ * Instead, the update is split into components (primary key, user-ids, user-attributes and subkeys) and their
+ * signatures, which are identified by a hash over their packet bodies.
+ * The existing certificate is then streamed to the output in a single pass, during which components and signatures
+ * of the update which are not yet present are inserted at the end of the respective component.
+ * New user-ids and user-attributes are inserted before the first subkey, new subkeys are appended.
+ *
+ * Memory usage is bounded by the size of the update plus the signature hashes of a single component of the existing
+ * certificate, which makes merging small updates into flooded certificates linear in the size of the existing
+ * certificate.
+ * Signatures are not verified, so callers must not rely on the merged certificate containing only valid signatures.
+ *
+ * Secret keys are not merged on the packet level.
+ * If either input is a {@link Key}, the merge is delegated to a fallback merger.
+ */
+public final class PacketMerger implements KeyMaterialMerger {
+
+    /**
+     * Fallback merger for secret keys, which keeps the secret key and discards the other input.
+     * If both inputs are secret keys, the update wins.
+     */
+    public static final KeyMaterialMerger PREFER_SECRET_KEY = (data, existing) ->
+            data instanceof Key || !(existing instanceof Key) ? data : existing;
+
+    /**
+     * Default maximum size of a single packet body in bytes.
+     * This leaves room for large user-attribute images, while bounding the memory a malformed or malicious packet
+     * header can make the merger allocate.
+     */
+    public static final int DEFAULT_MAX_PACKET_SIZE = 16 * 1024 * 1024;
+
+    private final KeyMaterialMerger keyMerger;
+    private final int maxPacketSize;
+
+    /**
+     * Create a merger which uses {@link #PREFER_SECRET_KEY} for secret keys.
+     */
+    public PacketMerger() {
+        this(PREFER_SECRET_KEY);
+    }
+
+    /**
+     * Create a merger which delegates merging of secret keys to the given merger.
+     *
+     * @param keyMerger merger for secret keys
+     */
+    public PacketMerger(KeyMaterialMerger keyMerger) {
+        this(keyMerger, DEFAULT_MAX_PACKET_SIZE);
+    }
+
+    /**
+     * Create a merger which delegates merging of secret keys to the given merger and rejects packets whose body
+     * exceeds the given size.
+     *
+     * @param keyMerger merger for secret keys
+     * @param maxPacketSize maximum size of a single packet body in bytes
+     */
+    public PacketMerger(KeyMaterialMerger keyMerger, int maxPacketSize) {
+        if (maxPacketSize <= 0) {
+            throw new IllegalArgumentException("Maximum packet size MUST be positive.");
+        }
+        this.keyMerger = keyMerger;
+        this.maxPacketSize = maxPacketSize;
+    }
+
+    /**
+     * Merge the given certificate with an existing copy.
+     * If the update does not contain any packets which are missing from the existing certificate, the existing
+     * instance is returned, so that the store does not rewrite it.
+     * Otherwise, the merged certificate is returned in binary encoding.
+     *
+     * @param data key material
+     * @param existing optional already existing copy of the key material
+     * @return merged key material
+     *
+     * @throws IOException in case of an IO error, if the encodings are malformed or if the fingerprints differ
+     */
+    @Override
+    public KeyMaterial merge(KeyMaterial data, KeyMaterial existing) throws IOException {
+        if (existing == null) {
+            return data;
+        }
+        if (data instanceof Key || existing instanceof Key) {
+            return keyMerger.merge(data, existing);
+        }
+        if (!data.getFingerprint().equals(existing.getFingerprint())) {
+            throw new IOException("Cannot merge certificate " + data.getFingerprint() +
+                    " into certificate " + existing.getFingerprint());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean changed;
+        try (InputStream update = data.getInputStream(); InputStream current = existing.getInputStream()) {
+            changed = merge(update, current, out, maxPacketSize);
+        }
+        if (!changed) {
+            return existing;
+        }
+        Set<Long> subkeyIds = new LinkedHashSet<>(existing.getSubkeyIds());
+        subkeyIds.addAll(data.getSubkeyIds());
+        return new Certificate(out.toByteArray(), existing.getFingerprint(), new ArrayList<>(subkeyIds), null);
+    }
+
+    /**
+     * Merge the packets of an update into an existing certificate and write the merged packet sequence to the given
+     * output stream.
+     * Both inputs may be binary or ASCII armored, the output is binary.
+     * The packets of the existing certificate are written unmodified and in their original order.
+     * Packets whose body exceeds {@link #DEFAULT_MAX_PACKET_SIZE} are rejected.
+     *
+     * @param update update certificate
+     * @param existing existing certificate
+     * @param out output stream for the merged certificate
+     * @return true if packets from the update were added, false if the output equals the existing certificate
+     *
+     * @throws IOException in case of an IO error, if an encoding is malformed or if the primary keys differ
+     */
+    public static boolean merge(InputStream update, InputStream existing, OutputStream out) throws IOException {
+        return merge(update, existing, out, DEFAULT_MAX_PACKET_SIZE);
+    }
+
+    /**
+     * Merge the packets of an update into an existing certificate and write the merged packet sequence to the given
+     * output stream, rejecting packets whose body exceeds the given size.
+     *
+     * @param update update certificate
+     * @param existing existing certificate
+     * @param out output stream for the merged certificate
+     * @param maxPacketSize maximum size of a single packet body in bytes
+     * @return true if packets from the update were added, false if the output equals the existing certificate
+     *
+     * @throws IOException in case of an IO error, if an encoding is malformed, if a packet is too large or if the
+     * primary keys differ
+     */
+    public static boolean merge(InputStream update, InputStream existing, OutputStream out, int maxPacketSize)
+            throws IOException {
+        MessageDigest digest = Packet.newIdentityDigest();
+        Map<ByteBuffer, Component> components = readComponents(
+                new PacketReader(Armor.decoderStream(update), maxPacketSize), digest);
+        return new MergeWriter(components, out, digest)
+                .write(new PacketReader(Armor.decoderStream(existing), maxPacketSize));
+    }
+
+    private static Map<ByteBuffer, Component> readComponents(PacketReader reader, MessageDigest digest)
+            throws IOException {
+        Map<ByteBuffer, Component> components = new LinkedHashMap<>();
+        Component current = null;
+        Packet packet;
+        while ((packet = reader.next()) != null) {
+            if (packet.isComponent()) {
+                if (current == null && packet.getTag() != Packet.PUBLIC_KEY) {
+                    throw new IOException("Certificate does not start with a public key packet");
+                }
+                ByteBuffer identity = packet.identity(digest);
+                current = components.get(identity);
+                if (current == null) {
+                    current = new Component(packet);
+                    components.put(identity, current);
+                }
+            } else if (packet.getTag() == Packet.SIGNATURE) {
+                if (current == null) {
+                    throw new IOException("Certificate does not start with a public key packet");
+                }
+                current.signatures.putIfAbsent(packet.identity(digest), packet);
+            } else if (packet.getTag() != Packet.TRUST && packet.getTag() != Packet.MARKER) {
+                throw new IOException("Unexpected packet in certificate (tag " + packet.getTag() + ")");
+            }
+            // trust packets are local to the existing certificate and markers are ignored
+        }
+        if (current == null) {
+            throw new IOException("Empty certificate");
+        }
+        return components;
+    }
+
+    /**
+     * Component of a certificate (primary key, user-id, user-attribute or subkey) with its signatures.
+     */
+    private static final class Component {
+
+        private final Packet packet;
+        private final Map<ByteBuffer, Packet> signatures = new LinkedHashMap<>();
+        private boolean merged;
+
+        private Component(Packet packet) {
+            this.packet = packet;
+        }
+    }
+
+    /**
+     * Single pass over the existing certificate, which writes its packets and inserts missing packets of the update.
+     */
+    private static final class MergeWriter {
+
+        private final Map<ByteBuffer, Component> updates;
+        private final OutputStream out;
+        private final MessageDigest digest;
+        // signatures of the current component of the existing certificate, only collected if needed
+        private final Set<ByteBuffer> existingSignatures = new HashSet<>();
+        private Component current;
+        private boolean userIdsWritten;
+        private boolean changed;
+
+        private MergeWriter(Map<ByteBuffer, Component> updates, OutputStream out, MessageDigest digest) {
+            this.updates = updates;
+            this.out = out;
+            this.digest = digest;
+        }
+
+        private boolean write(PacketReader existing) throws IOException {
+            boolean primaryKey = true;
+            Packet packet;
+            while ((packet = existing.next()) != null) {
+                if (packet.isComponent()) {
+                    finishComponent();
+                    if (primaryKey) {
+                        if (packet.getTag() != Packet.PUBLIC_KEY) {
+                            throw new IOException("Certificate does not start with a public key packet");
+                        }
+                        primaryKey = false;
+                    }
+                    if (packet.getTag() == Packet.PUBLIC_SUBKEY && !userIdsWritten) {
+                        writeNewComponents(false);
+                        userIdsWritten = true;
+                    }
+                    startComponent(packet);
+                } else if (packet.getTag() == Packet.SIGNATURE && current != null) {
+                    existingSignatures.add(packet.identity(digest));
+                }
+                packet.writeTo(out);
+            }
+            if (primaryKey) {
+                throw new IOException("Empty certificate");
+            }
+            finishComponent();
+
+            Component updatedPrimaryKey = updates.values().iterator().next();
+            if (!updatedPrimaryKey.merged) {
+                throw new IOException("Primary keys of the certificates differ");
+            }
+            if (!userIdsWritten) {
+                writeNewComponents(false);
+            }
+            writeNewComponents(true);
+            return changed;
+        }
+
+        private void startComponent(Packet packet) {
+            current = updates.get(packet.identity(digest));
+            if (current != null && current.merged) {
+                // component occurs twice in the existing certificate, its signatures were already merged
+                current = null;
+            }
+            if (current != null) {
+                current.merged = true;
+                if (current.signatures.isEmpty()) {
+                    // nothing to merge, no need to hash the existing signatures
+                    current = null;
+                }
+            }
+        }
+
+        private void finishComponent() throws IOException {
+            if (current != null) {
+                for (Map.Entry<ByteBuffer, Packet> signature : current.signatures.entrySet()) {
+                    if (!existingSignatures.contains(signature.getKey())) {
+                        signature.getValue().writeTo(out);
+                        changed = true;
+                    }
+                }
+            }
+            current = null;
+            existingSignatures.clear();
+        }
+
+        private void writeNewComponents(boolean subkeys) throws IOException {
+            for (Component component : updates.values()) {
+                int tag = component.packet.getTag();
+                if (component.merged || tag == Packet.PUBLIC_KEY || (tag == Packet.PUBLIC_SUBKEY) != subkeys) {
+                    continue;
+                }
+                component.packet.writeTo(out);
+                for (Packet signature : component.signatures.values()) {
+                    signature.writeTo(out);
+                }
+                component.merged = true;
+                changed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.merge;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tokenizer which splits a binary OpenPGP packet sequence into {@link Packet Packets}.
+ * Packet bodies are not interpreted.
+ * Since key material must not use partial or indeterminate body lengths, such packets are rejected.
+ *
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc4880#section-4.2">RFC4880 Section 4.2. Packet Headers</a>
+ */
+final class PacketReader {
+
+    private final InputStream in;
+    private final int maxPacketSize;
+
+    /**
+     * Create a reader for the given packet sequence.
+     *
+     * @param in input stream
+     * @param maxPacketSize maximum size of a packet body in bytes, packets with larger bodies are rejected before
+     *                      their body is allocated
+     */
+    PacketReader(InputStream in, int maxPacketSize) {
+        this.in = in;
+        this.maxPacketSize = maxPacketSize;
+    }
+
+    /**
+     * Read the next packet.
+     *
+     * @return packet or null if the end of the stream was reached
+     *
+     * @throws IOException in case of an IO error, if the packet is malformed or if it exceeds the maximum size
+     */
+    Packet next() throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        if ((first & 0x80) == 0) {
+            throw new IOException("Invalid OpenPGP packet header: 0x" + Integer.toHexString(first));
+        }
+
+        byte[] header = new byte[6];
+        header[0] = (byte) first;
+        int headerLength = 1;
+        int tag;
+        long length;
+        if ((first & 0x40) != 0) {
+            // new format
+            tag = first & 0x3f;
+            int l1 = readByte();
+            header[headerLength++] = (byte) l1;
+            if (l1 < 192) {
+                length = l1;
+            } else if (l1 <= 223) {
+                int l2 = readByte();
+                header[headerLength++] = (byte) l2;
+                length = ((l1 - 192) << 8) + l2 + 192;
+            } else if (l1 == 255) {
+                length = 0;
+                for (int i = 0; i < 4; i++) {
+                    int b = readByte();
+                    header[headerLength++] = (byte) b;
+                    length = (length << 8) | b;
+                }
+            } else {
+                throw new IOException("Partial body lengths are not allowed in key material (tag " + tag + ")");
+            }
+        } else {
+            // old format
+            tag = (first >> 2) & 0x0f;
+            int lengthType = first & 0x03;
+            if (lengthType == 3) {
+                throw new IOException("Indeterminate body lengths are not allowed in key material (tag " + tag + ")");
+            }
+            int lengthBytes = 1 << lengthType;
+            length = 0;
+            for (int i = 0; i < lengthBytes; i++) {
+                int b = readByte();
+                header[headerLength++] = (byte) b;
+                length = (length << 8) | b;
+            }
+        }
+        // the length is untrusted, check it before allocating the packet
+        if (length > maxPacketSize) {
+            throw new IOException("OpenPGP packet too large: " + length + " bytes (tag " + tag + "), maximum is " +
+                    maxPacketSize + " bytes");
+        }
+
+        byte[] encoding = new byte[headerLength + (int) length];
+        System.arraycopy(header, 0, encoding, 0, headerLength);
+        int offset = headerLength;
+        while (offset < encoding.length) {
+            int read = in.read(encoding, offset, encoding.length - offset);
+            if (read == -1) {
+                throw new EOFException("Truncated OpenPGP packet (tag " + tag + ")");
+            }
+            offset += read;
+        }
+        return new Packet(tag, encoding, headerLength);
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Truncated OpenPGP packet header");
+        }
+        return b;
+    }
+}
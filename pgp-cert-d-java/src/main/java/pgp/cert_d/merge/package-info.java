@@ -0,0 +1,8 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+/**
+ * Merging of OpenPGP certificates on the packet level.
+ */
+package pgp.cert_d.merge;
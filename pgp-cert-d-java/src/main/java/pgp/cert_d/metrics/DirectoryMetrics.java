@@ -0,0 +1,80 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+/**
+ * Service provider interface for recording metrics of certificate directory operations.
+ * Implementations can forward the measurements to a metrics library of choice, or record them in memory, like
+ * {@link HistogramMetrics} does.
+ *
+ * Measurements are taken by the decorators created via {@link Instrumentation}.
+ * For {@link #NOOP}, no decorators are created, so that disabled metrics do not cause any overhead.
+ * Implementations MUST be thread-safe and should return quickly.
+ */
+public interface DirectoryMetrics {
+
+    /**
+     * Instrumented operations.
+     */
+    enum Operation {
+        /**
+         * Reading a certificate or key from the backend, including parsing.
+         */
+        READ,
+
+        /**
+         * Inserting a certificate or key into the backend, including parsing, merging and writing.
+         * Bytes are the length of the inserted data.
+         * A batch inserted using {@link pgp.cert_d.PGPCertificateDirectory#insertAll} is recorded as a single sample.
+         */
+        INSERT,
+
+        /**
+         * Parsing key material using a {@link pgp.certificate_store.certificate.KeyMaterialReaderBackend}.
+         * Bytes are the length of the parsed data.
+         */
+        PARSE,
+
+        /**
+         * Merging key material using a {@link pgp.certificate_store.certificate.KeyMaterialMerger}.
+         */
+        MERGE,
+
+        /**
+         * Waiting for a directory lock, exclusive or shared.
+         */
+        LOCK_WAIT,
+
+        /**
+         * Holding a directory lock, exclusive or shared.
+         */
+        LOCK_HOLD,
+
+        /**
+         * Querying a {@link pgp.cert_d.subkey_lookup.SubkeyLookup}.
+         */
+        SUBKEY_LOOKUP_QUERY,
+
+        /**
+         * Storing records in a {@link pgp.cert_d.subkey_lookup.SubkeyLookup}.
+         */
+        SUBKEY_LOOKUP_STORE
+    }
+
+    /**
+     * Metrics implementation which discards all measurements.
+     */
+    DirectoryMetrics NOOP = (operation, durationNanos, bytes) -> {
+    };
+
+    /**
+     * Record a single execution of an operation.
+     *
+     * @param operation operation
+     * @param durationNanos duration of the operation in nanoseconds
+     * @param bytes number of bytes processed by the operation, or -1 if unknown
+     */
+    void record(Operation operation, long durationNanos, long bytes);
+}
@@ -0,0 +1,170 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DirectoryMetrics} implementation which records counts, bytes and latency histograms in memory.
+ * Latencies are recorded in buckets of powers of two nanoseconds, so percentiles are accurate up to a factor of two,
+ * while recording is lock-free and does not allocate.
+ */
+public class HistogramMetrics implements DirectoryMetrics {
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+
+    /**
+     * Create empty histograms for all {@link Operation operations}.
+     */
+    public HistogramMetrics() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new Histogram());
+        }
+    }
+
+    @Override
+    public void record(Operation operation, long durationNanos, long bytes) {
+        histograms.get(operation).record(durationNanos, bytes);
+    }
+
+    /**
+     * Return the histogram of the given operation.
+     *
+     * @param operation operation
+     * @return histogram
+     */
+    public Histogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    /**
+     * Reset all histograms.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Latency histogram of a single operation.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        // bucket i > 0 counts durations d with 2^(i-1) <= d < 2^i, bucket 0 counts zero durations
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder totalBytes = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+
+        }
+
+        private void record(long durationNanos, long bytes) {
+            long duration = Math.max(0, durationNanos);
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(duration));
+            count.increment();
+            totalNanos.add(duration);
+            if (bytes > 0) {
+                totalBytes.add(bytes);
+            }
+            maxNanos.accumulate(duration);
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            totalBytes.reset();
+            maxNanos.reset();
+        }
+
+        /**
+         * Return the number of recorded operations.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Return the sum of the durations of all recorded operations in nanoseconds.
+         *
+         * @return total duration
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Return the sum of the bytes processed by all recorded operations.
+         *
+         * @return total bytes
+         */
+        public long getTotalBytes() {
+            return totalBytes.sum();
+        }
+
+        /**
+         * Return the longest recorded duration in nanoseconds.
+         *
+         * @return maximum duration
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Return an upper bound for the given percentile of the recorded durations in nanoseconds.
+         * The returned value is the upper bound of the bucket containing the percentile, but never larger than
+         * the maximum recorded duration.
+         *
+         * @param percentile percentile between 0 and 100
+         * @return upper bound of the percentile
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile MUST be between 0 and 100.");
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    long upperBound = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upperBound, getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{count=" + getCount() + ", totalNanos=" + getTotalNanos() +
+                    ", totalBytes=" + getTotalBytes() + ", p50=" + getPercentileNanos(50) +
+                    ", p99=" + getPercentileNanos(99) + ", max=" + getMaxNanos() + "}";
+        }
+    }
+}
@@ -0,0 +1,212 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Static factory methods which decorate directory components, so that their operations are recorded by a
+ * {@link DirectoryMetrics} instance.
+ * If the metrics instance is {@link DirectoryMetrics#NOOP}, the components are returned as-is.
+ *
+ * Note, that parsing happens inside of the backend using the {@link KeyMaterialReaderBackend} passed to the
+ * backend on construction, so in order to record parse times, the reader must be instrumented before the backend
+ * is created.
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+
+    }
+
+    /**
+     * Instrument a storage backend, including its locking mechanism and the mergers passed to insert operations.
+     *
+     * @param backend backend
+     * @param metrics metrics
+     * @return instrumented backend
+     */
+    public static PGPCertificateDirectory.Backend instrument(PGPCertificateDirectory.Backend backend,
+                                                             DirectoryMetrics metrics) {
+        if (metrics == DirectoryMetrics.NOOP || backend instanceof InstrumentedBackend) {
+            return backend;
+        }
+        return new InstrumentedBackend(backend, metrics);
+    }
+
+    /**
+     * Instrument a locking mechanism.
+     *
+     * @param lock locking mechanism
+     * @param metrics metrics
+     * @return instrumented locking mechanism
+     */
+    public static PGPCertificateDirectory.LockingMechanism instrument(PGPCertificateDirectory.LockingMechanism lock,
+                                                                      DirectoryMetrics metrics) {
+        if (metrics == DirectoryMetrics.NOOP || lock instanceof InstrumentedLockingMechanism) {
+            return lock;
+        }
+        return new InstrumentedLockingMechanism(lock, metrics);
+    }
+
+    /**
+     * Instrument a subkey lookup.
+     *
+     * @param subkeyLookup subkey lookup
+     * @param metrics metrics
+     * @return instrumented subkey lookup
+     */
+    public static SubkeyLookup instrument(SubkeyLookup subkeyLookup, DirectoryMetrics metrics) {
+        if (metrics == DirectoryMetrics.NOOP || subkeyLookup instanceof InstrumentedSubkeyLookup) {
+            return subkeyLookup;
+        }
+        return new InstrumentedSubkeyLookup(subkeyLookup, metrics);
+    }
+
+    /**
+     * Instrument a key material reader.
+     *
+     * @param reader reader
+     * @param metrics metrics
+     * @return instrumented reader
+     */
+    public static KeyMaterialReaderBackend instrumentReader(KeyMaterialReaderBackend reader, DirectoryMetrics metrics) {
+        if (metrics == DirectoryMetrics.NOOP || reader instanceof InstrumentedReader) {
+            return reader;
+        }
+        return new InstrumentedReader(reader, metrics);
+    }
+
+    /**
+     * Instrument a key material merger.
+     *
+     * @param merger merger
+     * @param metrics metrics
+     * @return instrumented merger
+     */
+    public static KeyMaterialMerger instrumentMerger(KeyMaterialMerger merger, DirectoryMetrics metrics) {
+        if (metrics == DirectoryMetrics.NOOP || merger instanceof InstrumentedMerger) {
+            return merger;
+        }
+        return new InstrumentedMerger(merger, metrics);
+    }
+
+    private static final class InstrumentedReader implements KeyMaterialReaderBackend {
+
+        private final KeyMaterialReaderBackend delegate;
+        private final DirectoryMetrics metrics;
+
+        private InstrumentedReader(KeyMaterialReaderBackend delegate, DirectoryMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+            CountingInputStream counting = new CountingInputStream(data);
+            long start = System.nanoTime();
+            try {
+                return delegate.read(counting, tag);
+            } finally {
+                metrics.record(DirectoryMetrics.Operation.PARSE, System.nanoTime() - start, counting.count);
+            }
+        }
+
+        @Override
+        public KeyMaterial read(byte[] data, int offset, int length, Long tag) throws IOException, BadDataException {
+            long start = System.nanoTime();
+            try {
+                return delegate.read(data, offset, length, tag);
+            } finally {
+                metrics.record(DirectoryMetrics.Operation.PARSE, System.nanoTime() - start, length);
+            }
+        }
+
+        @Override
+        public KeyMaterial read(ByteBuffer data, Long tag) throws IOException, BadDataException {
+            int length = data.remaining();
+            long start = System.nanoTime();
+            try {
+                return delegate.read(data, tag);
+            } finally {
+                metrics.record(DirectoryMetrics.Operation.PARSE, System.nanoTime() - start, length);
+            }
+        }
+    }
+
+    private static final class InstrumentedMerger implements KeyMaterialMerger {
+
+        private final KeyMaterialMerger delegate;
+        private final DirectoryMetrics metrics;
+
+        private InstrumentedMerger(KeyMaterialMerger delegate, DirectoryMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public KeyMaterial merge(KeyMaterial data, KeyMaterial existing) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.merge(data, existing);
+            } finally {
+                metrics.record(DirectoryMetrics.Operation.MERGE, System.nanoTime() - start, -1);
+            }
+        }
+    }
+
+    /**
+     * {@link FilterInputStream} which counts the bytes read from the underlying stream.
+     */
+    static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // resetting would count bytes twice
+            return false;
+        }
+    }
+}
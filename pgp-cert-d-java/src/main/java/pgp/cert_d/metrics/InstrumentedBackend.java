@@ -0,0 +1,249 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+import pgp.cert_d.CertificateChangeListener;
+import pgp.cert_d.CertificateEntry;
+import pgp.cert_d.ChangeSubscription;
+import pgp.cert_d.Fingerprint;
+import pgp.cert_d.InsertResult;
+import pgp.cert_d.PGPCertificateDirectory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link PGPCertificateDirectory.Backend} decorator which records read and insert times.
+ * Merges performed during inserts and the use of the locking mechanism are recorded as well.
+ */
+final class InstrumentedBackend implements PGPCertificateDirectory.Backend {
+
+    private final PGPCertificateDirectory.Backend delegate;
+    private final DirectoryMetrics metrics;
+    private final PGPCertificateDirectory.LockingMechanism lock;
+
+    InstrumentedBackend(PGPCertificateDirectory.Backend delegate, DirectoryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.lock = Instrumentation.instrument(delegate.getLock(), metrics);
+    }
+
+    @Override
+    public PGPCertificateDirectory.LockingMechanism getLock() {
+        return lock;
+    }
+
+    @Override
+    public Certificate readByFingerprint(String fingerprint) throws BadNameException, IOException, BadDataException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readByFingerprint(fingerprint);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.READ, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public Certificate readByFingerprint(Fingerprint fingerprint) throws IOException, BadDataException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readByFingerprint(fingerprint);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.READ, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public KeyMaterial readBySpecialName(String specialName) throws BadNameException, IOException, BadDataException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readBySpecialName(specialName);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.READ, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public Iterator<Certificate> readItems() {
+        return delegate.readItems();
+    }
+
+    @Override
+    public Stream<Certificate> readItemsStream() {
+        return delegate.readItemsStream();
+    }
+
+    @Override
+    public Iterator<CertificateEntry> listEntries() {
+        return delegate.listEntries();
+    }
+
+    @Override
+    public ChangeSubscription subscribe(CertificateChangeListener listener) throws IOException {
+        return delegate.subscribe(listener);
+    }
+
+    @Override
+    public boolean supportsChangeNotifications() {
+        return delegate.supportsChangeNotifications();
+    }
+
+    @Override
+    public boolean updatesSubkeyLookup(SubkeyLookup subkeyLookup) {
+        return delegate.updatesSubkeyLookup(subkeyLookup);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public KeyMaterial doInsertTrustRoot(InputStream data, KeyMaterialMerger merge)
+            throws BadDataException, IOException {
+        Instrumentation.CountingInputStream counting = new Instrumentation.CountingInputStream(data);
+        long start = System.nanoTime();
+        try {
+            return delegate.doInsertTrustRoot(counting, Instrumentation.instrumentMerger(merge, metrics));
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, counting.count);
+        }
+    }
+
+    @Override
+    public Certificate doInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        Instrumentation.CountingInputStream counting = new Instrumentation.CountingInputStream(data);
+        long start = System.nanoTime();
+        try {
+            return delegate.doInsert(counting, Instrumentation.instrumentMerger(merge, metrics));
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, counting.count);
+        }
+    }
+
+    @Override
+    public InsertResult doInsertIfChanged(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        Instrumentation.CountingInputStream counting = new Instrumentation.CountingInputStream(data);
+        long start = System.nanoTime();
+        try {
+            return delegate.doInsertIfChanged(counting, Instrumentation.instrumentMerger(merge, metrics));
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, counting.count);
+        }
+    }
+
+    @Override
+    public Certificate doInsertWithSpecialName(String specialName, InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException, BadNameException {
+        Instrumentation.CountingInputStream counting = new Instrumentation.CountingInputStream(data);
+        long start = System.nanoTime();
+        try {
+            return delegate.doInsertWithSpecialName(specialName, counting, Instrumentation.instrumentMerger(merge, metrics));
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, counting.count);
+        }
+    }
+
+    @Override
+    public void doInsertAll(Iterable<InputStream> data, KeyMaterialMerger merge, List<InsertResult> results)
+            throws IOException, BadDataException {
+        List<Instrumentation.CountingInputStream> counting = new ArrayList<>();
+        for (InputStream certificate : data) {
+            counting.add(new Instrumentation.CountingInputStream(certificate));
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.doInsertAll(Collections.unmodifiableList(counting), Instrumentation.instrumentMerger(merge, metrics),
+                    results);
+        } finally {
+            long bytes = 0;
+            for (Instrumentation.CountingInputStream stream : counting) {
+                bytes += stream.count;
+            }
+            // backends may insert the batch in a single transaction, so it is recorded as a single insert
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, bytes);
+        }
+    }
+
+    @Override
+    public PGPCertificateDirectory.PreparedInsert prepareInsert(InputStream data, KeyMaterialMerger merge)
+            throws IOException, BadDataException {
+        Instrumentation.CountingInputStream counting = new Instrumentation.CountingInputStream(data);
+        long start = System.nanoTime();
+        PGPCertificateDirectory.PreparedInsert prepared;
+        try {
+            prepared = delegate.prepareInsert(counting, Instrumentation.instrumentMerger(merge, metrics));
+        } catch (IOException | BadDataException | RuntimeException e) {
+            metrics.record(DirectoryMetrics.Operation.INSERT, System.nanoTime() - start, counting.count);
+            throw e;
+        }
+        if (prepared == null) {
+            // not supported, the subsequent doInsertIfChanged() is recorded instead
+            return null;
+        }
+        return new InstrumentedPreparedInsert(prepared, System.nanoTime() - start, counting.count);
+    }
+
+    @Override
+    public Long getTagForFingerprint(String fingerprint) throws BadNameException, IOException {
+        return delegate.getTagForFingerprint(fingerprint);
+    }
+
+    @Override
+    public Long getTagForFingerprint(Fingerprint fingerprint) throws IOException {
+        return delegate.getTagForFingerprint(fingerprint);
+    }
+
+    @Override
+    public Long getTagForSpecialName(String specialName) throws BadNameException, IOException {
+        return delegate.getTagForSpecialName(specialName);
+    }
+
+    /**
+     * {@link PGPCertificateDirectory.PreparedInsert} decorator, which records the time spent preparing and
+     * committing the insert as a single insert.
+     */
+    private final class InstrumentedPreparedInsert implements PGPCertificateDirectory.PreparedInsert {
+
+        private final PGPCertificateDirectory.PreparedInsert delegate;
+        private final long prepareNanos;
+        private final long bytes;
+
+        private InstrumentedPreparedInsert(PGPCertificateDirectory.PreparedInsert delegate,
+                                           long prepareNanos, long bytes) {
+            this.delegate = delegate;
+            this.prepareNanos = prepareNanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InsertResult commit() throws IOException, BadDataException {
+            long start = System.nanoTime();
+            try {
+                return delegate.commit();
+            } finally {
+                metrics.record(DirectoryMetrics.Operation.INSERT, prepareNanos + System.nanoTime() - start, bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+import pgp.cert_d.PGPCertificateDirectory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PGPCertificateDirectory.LockingMechanism} decorator which records lock wait and hold times.
+ * Hold times of the exclusive lock are measured from acquisition until release, independent of the releasing
+ * thread. Hold times of the shared lock are tracked per thread.
+ */
+final class InstrumentedLockingMechanism implements PGPCertificateDirectory.LockingMechanism {
+
+    private final PGPCertificateDirectory.LockingMechanism delegate;
+    private final DirectoryMetrics metrics;
+    private final ThreadLocal<long[]> sharedSince = ThreadLocal.withInitial(() -> new long[1]);
+    private volatile long exclusiveSince;
+
+    InstrumentedLockingMechanism(PGPCertificateDirectory.LockingMechanism delegate, DirectoryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void lockDirectory() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        delegate.lockDirectory();
+        exclusiveSince = acquired(start);
+    }
+
+    @Override
+    public boolean lockDirectory(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        boolean locked = delegate.lockDirectory(timeout, unit);
+        if (locked) {
+            exclusiveSince = acquired(start);
+        } else {
+            metrics.record(DirectoryMetrics.Operation.LOCK_WAIT, System.nanoTime() - start, -1);
+        }
+        return locked;
+    }
+
+    @Override
+    public boolean tryLockDirectory() throws IOException {
+        long start = System.nanoTime();
+        boolean locked = delegate.tryLockDirectory();
+        if (locked) {
+            exclusiveSince = acquired(start);
+        }
+        return locked;
+    }
+
+    @Override
+    public boolean isLocked() {
+        return delegate.isLocked();
+    }
+
+    @Override
+    public void releaseDirectory() throws IOException {
+        long since = exclusiveSince;
+        delegate.releaseDirectory();
+        metrics.record(DirectoryMetrics.Operation.LOCK_HOLD, System.nanoTime() - since, -1);
+    }
+
+    @Override
+    public void lockDirectoryShared() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        delegate.lockDirectoryShared();
+        sharedSince.get()[0] = acquired(start);
+    }
+
+    @Override
+    public boolean tryLockDirectoryShared() throws IOException {
+        long start = System.nanoTime();
+        boolean locked = delegate.tryLockDirectoryShared();
+        if (locked) {
+            sharedSince.get()[0] = acquired(start);
+        }
+        return locked;
+    }
+
+    @Override
+    public void releaseDirectoryShared() throws IOException {
+        long since = sharedSince.get()[0];
+        delegate.releaseDirectoryShared();
+        metrics.record(DirectoryMetrics.Operation.LOCK_HOLD, System.nanoTime() - since, -1);
+    }
+
+    private long acquired(long start) {
+        long now = System.nanoTime();
+        metrics.record(DirectoryMetrics.Operation.LOCK_WAIT, now - start, -1);
+        return now;
+    }
+}
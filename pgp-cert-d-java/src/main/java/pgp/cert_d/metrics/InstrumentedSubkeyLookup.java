@@ -0,0 +1,66 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.metrics;
+
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link SubkeyLookup} decorator which records query and store times.
+ */
+final class InstrumentedSubkeyLookup implements SubkeyLookup {
+
+    private final SubkeyLookup delegate;
+    private final DirectoryMetrics metrics;
+
+    InstrumentedSubkeyLookup(SubkeyLookup delegate, DirectoryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getCertificateFingerprintsForSubkeyId(subkeyId);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.SUBKEY_LOOKUP_QUERY, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyIds(long... subkeyIds) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getCertificateFingerprintsForSubkeyIds(subkeyIds);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.SUBKEY_LOOKUP_QUERY, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.storeCertificateSubkeyIds(certificate, subkeyIds);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.SUBKEY_LOOKUP_STORE, System.nanoTime() - start, -1);
+        }
+    }
+
+    @Override
+    public void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.storeCertificatesSubkeyIds(certificateSubkeyIds);
+        } finally {
+            metrics.record(DirectoryMetrics.Operation.SUBKEY_LOOKUP_STORE, System.nanoTime() - start, -1);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+/**
+ * Instrumentation of certificate directory operations.
+ */
+package pgp.cert_d.metrics;
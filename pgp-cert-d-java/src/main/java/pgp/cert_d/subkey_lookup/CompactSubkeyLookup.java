@@ -0,0 +1,401 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.subkey_lookup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Memory efficient in-memory implementation of the {@link SubkeyLookup}.
+ * Contrary to {@link InMemorySubkeyLookup}, this implementation does not box subkey-ids and does not keep
+ * a set of fingerprint {@link String Strings} per subkey.
+ * Instead, fingerprints are interned once in their binary form (20 or 32 bytes) and referenced by an int handle.
+ * Subkey-ids are mapped to handles using an open-addressing hash table, which uses one long and one int per mapping.
+ *
+ * Optionally, all tables can be stored off-heap in direct {@link ByteBuffer ByteBuffers}, so that large indices
+ * do not burden the garbage collector.
+ *
+ * Since fingerprints are stored in binary, only hex encoded fingerprints of up to 32 bytes are supported and
+ * fingerprints are always returned in lowercase.
+ * This class is thread-safe.
+ */
+public class CompactSubkeyLookup implements SubkeyLookup {
+
+    /**
+     * Where to store the index.
+     */
+    public enum Storage {
+        /**
+         * Store the index in primitive arrays on the Java heap.
+         */
+        HEAP,
+        /**
+         * Store the index in direct {@link ByteBuffer ByteBuffers} outside the Java heap.
+         */
+        OFF_HEAP
+    }
+
+    // length byte + fingerprint
+    private static final int FINGERPRINT_SLOT_SIZE = FingerprintEncoding.MAX_LENGTH + 1;
+    private static final int MAX_FINGERPRINTS = Integer.MAX_VALUE / FINGERPRINT_SLOT_SIZE;
+    // largest power of two, such that a direct LongBuffer with this many entries can be allocated
+    private static final int MAX_TABLE_CAPACITY = 1 << 27;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Storage storage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // interned fingerprints, the fingerprint with handle h is stored in slot h - 1
+    private ByteBuffer fingerprints;
+    private int fingerprintCount;
+    // open-addressing table of fingerprint handles, 0 marks an empty slot
+    private IntBuffer fingerprintTable;
+
+    // open-addressing multimap of subkey-ids to fingerprint handles with one slot per mapping,
+    // handle 0 marks an empty slot
+    private LongBuffer subkeyIds;
+    private IntBuffer subkeyHandles;
+    private int mappingCount;
+
+    /**
+     * Create an empty on-heap index.
+     */
+    public CompactSubkeyLookup() {
+        this(Storage.HEAP);
+    }
+
+    /**
+     * Create an empty index using the given storage.
+     *
+     * @param storage storage
+     */
+    public CompactSubkeyLookup(Storage storage) {
+        this.storage = storage;
+        reset();
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) {
+        lock.readLock().lock();
+        try {
+            Set<String> fingerprints = collect(subkeyId, null);
+            return fingerprints == null ? Collections.emptySet() : Collections.unmodifiableSet(fingerprints);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyIds(long... subkeyIds) {
+        lock.readLock().lock();
+        try {
+            Set<String> fingerprints = null;
+            for (long subkeyId : subkeyIds) {
+                fingerprints = collect(subkeyId, fingerprints);
+            }
+            return fingerprints == null ? Collections.emptySet() : Collections.unmodifiableSet(fingerprints);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add the fingerprints of all certificates containing the given subkey to the given set.
+     * Must be called while holding the read lock.
+     *
+     * @param subkeyId subkey-id
+     * @param fingerprints set of fingerprints, or null
+     * @return set of fingerprints, or null if the given set was null and no fingerprint was found
+     */
+    private Set<String> collect(long subkeyId, Set<String> fingerprints) {
+        int mask = subkeyHandles.capacity() - 1;
+        for (int i = mix(subkeyId) & mask; ; i = (i + 1) & mask) {
+            int handle = subkeyHandles.get(i);
+            if (handle == 0) {
+                return fingerprints;
+            }
+            if (subkeyIds.get(i) == subkeyId) {
+                if (fingerprints == null) {
+                    fingerprints = new HashSet<>();
+                }
+                fingerprints.add(fingerprintToString(handle));
+            }
+        }
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) {
+        byte[] fingerprint = FingerprintEncoding.decode(certificate);
+        lock.writeLock().lock();
+        try {
+            store(fingerprint, subkeyIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) {
+        // decode all fingerprints up front, so that malformed input does not result in a partial update
+        byte[][] fingerprints = new byte[certificateSubkeyIds.size()][];
+        int index = 0;
+        for (String certificate : certificateSubkeyIds.keySet()) {
+            fingerprints[index++] = FingerprintEncoding.decode(certificate);
+        }
+
+        lock.writeLock().lock();
+        try {
+            index = 0;
+            for (List<Long> subkeyIds : certificateSubkeyIds.values()) {
+                store(fingerprints[index++], subkeyIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of stored subkey-id to certificate mappings.
+     *
+     * @return number of mappings
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return mappingCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of distinct certificate fingerprints.
+     *
+     * @return number of certificates
+     */
+    public int certificateCount() {
+        lock.readLock().lock();
+        try {
+            return fingerprintCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all mappings and release the memory held by the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reset() {
+        fingerprints = allocateBytes(INITIAL_CAPACITY * FINGERPRINT_SLOT_SIZE);
+        fingerprintCount = 0;
+        fingerprintTable = allocateInts(INITIAL_CAPACITY);
+        subkeyIds = allocateLongs(INITIAL_CAPACITY);
+        subkeyHandles = allocateInts(INITIAL_CAPACITY);
+        mappingCount = 0;
+    }
+
+    private void store(byte[] fingerprint, List<Long> subkeyIds) {
+        int handle = intern(fingerprint);
+        for (long subkeyId : subkeyIds) {
+            put(subkeyId, handle);
+        }
+    }
+
+    private void put(long subkeyId, int handle) {
+        if (isAboveLoadFactor(mappingCount + 1, subkeyHandles.capacity())) {
+            growSubkeyTable();
+        }
+        int mask = subkeyHandles.capacity() - 1;
+        for (int i = mix(subkeyId) & mask; ; i = (i + 1) & mask) {
+            int existing = subkeyHandles.get(i);
+            if (existing == 0) {
+                subkeyIds.put(i, subkeyId);
+                subkeyHandles.put(i, handle);
+                mappingCount++;
+                return;
+            }
+            if (existing == handle && subkeyIds.get(i) == subkeyId) {
+                // duplicate
+                return;
+            }
+        }
+    }
+
+    private void growSubkeyTable() {
+        int capacity = subkeyHandles.capacity();
+        if (capacity >= MAX_TABLE_CAPACITY) {
+            throw new IllegalStateException("Subkey index exceeds its maximum capacity.");
+        }
+        LongBuffer oldIds = subkeyIds;
+        IntBuffer oldHandles = subkeyHandles;
+        subkeyIds = allocateLongs(capacity * 2);
+        subkeyHandles = allocateInts(capacity * 2);
+        int mask = subkeyHandles.capacity() - 1;
+        for (int j = 0; j < capacity; j++) {
+            int handle = oldHandles.get(j);
+            if (handle == 0) {
+                continue;
+            }
+            long subkeyId = oldIds.get(j);
+            int i = mix(subkeyId) & mask;
+            while (subkeyHandles.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            subkeyIds.put(i, subkeyId);
+            subkeyHandles.put(i, handle);
+        }
+    }
+
+    private int intern(byte[] fingerprint) {
+        if (isAboveLoadFactor(fingerprintCount + 1, fingerprintTable.capacity())) {
+            growFingerprintTable();
+        }
+        int mask = fingerprintTable.capacity() - 1;
+        int i = hash(fingerprint) & mask;
+        for (; ; i = (i + 1) & mask) {
+            int handle = fingerprintTable.get(i);
+            if (handle == 0) {
+                break;
+            }
+            if (fingerprintEquals(handle, fingerprint)) {
+                return handle;
+            }
+        }
+
+        if (fingerprintCount == MAX_FINGERPRINTS) {
+            throw new IllegalStateException("Subkey index exceeds its maximum number of certificates.");
+        }
+        if ((fingerprintCount + 1) * FINGERPRINT_SLOT_SIZE > fingerprints.capacity()) {
+            growFingerprints();
+        }
+        int offset = fingerprintCount * FINGERPRINT_SLOT_SIZE;
+        fingerprints.put(offset, (byte) fingerprint.length);
+        for (int j = 0; j < fingerprint.length; j++) {
+            fingerprints.put(offset + 1 + j, fingerprint[j]);
+        }
+        int handle = ++fingerprintCount;
+        fingerprintTable.put(i, handle);
+        return handle;
+    }
+
+    private void growFingerprints() {
+        long capacity = Math.min((long) fingerprints.capacity() * 2,
+                (long) MAX_FINGERPRINTS * FINGERPRINT_SLOT_SIZE);
+        ByteBuffer grown = allocateBytes((int) capacity);
+        int used = fingerprintCount * FINGERPRINT_SLOT_SIZE;
+        ByteBuffer source = fingerprints.duplicate();
+        source.position(0);
+        source.limit(used);
+        grown.put(source);
+        // only absolute access is used on the fingerprint buffer, keep its position at 0
+        grown.rewind();
+        fingerprints = grown;
+    }
+
+    private void growFingerprintTable() {
+        int capacity = fingerprintTable.capacity();
+        if (capacity >= MAX_TABLE_CAPACITY) {
+            throw new IllegalStateException("Subkey index exceeds its maximum number of certificates.");
+        }
+        fingerprintTable = allocateInts(capacity * 2);
+        int mask = fingerprintTable.capacity() - 1;
+        for (int handle = 1; handle <= fingerprintCount; handle++) {
+            int i = hash(fingerprintBytes(handle)) & mask;
+            while (fingerprintTable.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            fingerprintTable.put(i, handle);
+        }
+    }
+
+    private boolean fingerprintEquals(int handle, byte[] fingerprint) {
+        int offset = (handle - 1) * FINGERPRINT_SLOT_SIZE;
+        if (fingerprints.get(offset) != fingerprint.length) {
+            return false;
+        }
+        for (int j = 0; j < fingerprint.length; j++) {
+            if (fingerprints.get(offset + 1 + j) != fingerprint[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] fingerprintBytes(int handle) {
+        int offset = (handle - 1) * FINGERPRINT_SLOT_SIZE;
+        byte[] fingerprint = new byte[fingerprints.get(offset)];
+        for (int j = 0; j < fingerprint.length; j++) {
+            fingerprint[j] = fingerprints.get(offset + 1 + j);
+        }
+        return fingerprint;
+    }
+
+    private String fingerprintToString(int handle) {
+        int offset = (handle - 1) * FINGERPRINT_SLOT_SIZE;
+        return FingerprintEncoding.encode(fingerprints, offset + 1, fingerprints.get(offset));
+    }
+
+    private static boolean isAboveLoadFactor(int size, int capacity) {
+        // load factor of 0.75
+        return size > capacity - (capacity >>> 2);
+    }
+
+    private static int mix(long value) {
+        // finalizer of MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+    private static int hash(byte[] fingerprint) {
+        long hash = fingerprint.length;
+        for (byte b : fingerprint) {
+            hash = hash * 31 + b;
+        }
+        return mix(hash);
+    }
+
+    private ByteBuffer allocateBytes(int capacity) {
+        if (storage == Storage.OFF_HEAP) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        return ByteBuffer.allocate(capacity);
+    }
+
+    private IntBuffer allocateInts(int capacity) {
+        if (storage == Storage.OFF_HEAP) {
+            return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntBuffer.allocate(capacity);
+    }
+
+    private LongBuffer allocateLongs(int capacity) {
+        if (storage == Storage.OFF_HEAP) {
+            return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        return LongBuffer.allocate(capacity);
+    }
+}
@@ -0,0 +1,28 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.subkey_lookup;
+
+import java.io.File;
+
+/**
+ * Factory class to instantiate {@link CompactSubkeyLookup} objects.
+ */
+public class CompactSubkeyLookupFactory implements SubkeyLookupFactory {
+
+    private final CompactSubkeyLookup.Storage storage;
+
+    public CompactSubkeyLookupFactory() {
+        this(CompactSubkeyLookup.Storage.HEAP);
+    }
+
+    public CompactSubkeyLookupFactory(CompactSubkeyLookup.Storage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public SubkeyLookup createFileBasedInstance(File baseDirectory) {
+        return new CompactSubkeyLookup(storage);
+    }
+}
@@ -0,0 +1,69 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.subkey_lookup;
+
+import pgp.cert_d.Fingerprint;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Conversion between hex encoded fingerprints and their binary representation used by the compact subkey indices.
+ * Fingerprints are validated and converted by {@link Fingerprint}, so that the indices accept exactly the
+ * fingerprints accepted by the directory.
+ */
+final class FingerprintEncoding {
+
+    /**
+     * Maximum length of a binary fingerprint (v6 fingerprints are 32 bytes long).
+     */
+    static final int MAX_LENGTH = Fingerprint.V6_LENGTH;
+
+    private FingerprintEncoding() {
+
+    }
+
+    /**
+     * Decode a hex encoded fingerprint.
+     *
+     * @param fingerprint hex encoded fingerprint
+     * @return binary fingerprint
+     * @throws IllegalArgumentException if the fingerprint is not a lower-case hex OpenPGP v4 or v6 fingerprint
+     */
+    static byte[] decode(String fingerprint) {
+        try {
+            return Fingerprint.fromHex(fingerprint).getBytes();
+        } catch (BadNameException e) {
+            throw new IllegalArgumentException("Malformed certificate fingerprint: " + fingerprint, e);
+        }
+    }
+
+    /**
+     * Return true, if the given length is the length of a binary OpenPGP v4 or v6 fingerprint.
+     *
+     * @param length length in bytes
+     * @return true if the length is valid
+     */
+    static boolean isValidLength(int length) {
+        return length == Fingerprint.V4_LENGTH || length == Fingerprint.V6_LENGTH;
+    }
+
+    /**
+     * Encode the binary fingerprint stored at the given position of the buffer as lowercase hex.
+     *
+     * @param buffer buffer
+     * @param offset absolute offset of the fingerprint in the buffer
+     * @param length length of the fingerprint in bytes
+     * @return hex encoded fingerprint
+     * @throws IllegalArgumentException if the length does not match an OpenPGP v4 or v6 fingerprint
+     */
+    static String encode(ByteBuffer buffer, int offset, int length) {
+        byte[] fingerprint = new byte[length];
+        for (int j = 0; j < length; j++) {
+            fingerprint[j] = buffer.get(offset + j);
+        }
+        return Fingerprint.fromBytes(fingerprint).toString();
+    }
+}
@@ -5,15 +5,18 @@
 package pgp.cert_d.subkey_lookup;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Simple in-memory implementation of the {@link SubkeyLookup} backed by a map.
+ * For large indices, consider using the more memory efficient {@link CompactSubkeyLookup} instead.
+ */
 public class InMemorySubkeyLookup implements SubkeyLookup {
 
-    private static final Map<Long, Set<String>> subkeyMap = new HashMap<>();
+    private final ConcurrentMap<Long, Set<String>> subkeyMap = new ConcurrentHashMap<>();
 
     @Override
     public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) {
@@ -27,13 +30,8 @@ public class InMemorySubkeyLookup implements SubkeyLookup {
     @Override
     public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) {
         for (long subkeyId : subkeyIds) {
-            Set<String> certificates = subkeyMap.get(subkeyId);
-            // noinspection Java8MapApi
-            if (certificates == null) {
-                certificates = new HashSet<>();
-                subkeyMap.put(subkeyId, certificates);
-            }
-            certificates.add(certificate);
+            subkeyMap.computeIfAbsent(subkeyId, id -> ConcurrentHashMap.newKeySet())
+                    .add(certificate);
         }
     }
 
@@ -0,0 +1,486 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.subkey_lookup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent implementation of the {@link SubkeyLookup}, which does not require any native dependencies.
+ *
+ * Mappings are stored in an index file of fixed-size records sorted by subkey-id, which is memory-mapped and
+ * queried using binary search, so opening an index does not require loading it into the heap.
+ * New mappings are appended to a log file next to the index and are additionally kept in a
+ * {@link CompactSubkeyLookup}.
+ * Once the log contains {@link #getCompactionThreshold()} records, it is merged into a new index file,
+ * which atomically replaces the old one.
+ *
+ * The log is not synced to disk on every update, so mappings stored shortly before a system crash may be lost.
+ * The index is opened exclusively; an exclusive lock on a lock file next to the index is held until the lookup is
+ * closed, so that opening the same index from another instance or process fails.
+ */
+public class MappedSubkeyLookup implements SubkeyLookup, Closeable {
+
+    /**
+     * Default name of the index file. The log file has the same name with the suffix {@value #LOG_SUFFIX}.
+     */
+    public static final String DEFAULT_INDEX_FILE_NAME = "_pgpainless_subkey_index.bin";
+
+    /**
+     * Suffix of the log file.
+     */
+    public static final String LOG_SUFFIX = ".log";
+
+    /**
+     * Suffix of the lock file, which prevents the index from being opened by multiple instances.
+     */
+    public static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * Default number of log records after which the log is merged into the index.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1 << 16;
+
+    // "SKIX"
+    private static final int MAGIC = 0x534b4958;
+    private static final int VERSION = 1;
+    // magic, version, record count
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    // subkey-id, fingerprint length, fingerprint padded to the maximum length
+    private static final int RECORD_SIZE = 8 + 1 + FingerprintEncoding.MAX_LENGTH;
+    private static final int BUFFER_RECORDS = 1024;
+
+    private final Path indexFile;
+    private final Path logFile;
+    private final int compactionThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+
+    private MappedByteBuffer index;
+    private int indexRecords;
+    private FileChannel log;
+    private int logRecords;
+    private final CompactSubkeyLookup pending = new CompactSubkeyLookup();
+
+    /**
+     * Open or create the index with the default file name in the given directory.
+     *
+     * @param baseDirectory directory
+     * @throws IOException if the index cannot be opened, or is already opened by another instance
+     */
+    public MappedSubkeyLookup(File baseDirectory) throws IOException {
+        this(new File(baseDirectory, DEFAULT_INDEX_FILE_NAME).toPath(), DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Open or create the index stored in the given file.
+     *
+     * @param indexFile index file
+     * @param compactionThreshold number of log records after which the log is merged into the index
+     * @throws IOException if the index cannot be opened, or is already opened by another instance
+     */
+    public MappedSubkeyLookup(Path indexFile, int compactionThreshold) throws IOException {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("Compaction threshold MUST be positive.");
+        }
+        this.indexFile = indexFile;
+        this.logFile = indexFile.resolveSibling(indexFile.getFileName() + LOG_SUFFIX);
+        this.compactionThreshold = compactionThreshold;
+
+        lockChannel = FileChannel.open(indexFile.resolveSibling(indexFile.getFileName() + LOCK_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            fileLock = tryLock(lockChannel);
+            if (fileLock == null) {
+                throw new IOException("Subkey index " + indexFile + " is already opened by another instance.");
+            }
+            open();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        if (Files.exists(indexFile)) {
+            mapIndex();
+        }
+        replayLog();
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            // drop a partially written record
+            log.truncate((long) logRecords * RECORD_SIZE);
+            log.position(log.size());
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // already locked by this JVM
+            return null;
+        }
+    }
+
+    @Override
+    public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Set<String> fingerprints = new HashSet<>(pending.getCertificateFingerprintsForSubkeyId(subkeyId));
+            for (int i = lowerBound(subkeyId); i < indexRecords && subkeyIdAt(i) == subkeyId; i++) {
+                int offset = recordOffset(i);
+                fingerprints.add(FingerprintEncoding.encode(index, offset + 9, index.get(offset + 8)));
+            }
+            return Collections.unmodifiableSet(fingerprints);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+        storeCertificatesSubkeyIds(Collections.singletonMap(certificate, subkeyIds));
+    }
+
+    @Override
+    public void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) throws IOException {
+        byte[][] fingerprints = new byte[certificateSubkeyIds.size()][];
+        int certificateIndex = 0;
+        for (String certificate : certificateSubkeyIds.keySet()) {
+            fingerprints[certificateIndex++] = FingerprintEncoding.decode(certificate);
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            ByteBuffer records = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+            Map<String, List<Long>> added = new LinkedHashMap<>();
+            int appended = 0;
+            certificateIndex = 0;
+            for (Map.Entry<String, List<Long>> entry : certificateSubkeyIds.entrySet()) {
+                byte[] fingerprint = fingerprints[certificateIndex++];
+                List<Long> addedSubkeyIds = new ArrayList<>();
+                for (long subkeyId : entry.getValue()) {
+                    if (addedSubkeyIds.contains(subkeyId) || contains(subkeyId, entry.getKey(), fingerprint)) {
+                        // skip known mappings, so that re-inserting certificates does not grow the log
+                        continue;
+                    }
+                    if (!records.hasRemaining()) {
+                        writeLog(records);
+                    }
+                    putRecord(records, subkeyId, fingerprint);
+                    addedSubkeyIds.add(subkeyId);
+                }
+                if (!addedSubkeyIds.isEmpty()) {
+                    added.put(entry.getKey(), addedSubkeyIds);
+                    appended += addedSubkeyIds.size();
+                }
+            }
+            writeLog(records);
+            pending.storeCertificatesSubkeyIds(added);
+            logRecords += appended;
+
+            if (logRecords >= compactionThreshold) {
+                compactLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merge the log into the index file.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of log records after which the log is merged into the index.
+     *
+     * @return compaction threshold
+     */
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Flush the log to disk and release the index and lock files.
+     *
+     * @throws IOException if the log cannot be flushed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (log == null) {
+                return;
+            }
+            try {
+                log.force(false);
+            } finally {
+                log.close();
+                log = null;
+                index = null;
+                indexRecords = 0;
+                try {
+                    fileLock.release();
+                } finally {
+                    lockChannel.close();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (log == null) {
+            throw new IOException("Subkey index is closed.");
+        }
+    }
+
+    private boolean contains(long subkeyId, String certificate, byte[] fingerprint) {
+        if (pending.getCertificateFingerprintsForSubkeyId(subkeyId).contains(certificate)) {
+            return true;
+        }
+        for (int i = lowerBound(subkeyId); i < indexRecords && subkeyIdAt(i) == subkeyId; i++) {
+            if (fingerprintEquals(index, recordOffset(i) + 8, fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compactLocked() throws IOException {
+        if (logRecords == 0) {
+            return;
+        }
+        // Sort log records, then merge them with the sorted index
+        ByteBuffer logBuffer = readLog();
+        Integer[] logOrder = new Integer[logRecords];
+        for (int i = 0; i < logOrder.length; i++) {
+            logOrder[i] = i * RECORD_SIZE;
+        }
+        Arrays.sort(logOrder, (a, b) -> compareRecords(logBuffer, a, logBuffer, b));
+
+        long totalRecords = (long) indexRecords + logRecords;
+        if (HEADER_SIZE + totalRecords * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Subkey index exceeds its maximum size.");
+        }
+
+        Path tempFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(),
+                "." + indexFile.getFileName(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                out.position(HEADER_SIZE);
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+                ByteBuffer previous = ByteBuffer.allocate(RECORD_SIZE);
+                int written = 0;
+                int i = 0;
+                int j = 0;
+                while (i < indexRecords || j < logRecords) {
+                    ByteBuffer source;
+                    int offset;
+                    if (j == logRecords || (i < indexRecords &&
+                            compareRecords(index, recordOffset(i), logBuffer, logOrder[j]) <= 0)) {
+                        source = index;
+                        offset = recordOffset(i++);
+                    } else {
+                        source = logBuffer;
+                        offset = logOrder[j++];
+                    }
+                    if (written != 0 && compareRecords(previous, 0, source, offset) == 0) {
+                        // duplicate
+                        continue;
+                    }
+                    for (int k = 0; k < RECORD_SIZE; k++) {
+                        previous.put(k, source.get(offset + k));
+                    }
+                    if (!buffer.hasRemaining()) {
+                        writeFully(out, buffer);
+                    }
+                    putRecord(buffer, previous);
+                    written++;
+                }
+                writeFully(out, buffer);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putLong(written);
+                header.flip();
+                while (header.hasRemaining()) {
+                    out.write(header, HEADER_SIZE - header.remaining());
+                }
+                out.force(true);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        // The new index contains all log records, so a crash before truncating the log only causes duplicates
+        mapIndex();
+        log.truncate(0);
+        log.position(0);
+        logRecords = 0;
+        pending.clear();
+    }
+
+    private void mapIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Subkey index file " + indexFile + " is truncated.");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("File " + indexFile + " is not a subkey index.");
+            }
+            if (mapped.getInt(4) != VERSION) {
+                throw new IOException("Unsupported subkey index version " + mapped.getInt(4) + ".");
+            }
+            long records = mapped.getLong(8);
+            if (records < 0 || HEADER_SIZE + records * RECORD_SIZE > channel.size()) {
+                throw new IOException("Subkey index file " + indexFile + " is truncated.");
+            }
+            index = mapped;
+            indexRecords = (int) records;
+        }
+    }
+
+    private void replayLog() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        logRecords = (int) (Files.size(logFile) / RECORD_SIZE);
+        ByteBuffer records = readLog();
+        for (int i = 0; i < logRecords; i++) {
+            int offset = i * RECORD_SIZE;
+            int length = records.get(offset + 8);
+            if (!FingerprintEncoding.isValidLength(length)) {
+                // garbage after a crash, discard the remaining log
+                logRecords = i;
+                break;
+            }
+            pending.storeCertificateSubkeyIds(FingerprintEncoding.encode(records, offset + 9, length),
+                    Collections.singletonList(records.getLong(offset)));
+        }
+    }
+
+    private ByteBuffer readLog() throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(logRecords * RECORD_SIZE);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            while (records.hasRemaining()) {
+                if (channel.read(records, records.position()) < 0) {
+                    throw new IOException("Unexpected end of subkey index log " + logFile + ".");
+                }
+            }
+        }
+        return records;
+    }
+
+    private void writeLog(ByteBuffer records) throws IOException {
+        writeFully(log, records);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putRecord(ByteBuffer buffer, long subkeyId, byte[] fingerprint) {
+        buffer.putLong(subkeyId);
+        buffer.put((byte) fingerprint.length);
+        buffer.put(fingerprint);
+        for (int k = fingerprint.length; k < FingerprintEncoding.MAX_LENGTH; k++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, ByteBuffer record) {
+        for (int k = 0; k < RECORD_SIZE; k++) {
+            buffer.put(record.get(k));
+        }
+    }
+
+    private int lowerBound(long subkeyId) {
+        int low = 0;
+        int high = indexRecords;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (subkeyIdAt(mid) < subkeyId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long subkeyIdAt(int record) {
+        return index.getLong(recordOffset(record));
+    }
+
+    private static int recordOffset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static boolean fingerprintEquals(ByteBuffer buffer, int offset, byte[] fingerprint) {
+        if (buffer.get(offset) != fingerprint.length) {
+            return false;
+        }
+        for (int k = 0; k < fingerprint.length; k++) {
+            if (buffer.get(offset + 1 + k) != fingerprint[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compareRecords(ByteBuffer a, int offsetA, ByteBuffer b, int offsetB) {
+        int result = Long.compare(a.getLong(offsetA), b.getLong(offsetB));
+        for (int k = 8; result == 0 && k < RECORD_SIZE; k++) {
+            result = Byte.compare(a.get(offsetA + k), b.get(offsetB + k));
+        }
+        return result;
+    }
+}
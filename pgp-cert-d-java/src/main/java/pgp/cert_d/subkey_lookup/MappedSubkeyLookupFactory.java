@@ -0,0 +1,39 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d.subkey_lookup;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Factory class to instantiate {@link MappedSubkeyLookup} objects, which store their index inside the
+ * base directory.
+ */
+public class MappedSubkeyLookupFactory implements SubkeyLookupFactory {
+
+    private final String indexFileName;
+    private final int compactionThreshold;
+
+    public MappedSubkeyLookupFactory() {
+        this(MappedSubkeyLookup.DEFAULT_INDEX_FILE_NAME, MappedSubkeyLookup.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public MappedSubkeyLookupFactory(String indexFileName, int compactionThreshold) {
+        this.indexFileName = indexFileName;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public SubkeyLookup createFileBasedInstance(File baseDirectory) {
+        try {
+            if (!baseDirectory.exists()) {
+                baseDirectory.mkdirs();
+            }
+            return new MappedSubkeyLookup(new File(baseDirectory, indexFileName).toPath(), compactionThreshold);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -4,8 +4,12 @@
 
 package pgp.cert_d.subkey_lookup;
 
+import pgp.cert_d.Fingerprint;
+
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface SubkeyLookup {
@@ -21,6 +25,23 @@ public interface SubkeyLookup {
      */
     Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException;
 
+    /**
+     * Lookup the fingerprints of all certificates that contain any of the given subkeys.
+     * Implementations should override this method to resolve all subkey-ids in a single query.
+     *
+     * @param subkeyIds subkey ids
+     * @return fingerprints of the certificates
+     *
+     * @throws IOException in case of an IO error
+     */
+    default Set<String> getCertificateFingerprintsForSubkeyIds(long... subkeyIds) throws IOException {
+        Set<String> fingerprints = new HashSet<>();
+        for (long subkeyId : subkeyIds) {
+            fingerprints.addAll(getCertificateFingerprintsForSubkeyId(subkeyId));
+        }
+        return fingerprints;
+    }
+
     /**
      * Record, which certificate the subkey-ids in the list belong to.
      * This method does not change the affiliation of subkey-ids not contained in the provided list.
@@ -31,4 +52,31 @@ public interface SubkeyLookup {
      * @throws IOException in case of an IO error
      */
     void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException;
+
+    /**
+     * Record, which certificate the subkey-ids in the list belong to.
+     * The default implementation delegates to {@link #storeCertificateSubkeyIds(String, List)}.
+     *
+     * @param certificate certificate fingerprint
+     * @param subkeyIds subkey ids
+     *
+     * @throws IOException in case of an IO error
+     */
+    default void storeCertificateSubkeyIds(Fingerprint certificate, List<Long> subkeyIds) throws IOException {
+        storeCertificateSubkeyIds(certificate.toString(), subkeyIds);
+    }
+
+    /**
+     * Record, which certificates the subkey-ids in the map belong to.
+     * Implementations should override this method to store all records in a single batch.
+     *
+     * @param certificateSubkeyIds map of certificate fingerprints to subkey ids
+     *
+     * @throws IOException in case of an IO error
+     */
+    default void storeCertificatesSubkeyIds(Map<String, List<Long>> certificateSubkeyIds) throws IOException {
+        for (Map.Entry<String, List<Long>> entry : certificateSubkeyIds.entrySet()) {
+            storeCertificateSubkeyIds(entry.getKey(), entry.getValue());
+        }
+    }
 }
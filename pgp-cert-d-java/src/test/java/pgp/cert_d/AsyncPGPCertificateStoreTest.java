@@ -0,0 +1,103 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.certificate_store.AsyncPGPCertificateStore;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncPGPCertificateStoreTest {
+
+    private static final TestKeyMaterialMerger merger = new TestKeyMaterialMerger();
+
+    private PGPCertificateDirectory directory;
+    private AsyncPGPCertificateStore store;
+
+    @BeforeEach
+    public void setup() {
+        directory = PGPCertificateDirectories.inMemoryCertificateDirectory(new TestKeyMaterialReaderBackend());
+        store = new AsyncPGPCertificateStore(new PGPCertificateStoreAdapter(directory));
+    }
+
+    @Test
+    public void insertAndLookup() throws Exception {
+        Certificate ron = store.insertCertificate(TestKeys.getRonCert(), merger).get(10, TimeUnit.SECONDS);
+        assertEquals(TestKeys.RON_FP, ron.getFingerprint());
+
+        List<Certificate> inserted = store.insertCertificates(
+                Arrays.asList(TestKeys.getCedricCert()), merger).get(10, TimeUnit.SECONDS);
+        assertEquals(TestKeys.CEDRIC_FP, inserted.get(0).getFingerprint());
+
+        assertEquals(TestKeys.RON_FP, store.getCertificate(TestKeys.RON_FP).get(10, TimeUnit.SECONDS).getFingerprint());
+        assertNull(store.getCertificateIfChanged(TestKeys.RON_FP, ron.getTag()).get(10, TimeUnit.SECONDS));
+
+        Iterator<Certificate> bySubkey = store.getCertificatesBySubkeyId(ron.getSubkeyIds().get(0))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(TestKeys.RON_FP, bySubkey.next().getFingerprint());
+        assertFalse(bySubkey.hasNext());
+
+        store.insertCertificateBySpecialName(SpecialNames.TRUST_ROOT, TestKeys.getHarryKey(), merger)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(TestKeys.HARRY_FP, store.getCertificate(SpecialNames.TRUST_ROOT).get(10, TimeUnit.SECONDS)
+                .getFingerprint());
+    }
+
+    @Test
+    public void checkedExceptionsCompleteFutureExceptionally() {
+        ExecutionException badName = assertThrows(ExecutionException.class,
+                () -> store.getCertificate("XYZ").get(10, TimeUnit.SECONDS));
+        assertTrue(badName.getCause() instanceof BadNameException);
+
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> store.getCertificate(TestKeys.RON_FP).get(10, TimeUnit.SECONDS));
+        assertTrue(missing.getCause() instanceof NoSuchElementException);
+
+        ExecutionException badData = assertThrows(ExecutionException.class,
+                () -> store.insertCertificate(new ByteArrayInputStream(new byte[] {1, 2, 3}), merger)
+                        .get(10, TimeUnit.SECONDS));
+        assertTrue(badData.getCause() instanceof BadDataException);
+    }
+
+    @Test
+    public void insertWaitsForWriteLockWithoutBlockingCaller() throws Exception {
+        directory.backend.getLock().lockDirectory();
+        CompletableFuture<Certificate> pending = store.insertCertificate(TestKeys.getRonCert(), merger);
+        Thread.sleep(100);
+        assertFalse(pending.isDone());
+
+        directory.backend.getLock().releaseDirectory();
+        assertEquals(TestKeys.RON_FP, pending.get(10, TimeUnit.SECONDS).getFingerprint());
+    }
+
+    @Test
+    public void rejectedExecutionCompletesFutureExceptionally() {
+        AsyncPGPCertificateStore rejecting = new AsyncPGPCertificateStore(new PGPCertificateStoreAdapter(directory),
+                command -> {
+                    throw new RejectedExecutionException();
+                });
+        assertTrue(rejecting.getCertificate(TestKeys.RON_FP).isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,184 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.bouncycastle.util.io.Streams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.backend.CachingCertificateDirectoryBackend;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+import pgp.certificate_store.exception.NotAStoreException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingCertificateDirectoryBackendTest {
+
+    private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
+
+    private final AtomicInteger parsed = new AtomicInteger();
+    private File baseDirectory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        baseDirectory = Files.createTempDirectory("caching-backend").toFile();
+        baseDirectory.deleteOnExit();
+        parsed.set(0);
+    }
+
+    private PGPCertificateDirectory directory(int maximumSize, long maximumWeight) throws NotAStoreException {
+        return directory(maximumSize, maximumWeight, FileBasedCertificateDirectoryBackend.ReadMode.EAGER);
+    }
+
+    private PGPCertificateDirectory directory(int maximumSize, long maximumWeight,
+                                              FileBasedCertificateDirectoryBackend.ReadMode readMode)
+            throws NotAStoreException {
+        KeyMaterialReaderBackend countingReader = new KeyMaterialReaderBackend() {
+            private final KeyMaterialReaderBackend reader = new TestKeyMaterialReaderBackend();
+
+            @Override
+            public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+                parsed.incrementAndGet();
+                return reader.read(data, tag);
+            }
+        };
+        return new PGPCertificateDirectory(
+                new CachingCertificateDirectoryBackend(
+                        new FileBasedCertificateDirectoryBackend(baseDirectory, countingReader,
+                                FileBasedCertificateDirectoryBackend.WriteMode.IN_PLACE,
+                                FileBasedCertificateDirectoryBackend.Durability.NONE, readMode),
+                        maximumSize, maximumWeight),
+                new InMemorySubkeyLookup());
+    }
+
+    @Test
+    public void unchangedCertificateIsNotParsedAgain()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        PGPCertificateDirectory directory = directory(10, Long.MAX_VALUE);
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), merger);
+        int parsedAfterInsert = parsed.get();
+
+        Certificate first = directory.getByFingerprint(TestKeys.RON_FP);
+        Certificate second = directory.getByFingerprint(TestKeys.RON_FP);
+        assertSame(inserted, first);
+        assertSame(first, second);
+        assertEquals(parsedAfterInsert, parsed.get());
+    }
+
+    @Test
+    public void changedCertificateIsParsedAgain()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        PGPCertificateDirectory directory = directory(10, Long.MAX_VALUE);
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), merger);
+        int parsedAfterInsert = parsed.get();
+
+        // Modify the file behind the caches back
+        Thread.sleep(10);
+        File certFile = new FileBasedCertificateDirectoryBackend.FilenameResolver(baseDirectory)
+                .getCertFileByFingerprint(TestKeys.RON_FP);
+        try (FileOutputStream out = new FileOutputStream(certFile)) {
+            Streams.pipeAll(inserted.getInputStream(), out);
+            out.write("\n".getBytes());
+        }
+
+        Certificate read = directory.getByFingerprint(TestKeys.RON_FP);
+        assertNotEquals(inserted.getTag(), read.getTag());
+        assertEquals(parsedAfterInsert + 1, parsed.get());
+
+        // Now it is cached again
+        assertSame(read, directory.getByFingerprint(TestKeys.RON_FP));
+        assertEquals(parsedAfterInsert + 1, parsed.get());
+    }
+
+    @Test
+    public void deletedCertificateIsEvicted()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        PGPCertificateDirectory directory = directory(10, Long.MAX_VALUE);
+        directory.insert(TestKeys.getRonCert(), merger);
+        File certFile = new FileBasedCertificateDirectoryBackend.FilenameResolver(baseDirectory)
+                .getCertFileByFingerprint(TestKeys.RON_FP);
+        assertTrue(certFile.delete());
+
+        assertThrows(NoSuchElementException.class, () -> directory.getByFingerprint(TestKeys.RON_FP));
+        assertEquals(0, ((CachingCertificateDirectoryBackend) directory.backend).size());
+    }
+
+    @Test
+    public void leastRecentlyUsedCertificateIsEvicted()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        PGPCertificateDirectory directory = directory(2, Long.MAX_VALUE);
+        CachingCertificateDirectoryBackend cache = (CachingCertificateDirectoryBackend) directory.backend;
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+        // Access Ron, so that Cedric is least recently used
+        directory.getByFingerprint(TestKeys.RON_FP);
+        directory.insert(TestKeys.getHarryKey(), merger);
+        assertEquals(2, cache.size());
+
+        int parsedBefore = parsed.get();
+        directory.getByFingerprint(TestKeys.RON_FP);
+        assertEquals(parsedBefore, parsed.get(), "Ron is still cached");
+        directory.getByFingerprint(TestKeys.CEDRIC_FP);
+        assertEquals(parsedBefore + 1, parsed.get(), "Cedric got evicted");
+    }
+
+    @Test
+    public void cachingDoesNotLoadLazyCertificate()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        PGPCertificateDirectory directory = directory(10, Long.MAX_VALUE,
+                FileBasedCertificateDirectoryBackend.ReadMode.LAZY);
+        CachingCertificateDirectoryBackend cache = (CachingCertificateDirectoryBackend) directory.backend;
+        directory.insert(TestKeys.getRonCert(), merger);
+        cache.invalidateAll();
+        int parsedBefore = parsed.get();
+
+        Certificate read = directory.getByFingerprint(TestKeys.RON_FP);
+        assertEquals(1, cache.size());
+        assertEquals(parsedBefore, parsed.get(), "Ron is weighed by its file size");
+        File certFile = new FileBasedCertificateDirectoryBackend.FilenameResolver(baseDirectory)
+                .getCertFileByFingerprint(TestKeys.RON_FP);
+        assertEquals(certFile.length(), cache.weight());
+
+        read.getSubkeyIds();
+        cache.invalidate(TestKeys.RON_FP);
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    public void cacheIsBoundedByWeight()
+            throws IOException, BadDataException, InterruptedException, BadNameException, NotAStoreException {
+        // Room for one, but not for two certificates
+        long maximumWeight = Math.max(TestKeys.RON_CERT.length(), TestKeys.CEDRIC_CERT.length()) + 1;
+        PGPCertificateDirectory directory = directory(100, maximumWeight);
+        CachingCertificateDirectoryBackend cache = (CachingCertificateDirectoryBackend) directory.backend;
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+        directory.getByFingerprint(TestKeys.RON_FP);
+        directory.getByFingerprint(TestKeys.CEDRIC_FP);
+
+        assertTrue(cache.weight() <= maximumWeight);
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,132 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import pgp.cert_d.subkey_lookup.CompactSubkeyLookup;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactSubkeyLookupTest {
+
+    private static final String V4_FP = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String V6_FP = "cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9";
+
+    @ParameterizedTest
+    @EnumSource(CompactSubkeyLookup.Storage.class)
+    public void storeManyMappings(CompactSubkeyLookup.Storage storage) {
+        CompactSubkeyLookup lookup = new CompactSubkeyLookup(storage);
+        int certificates = 5000;
+        for (int i = 0; i < certificates; i++) {
+            // subkey-id i is shared by certificates i and i - 1
+            lookup.storeCertificateSubkeyIds(fingerprint(i), Arrays.asList((long) i, (long) i + 1, -1L - i));
+        }
+        assertEquals(certificates, lookup.certificateCount());
+        assertEquals(3 * certificates, lookup.size());
+
+        assertEquals(Collections.singleton(fingerprint(0)), lookup.getCertificateFingerprintsForSubkeyId(0L));
+        for (int i = 1; i < certificates; i++) {
+            assertEquals(new HashSet<>(Arrays.asList(fingerprint(i - 1), fingerprint(i))),
+                    lookup.getCertificateFingerprintsForSubkeyId(i));
+            assertEquals(Collections.singleton(fingerprint(i)), lookup.getCertificateFingerprintsForSubkeyId(-1L - i));
+        }
+        assertTrue(lookup.getCertificateFingerprintsForSubkeyId(certificates + 1).isEmpty());
+
+        lookup.clear();
+        assertEquals(0, lookup.size());
+        assertTrue(lookup.getCertificateFingerprintsForSubkeyId(0L).isEmpty());
+    }
+
+    @Test
+    public void duplicatesAreStoredOnce() {
+        CompactSubkeyLookup lookup = new CompactSubkeyLookup();
+        lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(1L, 2L));
+        lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(2L, 3L));
+        assertEquals(3, lookup.size());
+        assertEquals(1, lookup.certificateCount());
+        assertEquals(Collections.singleton(V4_FP), lookup.getCertificateFingerprintsForSubkeyId(2L));
+    }
+
+    @Test
+    public void v6Fingerprints() {
+        CompactSubkeyLookup lookup = new CompactSubkeyLookup();
+        Map<String, List<Long>> batch = new LinkedHashMap<>();
+        batch.put(V4_FP, Collections.singletonList(42L));
+        batch.put(V6_FP, Collections.singletonList(42L));
+        lookup.storeCertificatesSubkeyIds(batch);
+        assertEquals(new HashSet<>(Arrays.asList(V4_FP, V6_FP)), lookup.getCertificateFingerprintsForSubkeyId(42L));
+    }
+
+    @Test
+    public void malformedFingerprintsAreRejected() {
+        CompactSubkeyLookup lookup = new CompactSubkeyLookup();
+        List<Long> ids = Collections.singletonList(1L);
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds("", ids));
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds("abc", ids));
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds("xyzw", ids));
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds(V6_FP + "00", ids));
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds(V4_FP.toUpperCase(), ids));
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificateSubkeyIds("0a0b", ids));
+
+        Map<String, List<Long>> batch = new LinkedHashMap<>();
+        batch.put(V4_FP, ids);
+        batch.put("not a fingerprint", ids);
+        assertThrows(IllegalArgumentException.class, () -> lookup.storeCertificatesSubkeyIds(batch));
+        // batch is rejected as a whole
+        assertEquals(0, lookup.size());
+    }
+
+    @Test
+    public void concurrentInsertsAndLookups() throws Exception {
+        CompactSubkeyLookup lookup = new CompactSubkeyLookup(CompactSubkeyLookup.Storage.OFF_HEAP);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = thread; i < 4000; i += 8) {
+                        lookup.storeCertificateSubkeyIds(fingerprint(i), Collections.singletonList((long) i));
+                        assertEquals(Collections.singleton(fingerprint(i)), lookup.getCertificateFingerprintsForSubkeyId(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4000, lookup.size());
+    }
+
+    @Test
+    public void inMemorySubkeyLookupInstancesAreIndependent() {
+        InMemorySubkeyLookup first = new InMemorySubkeyLookup();
+        InMemorySubkeyLookup second = new InMemorySubkeyLookup();
+        first.storeCertificateSubkeyIds(V4_FP, Collections.singletonList(1L));
+        assertTrue(second.getCertificateFingerprintsForSubkeyId(1L).isEmpty());
+    }
+
+    private static String fingerprint(int index) {
+        return String.format("%040x", index);
+    }
+}
@@ -0,0 +1,116 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentInMemoryCertificateDirectoryTest {
+
+    private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
+    @SuppressWarnings("CharsetObjectCanBeUsed")
+    private static final Charset UTF8 = Charset.forName("UTF8");
+
+    private PGPCertificateDirectory directory;
+
+    @BeforeEach
+    public void setup() {
+        directory = PGPCertificateDirectories.concurrentInMemoryCertificateDirectory(
+                new TestKeyMaterialReaderBackend());
+    }
+
+    @Test
+    public void concurrentInsertsAndReads() throws Exception {
+        String[] certs = new String[] {TestKeys.CEDRIC_CERT, TestKeys.RON_CERT};
+        String[] fingerprints = new String[] {TestKeys.CEDRIC_FP, TestKeys.RON_FP};
+        int threads = 8;
+        int rounds = 25;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t % certs.length;
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    Certificate inserted = directory.insert(stream(certs[index]), merger);
+                    assertEquals(fingerprints[index], inserted.getFingerprint());
+                    assertNotNull(directory.getByFingerprint(fingerprints[index]));
+                    directory.items().forEachRemaining(c -> assertNotNull(c.getFingerprint()));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int count = 0;
+        for (Certificate ignored : (Iterable<Certificate>) () -> directory.items()) {
+            count++;
+        }
+        assertEquals(2, count);
+        assertFalse(directory.getCertificateFingerprintsForSubkeyId(
+                directory.getByFingerprint(TestKeys.RON_FP).getSubkeyIds().get(0)).isEmpty());
+    }
+
+    @Test
+    public void tagsAreStrictlyIncreasing() throws Exception {
+        Long previous = null;
+        for (int i = 0; i < 100; i++) {
+            // alternate encodings, since unchanged certificates keep their tag
+            String encoding = i % 2 == 0 ? TestKeys.RON_CERT : TestKeys.RON_CERT + "\n";
+            Long tag = directory.insert(stream(encoding), merger).getTag();
+            if (previous != null) {
+                assertTrue(tag > previous);
+            }
+            previous = tag;
+        }
+    }
+
+    @Test
+    public void exclusiveLockBlocksSharedInsertLock() throws Exception {
+        PGPCertificateDirectory.LockingMechanism lock = directory.backend.getLock();
+        assertTrue(lock.tryLockDirectoryShared());
+        assertTrue(lock.tryLockDirectoryShared(), "Inserts share the lock");
+        assertFalse(lock.tryLockDirectory(), "Exclusive lock waits for running inserts");
+        lock.releaseDirectoryShared();
+        lock.releaseDirectoryShared();
+
+        lock.lockDirectory();
+        assertNull(directory.tryInsert(stream(TestKeys.RON_CERT), merger));
+        lock.releaseDirectory();
+        assertNotNull(directory.tryInsert(stream(TestKeys.RON_CERT), merger));
+    }
+
+    private static InputStream stream(String armored) {
+        return new ByteArrayInputStream(armored.getBytes(UTF8));
+    }
+}
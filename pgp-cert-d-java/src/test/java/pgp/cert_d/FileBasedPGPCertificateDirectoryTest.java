@@ -12,22 +12,41 @@ import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
 import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
 import pgp.certificate_store.certificate.KeyMaterialMerger;
 import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+import pgp.certificate_store.certificate.LazyCertificate;
 import pgp.certificate_store.exception.BadDataException;
 import pgp.certificate_store.exception.BadNameException;
 import pgp.certificate_store.exception.NotAStoreException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -128,4 +147,450 @@ public class FileBasedPGPCertificateDirectoryTest {
         // Reading cedrics cert will fail, as it has Rons fingerprint
         assertThrows(BadDataException.class, () -> directory.getByFingerprint(TestKeys.CEDRIC_FP));
     }
+
+    @Test
+    public void testAtomicRenameDoesNotModifyFilesOpenedByReaders()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("atomic-rename").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                tempDir,
+                new InMemorySubkeyLookup(),
+                FileBasedCertificateDirectoryBackend.WriteMode.ATOMIC_RENAME,
+                FileBasedCertificateDirectoryBackend.Durability.FILE);
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir);
+
+        Certificate certificate = directory.insert(TestKeys.getRonCert(), merger);
+        File certFile = resolver.getCertFileByFingerprint(TestKeys.RON_FP);
+
+        // A reader opens the certificate file...
+        FileInputStream reader = new FileInputStream(certFile);
+
+        // ...while a writer replaces it with a different certificate
+        directory.insert(TestKeys.getRonCert(), (data, existing) -> {
+            try {
+                return new TestKeyMaterialReaderBackend().read(TestKeys.getCedricCert(), null);
+            } catch (BadDataException e) {
+                throw new IOException(e);
+            }
+        });
+
+        // The reader still sees the complete old certificate
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        Streams.pipeAll(reader, read);
+        reader.close();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Streams.pipeAll(certificate.getInputStream(), expected);
+        assertArrayEquals(expected.toByteArray(), read.toByteArray());
+
+        // No temporary files are left behind
+        String[] files = certFile.getParentFile().list();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        assertEquals(certFile.getName(), files[0]);
+    }
+
+    @Test
+    public void testItemsSkipsUnrelatedFiles()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("items").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                tempDir,
+                new InMemorySubkeyLookup());
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir);
+
+        directory.insert(TestKeys.getRonCert(), merger);
+        File shard = resolver.getCertFileByFingerprint(TestKeys.RON_FP).getParentFile();
+        // leftover temporary file, unrelated file and directory
+        new File(shard, "." + TestKeys.RON_FP.substring(2) + ".1234.tmp").createNewFile();
+        new File(shard, "README").createNewFile();
+        new File(tempDir, "zz").mkdirs();
+
+        Iterator<Certificate> items = directory.items();
+        assertTrue(items.hasNext());
+        assertEquals(TestKeys.RON_FP, items.next().getFingerprint());
+        assertFalse(items.hasNext());
+        assertThrows(NoSuchElementException.class, items::next);
+
+        assertEquals(1, directory.itemsStream().count());
+    }
+
+    @Test
+    public void testAbandonedItemsIteratorDoesNotKeepShardOpen()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException {
+        File fileDescriptors = new File("/proc/self/fd");
+        assumeTrue(fileDescriptors.isDirectory());
+        File tempDir = Files.createTempDirectory("items-abandoned").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                tempDir,
+                new InMemorySubkeyLookup());
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+
+        int iterations = 32;
+        int openBefore = fileDescriptors.list().length;
+        for (int i = 0; i < iterations; i++) {
+            // stop after the first certificate
+            assertNotNull(directory.items().next());
+            assertNotNull(directory.entries().next());
+        }
+        assertTrue(fileDescriptors.list().length - openBefore < iterations);
+    }
+
+    @Test
+    public void testReadsPassFileContentAsByteArray()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("byte-array-read").toFile();
+        tempDir.deleteOnExit();
+        AtomicInteger arrayReads = new AtomicInteger();
+        AtomicInteger streamReads = new AtomicInteger();
+        KeyMaterialReaderBackend delegate = new TestKeyMaterialReaderBackend();
+        KeyMaterialReaderBackend reader = new KeyMaterialReaderBackend() {
+            @Override
+            public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+                streamReads.incrementAndGet();
+                return delegate.read(data, tag);
+            }
+
+            @Override
+            public KeyMaterial read(byte[] data, int offset, int length, Long tag)
+                    throws IOException, BadDataException {
+                arrayReads.incrementAndGet();
+                return delegate.read(new ByteArrayInputStream(data, offset, length), tag);
+            }
+        };
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                reader, tempDir, new InMemorySubkeyLookup());
+
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), merger);
+        directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+        // parsing the inserted data
+        assertEquals(2, streamReads.get());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Streams.pipeAll(inserted.getInputStream(), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        Streams.pipeAll(directory.getByFingerprint(TestKeys.RON_FP).getInputStream(), actual);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        assertNotNull(directory.getTrustRoot());
+        assertEquals(1, directory.itemsStream().count());
+        assertEquals(3, arrayReads.get());
+        assertEquals(2, streamReads.get());
+    }
+
+    @Test
+    public void testLazyReadModeDefersReadingAndParsing()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("lazy-read").toFile();
+        tempDir.deleteOnExit();
+        AtomicInteger reads = new AtomicInteger();
+        KeyMaterialReaderBackend delegate = new TestKeyMaterialReaderBackend();
+        KeyMaterialReaderBackend reader = new KeyMaterialReaderBackend() {
+            @Override
+            public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+                reads.incrementAndGet();
+                return delegate.read(data, tag);
+            }
+        };
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                reader, tempDir, new InMemorySubkeyLookup(),
+                FileBasedCertificateDirectoryBackend.WriteMode.IN_PLACE,
+                FileBasedCertificateDirectoryBackend.Durability.NONE,
+                FileBasedCertificateDirectoryBackend.ReadMode.LAZY);
+
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+        reads.set(0);
+
+        assertEquals(2, directory.itemsStream().map(Certificate::getFingerprint).count());
+        Certificate lazy = directory.getByFingerprint(TestKeys.RON_FP);
+        assertTrue(lazy instanceof LazyCertificate);
+        assertEquals(TestKeys.RON_FP, lazy.getFingerprint());
+        assertEquals(inserted.getTag(), lazy.getTag());
+        assertEquals(0, reads.get());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Streams.pipeAll(inserted.getInputStream(), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        Streams.pipeAll(lazy.getInputStream(), actual);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertTrue(((LazyCertificate) lazy).isLoaded());
+        assertFalse(((LazyCertificate) lazy).isParsed());
+        assertEquals(0, reads.get());
+
+        assertEquals(inserted.getSubkeyIds(), lazy.getSubkeyIds());
+        assertTrue(((LazyCertificate) lazy).isParsed());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testLazyCertificateWithMismatchingFingerprintFailsOnParse()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("lazy-read").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(), tempDir, new InMemorySubkeyLookup(),
+                FileBasedCertificateDirectoryBackend.WriteMode.IN_PLACE,
+                FileBasedCertificateDirectoryBackend.Durability.NONE,
+                FileBasedCertificateDirectoryBackend.ReadMode.LAZY);
+        directory.insert(TestKeys.getRonCert(), merger);
+
+        // Copy Ron's certificate to Cedric's location
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir);
+        File ronFile = resolver.getCertFileByFingerprint(TestKeys.RON_FP);
+        File cedricFile = resolver.getCertFileByFingerprint(TestKeys.CEDRIC_FP);
+        cedricFile.getParentFile().mkdirs();
+        Files.copy(ronFile.toPath(), cedricFile.toPath());
+
+        LazyCertificate lazy = (LazyCertificate) directory.getByFingerprint(TestKeys.CEDRIC_FP);
+        assertEquals(TestKeys.CEDRIC_FP, lazy.getFingerprint());
+        assertThrows(BadDataException.class, lazy::parse);
+        assertThrows(UncheckedIOException.class, lazy::getSubkeyIds);
+    }
+
+    @Test
+    public void testEntriesDoNotReadCertificateFiles()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("list-entries").toFile();
+        tempDir.deleteOnExit();
+        AtomicInteger reads = new AtomicInteger();
+        KeyMaterialReaderBackend delegate = new TestKeyMaterialReaderBackend();
+        KeyMaterialReaderBackend reader = new KeyMaterialReaderBackend() {
+            @Override
+            public KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException {
+                reads.incrementAndGet();
+                return delegate.read(data, tag);
+            }
+        };
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                reader, tempDir, new InMemorySubkeyLookup());
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+
+        // Corrupt one certificate. Listing entries must not notice.
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir);
+        File cedricFile = resolver.getCertFileByFingerprint(TestKeys.CEDRIC_FP);
+        Files.write(cedricFile.toPath(), new byte[] {1, 2, 3});
+        reads.set(0);
+
+        Iterator<CertificateEntry> entries = directory.entries();
+        int count = 0;
+        while (entries.hasNext()) {
+            CertificateEntry entry = entries.next();
+            if (entry.getFingerprint().equals(TestKeys.CEDRIC_FP)) {
+                assertEquals(3, entry.getSize());
+            }
+            count++;
+        }
+        assertEquals(2, count);
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    public void testLockFileIsKeptAndExcludesOtherInstances()
+            throws IOException, InterruptedException, NotAStoreException {
+        File tempDir = Files.createTempDirectory("file-based-lock").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory.LockingMechanism first =
+                new FileBasedCertificateDirectoryBackend(tempDir, new TestKeyMaterialReaderBackend()).getLock();
+        PGPCertificateDirectory.LockingMechanism second =
+                new FileBasedCertificateDirectoryBackend(tempDir, new TestKeyMaterialReaderBackend()).getLock();
+        File lockFile = new File(tempDir, "writelock");
+        lockFile.deleteOnExit();
+
+        first.lockDirectory();
+        assertTrue(lockFile.exists());
+        assertFalse(second.tryLockDirectory());
+        assertFalse(second.lockDirectory(20, TimeUnit.MILLISECONDS));
+        first.releaseDirectory();
+        // the lock file is not deleted on release
+        assertTrue(lockFile.exists());
+
+        assertTrue(second.lockDirectory(1, TimeUnit.SECONDS));
+        assertFalse(first.tryLockDirectory());
+        second.releaseDirectory();
+        assertTrue(first.tryLockDirectory());
+        first.releaseDirectory();
+    }
+
+    @Test
+    public void testOptimisticInsertMergesOutsideLockAndRetriesOnConflict()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("file-based-optimistic").toFile();
+        tempDir.deleteOnExit();
+        FileBasedCertificateDirectoryBackend backend = new FileBasedCertificateDirectoryBackend(tempDir,
+                new TestKeyMaterialReaderBackend(), FileBasedCertificateDirectoryBackend.WriteMode.ATOMIC_RENAME,
+                FileBasedCertificateDirectoryBackend.Durability.NONE);
+        PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, new InMemorySubkeyLookup(),
+                PGPCertificateDirectory.InsertMode.OPTIMISTIC);
+        // concurrent writer using the same directory
+        PGPCertificateDirectory other = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(), tempDir, new InMemorySubkeyLookup());
+        Certificate initial = directory.insert(TestKeys.getRonCert(), merger);
+
+        AtomicInteger merges = new AtomicInteger();
+        KeyMaterialMerger interferingMerger = (data, existing) -> {
+            assertFalse(backend.getLock().isLocked());
+            if (merges.incrementAndGet() == 1) {
+                try {
+                    // change the stored certificate between preparing and committing the insert
+                    Thread.sleep(10);
+                    other.insert(TestKeys.getModifiedRonCert(), merger);
+                } catch (InterruptedException | BadDataException e) {
+                    throw new IOException(e);
+                }
+            }
+            return data;
+        };
+
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), interferingMerger);
+        assertEquals(2, merges.get());
+        assertNotEquals(initial.getTag(), inserted.getTag());
+        assertEquals(inserted.getTag(), directory.getByFingerprint(TestKeys.RON_FP).getTag());
+        assertFalse(backend.getLock().isLocked());
+
+        // commit fails if the certificate changed after preparation, and staged files are removed on close
+        try (PGPCertificateDirectory.PreparedInsert prepared = backend.prepareInsert(TestKeys.getRonCert(), merger)) {
+            Thread.sleep(10);
+            other.insert(TestKeys.getModifiedRonCert(), merger);
+            assertNull(prepared.commit());
+        }
+        File shard = new File(tempDir, TestKeys.RON_FP.substring(0, 2));
+        assertEquals(1, shard.list().length);
+    }
+
+    @Test
+    public void testOptimisticInsertFallsBackToLockInPlaceMode()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("file-based-optimistic-in-place").toFile();
+        tempDir.deleteOnExit();
+        FileBasedCertificateDirectoryBackend backend = new FileBasedCertificateDirectoryBackend(tempDir,
+                new TestKeyMaterialReaderBackend(), FileBasedCertificateDirectoryBackend.WriteMode.IN_PLACE,
+                FileBasedCertificateDirectoryBackend.Durability.NONE);
+        PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, new InMemorySubkeyLookup(),
+                PGPCertificateDirectory.InsertMode.OPTIMISTIC);
+        File certFile = new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir)
+                .getCertFileByFingerprint(TestKeys.RON_FP);
+        Certificate initial = directory.insert(TestKeys.getRonCert(), merger);
+        FileTime lastModified = Files.getLastModifiedTime(certFile.toPath());
+
+        // two in-place writes within the same millisecond keep the tag
+        backend.doInsert(TestKeys.getModifiedRonCert(), merger);
+        Files.setLastModifiedTime(certFile.toPath(), lastModified);
+        assertEquals(initial.getTag(), backend.getTagForFingerprint(TestKeys.RON_FP));
+
+        // so a prepared insert could not detect the second write, and the insert is done under the lock instead
+        assertNull(backend.prepareInsert(TestKeys.getRonCert(), merger));
+        AtomicReference<byte[]> merged = new AtomicReference<>();
+        directory.insert(TestKeys.getRonCert(), (data, existing) -> {
+            assertTrue(backend.getLock().isLocked());
+            try (InputStream in = existing.getInputStream()) {
+                merged.set(Streams.readAll(in));
+            }
+            return data;
+        });
+        assertArrayEquals(Streams.readAll(TestKeys.getModifiedRonCert()), merged.get());
+        assertFalse(backend.getLock().isLocked());
+    }
+
+    @Test
+    public void testUnchangedInsertDoesNotRewriteFile()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("file-based-unchanged").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(), tempDir, new InMemorySubkeyLookup());
+        File certFile = new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir)
+                .getCertFileByFingerprint(TestKeys.RON_FP);
+
+        Certificate initial = directory.insert(TestKeys.getRonCert(), merger);
+        long lastModified = Files.getLastModifiedTime(certFile.toPath()).toMillis();
+
+        Thread.sleep(10);
+        InsertResult unchanged = directory.insertIfChanged(TestKeys.getRonCert(), merger);
+        assertFalse(unchanged.isChanged());
+        assertEquals(initial.getTag(), unchanged.getCertificate().getTag());
+        assertEquals(lastModified, Files.getLastModifiedTime(certFile.toPath()).toMillis());
+
+        InsertResult changed = directory.insertIfChanged(TestKeys.getModifiedRonCert(), merger);
+        assertTrue(changed.isChanged());
+        assertNotEquals(initial.getTag(), changed.getCertificate().getTag());
+    }
+
+    @Test
+    public void testSubscriptionReportsChanges()
+            throws IOException, NotAStoreException, BadDataException, InterruptedException, BadNameException {
+        File tempDir = Files.createTempDirectory("subscribe").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(), tempDir, new InMemorySubkeyLookup());
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(tempDir);
+
+        assertTrue(directory.supportsChangeNotifications());
+        BlockingQueue<CertificateChange> changes = new LinkedBlockingQueue<>();
+        ChangeSubscription subscription = directory.subscribe(changes::add);
+        try {
+            // write by this process
+            Certificate ron = directory.insert(TestKeys.getRonCert(), merger);
+            awaitChange(changes, change -> TestKeys.RON_FP.equals(change.getFingerprint()) &&
+                    ron.getTag().equals(change.getTag()));
+
+            // write by another process
+            File cedricFile = resolver.getCertFileByFingerprint(TestKeys.CEDRIC_FP);
+            cedricFile.getParentFile().mkdirs();
+            try (InputStream in = TestKeys.getCedricCert()) {
+                Files.copy(in, cedricFile.toPath());
+            }
+            Long cedricTag = directory.getByFingerprint(TestKeys.CEDRIC_FP).getTag();
+            awaitChange(changes, change -> TestKeys.CEDRIC_FP.equals(change.getFingerprint()) &&
+                    cedricTag.equals(change.getTag()));
+
+            // deletion
+            assertTrue(resolver.getCertFileByFingerprint(TestKeys.RON_FP).delete());
+            awaitChange(changes, change -> TestKeys.RON_FP.equals(change.getFingerprint()) && change.isDeleted());
+
+            // special name
+            directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+            awaitChange(changes, change -> SpecialNames.TRUST_ROOT.equals(change.getSpecialName()) &&
+                    !change.isDeleted());
+        } finally {
+            subscription.close();
+        }
+
+        changes.clear();
+        directory.insert(TestKeys.getRonCert(), merger);
+        assertNull(changes.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testInMemoryDirectoryDoesNotSupportSubscriptions() {
+        PGPCertificateDirectory directory = PGPCertificateDirectories.inMemoryCertificateDirectory(
+                new TestKeyMaterialReaderBackend());
+        assertFalse(directory.supportsChangeNotifications());
+        assertThrows(UnsupportedOperationException.class, () -> directory.subscribe(change -> {
+        }));
+    }
+
+    private static void awaitChange(BlockingQueue<CertificateChange> changes, Predicate<CertificateChange> expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            CertificateChange change = changes.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (change != null && expected.test(change)) {
+                return;
+            }
+        }
+        throw new AssertionError("Expected change was not reported.");
+    }
 }
@@ -62,7 +62,7 @@ public class FilenameResolverTest {
 
     @Test
     public void testGetFileForNullFingerprint() {
-        assertThrows(NullPointerException.class, () -> resolver.getCertFileByFingerprint(null));
+        assertThrows(NullPointerException.class, () -> resolver.getCertFileByFingerprint((String) null));
     }
 
     @Test
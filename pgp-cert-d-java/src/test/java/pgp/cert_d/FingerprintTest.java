@@ -0,0 +1,70 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FingerprintTest {
+
+    private static final String V4_FP = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String V6_FP = "cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9";
+
+    @Test
+    public void hexRoundTrip() throws BadNameException {
+        Fingerprint v4 = Fingerprint.fromHex(V4_FP);
+        assertEquals(Fingerprint.V4_LENGTH, v4.length());
+        assertEquals(V4_FP, v4.toString());
+
+        Fingerprint v6 = Fingerprint.fromBytes(Fingerprint.fromHex(V6_FP).getBytes());
+        assertEquals(Fingerprint.V6_LENGTH, v6.length());
+        assertEquals(V6_FP, v6.toString());
+        assertEquals((byte) 0xcb, v6.getBytes()[0]);
+    }
+
+    @Test
+    public void equalityIsBasedOnBytes() throws BadNameException {
+        Fingerprint parsed = Fingerprint.fromHex(V4_FP);
+        Fingerprint decoded = Fingerprint.fromBytes(parsed.getBytes());
+        assertEquals(parsed, decoded);
+        assertEquals(parsed.hashCode(), decoded.hashCode());
+        assertNotEquals(parsed, Fingerprint.fromHex(V6_FP));
+        assertArrayEquals(parsed.getBytes(), decoded.getBytes());
+    }
+
+    @Test
+    public void invalidFingerprintsAreRejected() {
+        assertTrue(Fingerprint.isValid(V4_FP));
+        assertTrue(Fingerprint.isValid(V6_FP));
+        assertFalse(Fingerprint.isValid(V4_FP.toUpperCase()));
+        assertFalse(Fingerprint.isValid(V4_FP.substring(1)));
+        assertFalse(Fingerprint.isValid(V4_FP.substring(1) + "g"));
+        assertFalse(Fingerprint.isValid(V4_FP + "00"));
+        assertThrows(BadNameException.class, () -> Fingerprint.fromHex("trust-root"));
+        assertThrows(IllegalArgumentException.class, () -> Fingerprint.fromBytes(new byte[16]));
+    }
+
+    @Test
+    public void shardAndFileNameMatchStringResolution() throws BadNameException {
+        FileBasedCertificateDirectoryBackend.FilenameResolver resolver =
+                new FileBasedCertificateDirectoryBackend.FilenameResolver(new File("base"));
+        for (String hex : new String[] {V4_FP, V6_FP}) {
+            Fingerprint fingerprint = Fingerprint.fromBytes(Fingerprint.fromHex(hex).getBytes());
+            assertEquals(hex.substring(0, 2), fingerprint.getShardName());
+            assertEquals(hex.substring(2), fingerprint.getFileName());
+            assertEquals(resolver.getCertFileByFingerprint(hex), resolver.getCertFileByFingerprint(fingerprint));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.jfr.FlightRecorderEvents;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlightRecorderEventsTest {
+
+    @Test
+    public void fileBasedDirectoryEmitsEvents() throws Exception {
+        assertTrue(FlightRecorderEvents.isAvailable());
+        File tempDir = Files.createTempDirectory("jfr-events").toFile();
+        tempDir.deleteOnExit();
+        PGPCertificateDirectory directory = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(), tempDir, new InMemorySubkeyLookup());
+
+        Path dump = Files.createTempFile("pgp-cert-d", ".jfr");
+        dump.toFile().deleteOnExit();
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"LockWait", "LockHold", "FileRead", "FileWrite", "Parse"}) {
+                recording.enable("pgp.cert_d." + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            directory.insert(TestKeys.getRonCert(), new TestKeyMaterialMerger());
+            directory.getByFingerprint(TestKeys.RON_FP);
+            directory.backend.getLock().lockDirectory();
+            directory.backend.getLock().releaseDirectory();
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<RecordedEvent> writes = ofType(events, "pgp.cert_d.FileWrite");
+        assertEquals(1, writes.size());
+        assertEquals(TestKeys.RON_FP.substring(0, 2), writes.get(0).getString("shard"));
+        assertEquals(TestKeys.RON_FP.substring(2), writes.get(0).getString("fileName"));
+        assertTrue(writes.get(0).getLong("bytes") > 0);
+
+        List<RecordedEvent> reads = ofType(events, "pgp.cert_d.FileRead");
+        assertEquals(1, reads.size());
+        assertEquals(writes.get(0).getLong("bytes"), reads.get(0).getLong("bytes"));
+
+        // insert parses the stream, the read parses the file
+        List<RecordedEvent> parses = ofType(events, "pgp.cert_d.Parse");
+        assertEquals(2, parses.size());
+        assertEquals(-1, parses.get(0).getLong("bytes"));
+        assertEquals(reads.get(0).getLong("bytes"), parses.get(1).getLong("bytes"));
+
+        // the insert and the explicit lock
+        assertEquals(2, ofType(events, "pgp.cert_d.LockWait").size());
+        assertEquals(2, ofType(events, "pgp.cert_d.LockHold").size());
+    }
+
+    @Test
+    public void noEventsWithoutRecording() {
+        assertNull(FlightRecorderEvents.beginFileRead());
+        // committing an absent event is a no-op
+        FlightRecorderEvents.commitFileRead(null, new File("ab").toPath(), 1);
+        assertNull(FlightRecorderEvents.beginLockWait());
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.subkey_lookup.MappedSubkeyLookup;
+import pgp.cert_d.subkey_lookup.MappedSubkeyLookupFactory;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedSubkeyLookupTest {
+
+    private static final String V4_FP = "eb85bb5fa33a75e15e944e63f231550c4f47e38e";
+    private static final String V6_FP = "cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9";
+
+    private Path indexFile;
+    private Path logFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        File tempDir = Files.createTempDirectory("pgp.cert.d").toFile();
+        tempDir.deleteOnExit();
+        indexFile = new File(tempDir, MappedSubkeyLookup.DEFAULT_INDEX_FILE_NAME).toPath();
+        logFile = new File(tempDir, MappedSubkeyLookup.DEFAULT_INDEX_FILE_NAME + MappedSubkeyLookup.LOG_SUFFIX).toPath();
+        indexFile.toFile().deleteOnExit();
+        logFile.toFile().deleteOnExit();
+        new File(tempDir, MappedSubkeyLookup.DEFAULT_INDEX_FILE_NAME + MappedSubkeyLookup.LOCK_SUFFIX).deleteOnExit();
+    }
+
+    @Test
+    public void mappingsSurviveReopeningFromLog() throws IOException {
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000)) {
+            lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(1L, 2L));
+            lookup.storeCertificateSubkeyIds(V6_FP, Arrays.asList(2L, -3L));
+            assertEquals(new HashSet<>(Arrays.asList(V4_FP, V6_FP)), lookup.getCertificateFingerprintsForSubkeyId(2L));
+        }
+        assertTrue(Files.notExists(indexFile));
+
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000)) {
+            assertEquals(Collections.singleton(V4_FP), lookup.getCertificateFingerprintsForSubkeyId(1L));
+            assertEquals(new HashSet<>(Arrays.asList(V4_FP, V6_FP)), lookup.getCertificateFingerprintsForSubkeyId(2L));
+            assertEquals(Collections.singleton(V6_FP), lookup.getCertificateFingerprintsForSubkeyId(-3L));
+            assertTrue(lookup.getCertificateFingerprintsForSubkeyId(4L).isEmpty());
+        }
+    }
+
+    @Test
+    public void logIsCompactedIntoIndex() throws IOException {
+        int certificates = 500;
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 64)) {
+            for (int i = 0; i < certificates; i++) {
+                lookup.storeCertificateSubkeyIds(fingerprint(i), Arrays.asList((long) i, (long) i + 1, Long.MIN_VALUE + i));
+            }
+            assertTrue(Files.exists(indexFile));
+            assertTrue(Files.size(logFile) < Files.size(indexFile));
+            assertLookups(lookup, certificates);
+        }
+
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 64)) {
+            assertLookups(lookup, certificates);
+            lookup.compact();
+            assertEquals(0, Files.size(logFile));
+            assertLookups(lookup, certificates);
+        }
+    }
+
+    @Test
+    public void knownMappingsAreNotAppendedAgain() throws IOException {
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000)) {
+            lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(1L, 2L));
+            long logSize = Files.size(logFile);
+            lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(1L, 2L, 2L));
+            assertEquals(logSize, Files.size(logFile));
+
+            lookup.compact();
+            lookup.storeCertificateSubkeyIds(V4_FP, Arrays.asList(1L, 2L));
+            assertEquals(0, Files.size(logFile));
+        }
+    }
+
+    @Test
+    public void partiallyWrittenLogRecordIsDiscarded() throws IOException {
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000)) {
+            lookup.storeCertificateSubkeyIds(V4_FP, Collections.singletonList(1L));
+        }
+        long logSize = Files.size(logFile);
+        Files.write(logFile, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000)) {
+            assertEquals(logSize, Files.size(logFile));
+            assertEquals(Collections.singleton(V4_FP), lookup.getCertificateFingerprintsForSubkeyId(1L));
+        }
+    }
+
+    @Test
+    public void foreignIndexFileIsRejected() throws IOException {
+        Files.write(indexFile, "This is not a subkey index".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> new MappedSubkeyLookup(indexFile, 1000));
+    }
+
+    @Test
+    public void indexCannotBeOpenedTwice() throws IOException {
+        MappedSubkeyLookup first = new MappedSubkeyLookup(indexFile, 1000);
+        try {
+            assertThrows(IOException.class, () -> new MappedSubkeyLookup(indexFile, 1000));
+            assertThrows(RuntimeException.class, () ->
+                    new MappedSubkeyLookupFactory().createFileBasedInstance(indexFile.getParent().toFile()));
+        } finally {
+            first.close();
+        }
+        try (MappedSubkeyLookup reopened = new MappedSubkeyLookup(indexFile, 1000)) {
+            reopened.storeCertificateSubkeyIds(V4_FP, Collections.singletonList(1L));
+        }
+    }
+
+    @Test
+    public void closedLookupThrows() throws IOException {
+        MappedSubkeyLookup lookup = new MappedSubkeyLookup(indexFile, 1000);
+        lookup.close();
+        assertThrows(IOException.class, () -> lookup.getCertificateFingerprintsForSubkeyId(1L));
+        assertThrows(IOException.class, () -> lookup.storeCertificateSubkeyIds(V4_FP, Collections.singletonList(1L)));
+    }
+
+    @Test
+    public void factoryCreatesIndexInBaseDirectory() throws IOException {
+        SubkeyLookup lookup = new MappedSubkeyLookupFactory().createFileBasedInstance(indexFile.getParent().toFile());
+        lookup.storeCertificateSubkeyIds(V4_FP, Collections.singletonList(1L));
+        assertTrue(Files.exists(logFile));
+        ((MappedSubkeyLookup) lookup).close();
+    }
+
+    private static void assertLookups(MappedSubkeyLookup lookup, int certificates) throws IOException {
+        assertEquals(Collections.singleton(fingerprint(0)), lookup.getCertificateFingerprintsForSubkeyId(0L));
+        for (int i = 1; i < certificates; i++) {
+            assertEquals(new HashSet<>(Arrays.asList(fingerprint(i - 1), fingerprint(i))),
+                    lookup.getCertificateFingerprintsForSubkeyId(i));
+            assertEquals(Collections.singleton(fingerprint(i)),
+                    lookup.getCertificateFingerprintsForSubkeyId(Long.MIN_VALUE + i));
+        }
+        assertEquals(Collections.singleton(fingerprint(certificates - 1)),
+                lookup.getCertificateFingerprintsForSubkeyId(certificates));
+    }
+
+    private static String fingerprint(int index) {
+        return String.format("%040x", index);
+    }
+}
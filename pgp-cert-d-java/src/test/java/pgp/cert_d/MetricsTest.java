@@ -0,0 +1,119 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.metrics.DirectoryMetrics;
+import pgp.cert_d.metrics.HistogramMetrics;
+import pgp.cert_d.metrics.Instrumentation;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.certificate.KeyMaterialReaderBackend;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+
+    private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
+
+    @Test
+    public void operationsAreRecorded() throws Exception {
+        HistogramMetrics metrics = new HistogramMetrics();
+        KeyMaterialReaderBackend reader = Instrumentation.instrumentReader(new TestKeyMaterialReaderBackend(), metrics);
+        PGPCertificateDirectory directory = new PGPCertificateDirectory(
+                new InMemoryCertificateDirectoryBackend(reader), new InMemorySubkeyLookup(), metrics);
+
+        Certificate inserted = directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.getByFingerprint(TestKeys.RON_FP);
+        directory.getCertificateFingerprintsForSubkeyId(inserted.getSubkeyIds().get(0));
+
+        assertEquals(2, metrics.getHistogram(DirectoryMetrics.Operation.INSERT).getCount());
+        assertEquals(2 * TestKeys.RON_CERT.length(),
+                metrics.getHistogram(DirectoryMetrics.Operation.INSERT).getTotalBytes());
+        assertTrue(metrics.getHistogram(DirectoryMetrics.Operation.PARSE).getCount() >= 2);
+        assertTrue(metrics.getHistogram(DirectoryMetrics.Operation.PARSE).getTotalBytes() > 0);
+        assertTrue(metrics.getHistogram(DirectoryMetrics.Operation.MERGE).getCount() >= 1);
+        assertEquals(1, metrics.getHistogram(DirectoryMetrics.Operation.READ).getCount());
+        assertEquals(2, metrics.getHistogram(DirectoryMetrics.Operation.LOCK_WAIT).getCount());
+        assertEquals(2, metrics.getHistogram(DirectoryMetrics.Operation.LOCK_HOLD).getCount());
+        // the second insert did not change the certificate
+        assertEquals(1, metrics.getHistogram(DirectoryMetrics.Operation.SUBKEY_LOOKUP_STORE).getCount());
+        assertEquals(1, metrics.getHistogram(DirectoryMetrics.Operation.SUBKEY_LOOKUP_QUERY).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getHistogram(DirectoryMetrics.Operation.INSERT).getCount());
+    }
+
+    @Test
+    public void optimisticInsertsAreRecorded() throws Exception {
+        File tempDir = Files.createTempDirectory("metrics").toFile();
+        tempDir.deleteOnExit();
+        HistogramMetrics metrics = new HistogramMetrics();
+        PGPCertificateDirectory directory = new PGPCertificateDirectory(
+                new FileBasedCertificateDirectoryBackend(tempDir, new TestKeyMaterialReaderBackend(),
+                        FileBasedCertificateDirectoryBackend.WriteMode.ATOMIC_RENAME,
+                        FileBasedCertificateDirectoryBackend.Durability.NONE),
+                new InMemorySubkeyLookup(), metrics, PGPCertificateDirectory.InsertMode.OPTIMISTIC);
+
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+
+        assertEquals(2, metrics.getHistogram(DirectoryMetrics.Operation.INSERT).getCount());
+        assertEquals(TestKeys.RON_CERT.length() + TestKeys.CEDRIC_CERT.length(),
+                metrics.getHistogram(DirectoryMetrics.Operation.INSERT).getTotalBytes());
+    }
+
+    @Test
+    public void noopMetricsDoNotDecorate() {
+        KeyMaterialReaderBackend reader = new TestKeyMaterialReaderBackend();
+        PGPCertificateDirectory.Backend backend = new InMemoryCertificateDirectoryBackend(reader);
+        SubkeyLookup subkeyLookup = new InMemorySubkeyLookup();
+
+        assertSame(reader, Instrumentation.instrumentReader(reader, DirectoryMetrics.NOOP));
+        assertSame(merger, Instrumentation.instrumentMerger(merger, DirectoryMetrics.NOOP));
+        assertSame(backend, Instrumentation.instrument(backend, DirectoryMetrics.NOOP));
+        assertSame(backend.getLock(), Instrumentation.instrument(backend.getLock(), DirectoryMetrics.NOOP));
+        assertSame(subkeyLookup, Instrumentation.instrument(subkeyLookup, DirectoryMetrics.NOOP));
+
+        PGPCertificateDirectory.Backend instrumented = Instrumentation.instrument(backend, new HistogramMetrics());
+        assertNotSame(backend, instrumented);
+        assertSame(instrumented, Instrumentation.instrument(instrumented, new HistogramMetrics()));
+    }
+
+    @Test
+    public void percentiles() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.record(DirectoryMetrics.Operation.READ, 1000, -1);
+        }
+        metrics.record(DirectoryMetrics.Operation.READ, 1_000_000, -1);
+
+        HistogramMetrics.Histogram histogram = metrics.getHistogram(DirectoryMetrics.Operation.READ);
+        assertEquals(100, histogram.getCount());
+        assertEquals(99 * 1000 + 1_000_000, histogram.getTotalNanos());
+        assertEquals(0, histogram.getTotalBytes());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        // 1000ns fall into the bucket [512, 1023]
+        assertEquals(1023, histogram.getPercentileNanos(50));
+        assertEquals(1023, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertEquals(0, metrics.getHistogram(DirectoryMetrics.Operation.MERGE).getPercentileNanos(50));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(101));
+    }
+}
@@ -5,12 +5,17 @@
 package pgp.cert_d;
 
 import org.bouncycastle.util.io.Streams;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Named;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import pgp.cert_d.backend.CachingCertificateDirectoryBackend;
+import pgp.cert_d.backend.FileBasedCertificateDirectoryBackend;
+import pgp.cert_d.backend.InMemoryCertificateDirectoryBackend;
 import pgp.cert_d.dummy.TestKeyMaterialMerger;
 import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.jdbc.sqlite.SqliteCertificateDirectoryBackend;
 import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
 import pgp.certificate_store.certificate.Certificate;
 import pgp.certificate_store.certificate.Key;
@@ -20,16 +25,23 @@ import pgp.certificate_store.exception.BadDataException;
 import pgp.certificate_store.exception.BadNameException;
 import pgp.certificate_store.exception.NotAStoreException;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -49,10 +61,31 @@ public class PGPCertificateDirectoryTest {
 
     private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
 
+    // subjects holding open files or database connections
+    private static final List<PGPCertificateDirectory> closeableSubjects = new ArrayList<>();
+
+    /**
+     * Close the subjects of all test methods.
+     * The method source creates the subjects of all invocations of a test method up front, so they cannot be closed
+     * after each invocation by an {@link org.junit.jupiter.api.AfterEach} method.
+     * Note, that JUnit additionally closes each {@link AutoCloseable} subject after the invocation using it.
+     *
+     * @throws IOException in case of an IO error
+     */
+    @AfterAll
+    public static void closeSubjects() throws IOException {
+        for (PGPCertificateDirectory subject : closeableSubjects) {
+            subject.close();
+        }
+        closeableSubjects.clear();
+    }
+
     private static Stream<Arguments> provideTestSubjects()
-            throws IOException, NotAStoreException {
+            throws IOException, NotAStoreException, SQLException {
         PGPCertificateDirectory inMemory = PGPCertificateDirectories.inMemoryCertificateDirectory(
                 new TestKeyMaterialReaderBackend());
+        PGPCertificateDirectory concurrentInMemory = PGPCertificateDirectories.concurrentInMemoryCertificateDirectory(
+                new TestKeyMaterialReaderBackend());
 
         File tempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
         tempDir.deleteOnExit();
@@ -61,9 +94,74 @@ public class PGPCertificateDirectoryTest {
                 tempDir,
                 new InMemorySubkeyLookup());
 
+        File atomicTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        atomicTempDir.deleteOnExit();
+        PGPCertificateDirectory atomicFileBased = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                atomicTempDir,
+                new InMemorySubkeyLookup(),
+                FileBasedCertificateDirectoryBackend.WriteMode.ATOMIC_RENAME,
+                FileBasedCertificateDirectoryBackend.Durability.FILE_AND_DIRECTORY);
+
+        File lazyTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        lazyTempDir.deleteOnExit();
+        PGPCertificateDirectory lazyFileBased = PGPCertificateDirectories.fileBasedCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                lazyTempDir,
+                new InMemorySubkeyLookup(),
+                FileBasedCertificateDirectoryBackend.WriteMode.IN_PLACE,
+                FileBasedCertificateDirectoryBackend.Durability.NONE,
+                FileBasedCertificateDirectoryBackend.ReadMode.LAZY);
+
+        File cachedTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        cachedTempDir.deleteOnExit();
+        PGPCertificateDirectory cachedFileBased = new PGPCertificateDirectory(
+                new CachingCertificateDirectoryBackend(
+                        new FileBasedCertificateDirectoryBackend(cachedTempDir, new TestKeyMaterialReaderBackend()),
+                        100, 1024 * 1024),
+                new InMemorySubkeyLookup());
+
+        File optimisticTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        optimisticTempDir.deleteOnExit();
+        PGPCertificateDirectory optimisticFileBased = new PGPCertificateDirectory(
+                new FileBasedCertificateDirectoryBackend(optimisticTempDir, new TestKeyMaterialReaderBackend(),
+                        FileBasedCertificateDirectoryBackend.WriteMode.ATOMIC_RENAME,
+                        FileBasedCertificateDirectoryBackend.Durability.NONE),
+                new InMemorySubkeyLookup(),
+                PGPCertificateDirectory.InsertMode.OPTIMISTIC);
+
+        File packfileTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        packfileTempDir.deleteOnExit();
+        PGPCertificateDirectory packfile = PGPCertificateDirectories.packfileCertificateDirectory(
+                new TestKeyMaterialReaderBackend(),
+                packfileTempDir,
+                new InMemorySubkeyLookup());
+        closeableSubjects.add(packfile);
+
+        File sqliteTempDir = Files.createTempDirectory("pgp-cert-d-test").toFile();
+        sqliteTempDir.deleteOnExit();
+        SqliteCertificateDirectoryBackend sqliteBackend = SqliteCertificateDirectoryBackend.forDatabaseFile(
+                new File(sqliteTempDir, "certificates.db"), new TestKeyMaterialReaderBackend());
+        PGPCertificateDirectory sqlite = new PGPCertificateDirectory(sqliteBackend, sqliteBackend.getSubkeyLookup());
+        closeableSubjects.add(sqlite);
+
+        // does not support optimistic inserts and falls back to locked inserts
+        PGPCertificateDirectory optimisticInMemory = new PGPCertificateDirectory(
+                new InMemoryCertificateDirectoryBackend(new TestKeyMaterialReaderBackend()),
+                new InMemorySubkeyLookup(),
+                PGPCertificateDirectory.InsertMode.OPTIMISTIC);
+
         return Stream.of(
                 Arguments.of(Named.of("InMemoryCertificateDirectory", inMemory)),
-                Arguments.of(Named.of("FileBasedCertificateDirectory", fileBased)));
+                Arguments.of(Named.of("OptimisticInMemoryCertificateDirectory", optimisticInMemory)),
+                Arguments.of(Named.of("ConcurrentInMemoryCertificateDirectory", concurrentInMemory)),
+                Arguments.of(Named.of("FileBasedCertificateDirectory", fileBased)),
+                Arguments.of(Named.of("AtomicFileBasedCertificateDirectory", atomicFileBased)),
+                Arguments.of(Named.of("LazyFileBasedCertificateDirectory", lazyFileBased)),
+                Arguments.of(Named.of("CachingFileBasedCertificateDirectory", cachedFileBased)),
+                Arguments.of(Named.of("OptimisticFileBasedCertificateDirectory", optimisticFileBased)),
+                Arguments.of(Named.of("PackfileCertificateDirectory", packfile)),
+                Arguments.of(Named.of("SqliteCertificateDirectory", sqlite)));
     }
 
     @ParameterizedTest
@@ -258,6 +356,19 @@ public class PGPCertificateDirectoryTest {
         assertNotNull(directory.getBySpecialNameIfChanged(SpecialNames.TRUST_ROOT, tag + 1));
     }
 
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testGetByFingerprintValue(PGPCertificateDirectory directory)
+            throws BadDataException, IOException, InterruptedException, BadNameException {
+        Fingerprint fingerprint = Fingerprint.fromHex(CEDRIC_FP);
+        assertThrows(NoSuchElementException.class, () -> directory.getByFingerprint(fingerprint));
+
+        Certificate certificate = directory.insert(TestKeys.getCedricCert(), merger);
+        assertEquals(CEDRIC_FP, directory.getByFingerprint(fingerprint).getFingerprint());
+        assertNull(directory.getByFingerprintIfChanged(fingerprint, certificate.getTag()));
+        assertNotNull(directory.getByFingerprintIfChanged(fingerprint, certificate.getTag() + 1));
+    }
+
     @ParameterizedTest
     @MethodSource("provideTestSubjects")
     public void testGetByFingerprintIfChanged(PGPCertificateDirectory directory)
@@ -308,4 +419,163 @@ public class PGPCertificateDirectoryTest {
         assertEquals(RON_FP, extracted.getFingerprint());
     }
 
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testInsertIfChangedSkipsUnchangedCertificate(PGPCertificateDirectory directory)
+            throws BadDataException, IOException, InterruptedException, BadNameException {
+        InsertResult first = directory.insertIfChanged(TestKeys.getRonCert(), merger);
+        assertTrue(first.isChanged());
+
+        InsertResult second = directory.insertIfChanged(TestKeys.getRonCert(), merger);
+        assertFalse(second.isChanged());
+        assertEquals(first.getCertificate().getTag(), second.getCertificate().getTag());
+        assertEquals(first.getCertificate().getTag(), directory.getByFingerprint(RON_FP).getTag());
+        assertEquals(Collections.singleton(RON_FP),
+                directory.getCertificateFingerprintsForSubkeyId(first.getCertificate().getSubkeyIds().get(0)));
+
+        InsertResult tried = directory.tryInsertIfChanged(TestKeys.getRonCert(), merger);
+        assertFalse(tried.isChanged());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testItemsStream(PGPCertificateDirectory directory)
+            throws BadDataException, IOException, InterruptedException {
+        directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+        directory.insert(TestKeys.getRonCert(), merger);
+        directory.insert(TestKeys.getCedricCert(), merger);
+
+        Set<String> expected = new HashSet<>(Arrays.asList(RON_FP, CEDRIC_FP));
+        try (Stream<Certificate> items = directory.itemsStream()) {
+            assertEquals(expected, items.map(Certificate::getFingerprint).collect(Collectors.toSet()));
+        }
+        try (Stream<Certificate> items = directory.itemsStream().parallel()) {
+            assertEquals(expected, items.map(Certificate::getFingerprint).collect(Collectors.toSet()));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testEntries(PGPCertificateDirectory directory)
+            throws BadDataException, IOException, InterruptedException {
+        directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+        Certificate ron = directory.insert(TestKeys.getRonCert(), merger);
+        Certificate cedric = directory.insert(TestKeys.getCedricCert(), merger);
+
+        Set<String> fingerprints = new HashSet<>();
+        Iterator<CertificateEntry> entries = directory.entries();
+        while (entries.hasNext()) {
+            CertificateEntry entry = entries.next();
+            Certificate expected = entry.getFingerprint().equals(RON_FP) ? ron : cedric;
+            assertEquals(expected.getFingerprint(), entry.getFingerprint());
+            assertEquals(expected.getTag(), entry.getTag());
+            assertEquals(Streams.readAll(expected.getInputStream()).length, entry.getSize());
+            fingerprints.add(entry.getFingerprint());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(RON_FP, CEDRIC_FP)), fingerprints);
+
+        Set<String> listed = new HashSet<>();
+        directory.fingerprints().forEachRemaining(listed::add);
+        assertEquals(fingerprints, listed);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void testInsertAll(PGPCertificateDirectory directory)
+            throws BadDataException, IOException, InterruptedException, BadNameException {
+        List<Certificate> inserted = directory.insertAll(
+                Arrays.asList(TestKeys.getRonCert(), TestKeys.getCedricCert()), merger);
+        assertEquals(2, inserted.size());
+        assertEquals(RON_FP, inserted.get(0).getFingerprint());
+        assertEquals(CEDRIC_FP, inserted.get(1).getFingerprint());
+
+        assertEquals(RON_FP, directory.getByFingerprint(RON_FP).getFingerprint());
+        assertEquals(CEDRIC_FP, directory.getByFingerprint(CEDRIC_FP).getFingerprint());
+        for (Certificate certificate : inserted) {
+            for (Long subkeyId : certificate.getSubkeyIds()) {
+                assertTrue(directory.getCertificateFingerprintsForSubkeyId(subkeyId)
+                        .contains(certificate.getFingerprint()));
+            }
+        }
+        assertFalse(directory.backend.getLock().isLocked());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void lockDirectoryAndTryInsertAllWillFail(PGPCertificateDirectory directory)
+            throws IOException, InterruptedException, BadDataException {
+        directory.backend.getLock().lockDirectory();
+        assertNull(directory.tryInsertAll(Arrays.asList(TestKeys.getRonCert(), TestKeys.getCedricCert()), merger));
+        directory.backend.getLock().releaseDirectory();
+
+        List<Certificate> inserted = directory.tryInsertAll(
+                Arrays.asList(TestKeys.getRonCert(), TestKeys.getCedricCert()), merger);
+        assertNotNull(inserted);
+        assertEquals(2, inserted.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void insertAllWithBadDataReleasesLockAndKeepsPreviousCertificates(PGPCertificateDirectory directory)
+            throws IOException, BadNameException, BadDataException, InterruptedException {
+        directory.insert(TestKeys.getCedricCert(), merger);
+        assertThrows(BadDataException.class, () -> directory.insertAll(Arrays.asList(
+                TestKeys.getRonCert(), new ByteArrayInputStream("Not a certificate".getBytes())), merger));
+        assertFalse(directory.backend.getLock().isLocked());
+        assertEquals(CEDRIC_FP, directory.getByFingerprint(CEDRIC_FP).getFingerprint());
+
+        // Ron is either stored, or the whole batch was rolled back by a transactional backend.
+        // Either way, the subkey lookup agrees with the store.
+        boolean ronStored;
+        try {
+            ronStored = RON_FP.equals(directory.getByFingerprint(RON_FP).getFingerprint());
+        } catch (NoSuchElementException e) {
+            ronStored = false;
+        }
+        long ronSubkeyId = new TestKeyMaterialReaderBackend().read(TestKeys.getRonCert(), null).getSubkeyIds().get(0);
+        assertEquals(ronStored, directory.getCertificateFingerprintsForSubkeyId(ronSubkeyId).contains(RON_FP));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void failingInsertReleasesLock(PGPCertificateDirectory directory)
+            throws IOException, InterruptedException, BadDataException {
+        directory.insert(TestKeys.getRonCert(), merger);
+        KeyMaterialMerger failingMerger = (data, existing) -> {
+            throw new IOException("Merge failed");
+        };
+
+        assertThrows(IOException.class, () -> directory.insert(TestKeys.getRonCert(), failingMerger));
+        assertThrows(IOException.class, () -> directory.tryInsert(TestKeys.getRonCert(), failingMerger));
+        assertThrows(BadDataException.class, () -> directory.insertTrustRoot(
+                new ByteArrayInputStream("Not a key".getBytes()), merger));
+        assertFalse(directory.backend.getLock().isLocked());
+
+        assertNotNull(directory.tryInsert(TestKeys.getCedricCert(), merger));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestSubjects")
+    public void lockDirectoryWithTimeout(PGPCertificateDirectory directory)
+            throws IOException, InterruptedException, BadDataException {
+        PGPCertificateDirectory.LockingMechanism lock = directory.backend.getLock();
+        assertTrue(lock.lockDirectory(1, TimeUnit.SECONDS));
+        assertFalse(lock.lockDirectory(20, TimeUnit.MILLISECONDS));
+        assertNull(directory.tryInsert(TestKeys.getRonCert(), merger));
+
+        // release from another thread while waiting for the lock
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                lock.releaseDirectory();
+            } catch (IOException | InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        releaser.start();
+        assertTrue(lock.lockDirectory(10, TimeUnit.SECONDS));
+        releaser.join();
+        lock.releaseDirectory();
+        assertFalse(lock.isLocked());
+    }
 }
@@ -15,15 +15,24 @@ import pgp.certificate_store.exception.BadDataException;
 import pgp.certificate_store.exception.BadNameException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PGPCertificateStoreAdapterTest {
 
@@ -122,4 +131,53 @@ public class PGPCertificateStoreAdapterTest {
             assertEquals(TestKeys.RON_FP, certWithSubkey.getFingerprint());
         }
     }
+
+    @Test
+    public void testInsertCertificates()
+            throws BadDataException, IOException, InterruptedException, BadNameException {
+        List<Certificate> certificates = adapter.insertCertificates(
+                Arrays.asList(TestKeys.getCedricCert(), TestKeys.getRonCert()), merger);
+        assertEquals(2, certificates.size());
+        assertEquals(TestKeys.CEDRIC_FP, adapter.getCertificate(TestKeys.CEDRIC_FP).getFingerprint());
+        assertEquals(TestKeys.RON_FP, adapter.getCertificate(TestKeys.RON_FP).getFingerprint());
+    }
+
+    @Test
+    public void testGetCertificatesBySubkeyIds()
+            throws BadDataException, IOException, InterruptedException {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            PGPCertificateStoreAdapter parallelAdapter = new PGPCertificateStoreAdapter(directory, command -> {
+                tasks.incrementAndGet();
+                executorService.execute(command);
+            });
+            Certificate ron = parallelAdapter.insertCertificate(TestKeys.getRonCert(), merger);
+            Certificate cedric = parallelAdapter.insertCertificate(TestKeys.getCedricCert(), merger);
+            // subkey lookup references a certificate that is not in the directory
+            directory.storeCertificateSubkeyIds("0000000000000000000000000000000000000000",
+                    Collections.singletonList(ron.getSubkeyIds().get(0)));
+
+            List<Long> ids = new ArrayList<>(ron.getSubkeyIds());
+            ids.addAll(cedric.getSubkeyIds());
+            ids.add(0L);
+            long[] subkeyIds = new long[ids.size()];
+            for (int i = 0; i < subkeyIds.length; i++) {
+                subkeyIds[i] = ids.get(i);
+            }
+
+            Set<String> fingerprints = new HashSet<>();
+            Iterator<Certificate> certificates = parallelAdapter.getCertificatesBySubkeyIds(subkeyIds);
+            while (certificates.hasNext()) {
+                assertTrue(fingerprints.add(certificates.next().getFingerprint()));
+            }
+            assertEquals(new HashSet<>(Arrays.asList(TestKeys.RON_FP, TestKeys.CEDRIC_FP)), fingerprints);
+            assertEquals(3, tasks.get());
+
+            assertFalse(parallelAdapter.getCertificatesBySubkeyIds().hasNext());
+            assertFalse(parallelAdapter.getCertificatesBySubkeyIds(0L).hasNext());
+        } finally {
+            executorService.shutdown();
+        }
+    }
 }
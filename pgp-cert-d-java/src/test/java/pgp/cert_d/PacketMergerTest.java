@@ -0,0 +1,162 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.KeyFingerPrintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.merge.PacketMerger;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PacketMergerTest {
+
+    private static final KeyFingerPrintCalculator fpCalc = new BcKeyFingerprintCalculator();
+    private final TestKeyMaterialReaderBackend reader = new TestKeyMaterialReaderBackend();
+    private final PacketMerger merger = new PacketMerger();
+
+    @Test
+    public void mergingKnownPacketsReturnsExistingInstance() throws IOException, BadDataException {
+        KeyMaterial existing = reader.read(TestKeys.getRonCert(), null);
+        KeyMaterial binary = reader.read(new ByteArrayInputStream(ring(existing).getEncoded()), null);
+
+        assertSame(existing, merger.merge(reader.read(TestKeys.getRonCert(), null), existing));
+        assertSame(existing, merger.merge(binary, existing));
+        assertSame(binary, merger.merge(existing, binary));
+    }
+
+    @Test
+    public void missingComponentsAreAdded() throws IOException, BadDataException {
+        PGPPublicKeyRing ron = ring(reader.read(TestKeys.getRonCert(), null));
+        PGPPublicKey primaryKey = ron.getPublicKey();
+        String userId = primaryKey.getUserIDs().next();
+
+        // existing copy lacks the user-id and all subkeys
+        PGPPublicKeyRing stripped = new PGPPublicKeyRing(
+                Collections.singletonList(PGPPublicKey.removeCertification(primaryKey, userId)));
+        KeyMaterial existing = reader.read(new ByteArrayInputStream(stripped.getEncoded()), null);
+
+        KeyMaterial merged = merger.merge(reader.read(TestKeys.getRonCert(), null), existing);
+        assertNotSame(existing, merged);
+        assertEquals(TestKeys.RON_FP, merged.getFingerprint());
+        assertArrayEquals(ron.getEncoded(), ring(merged).getEncoded());
+        assertEquals(countKeys(ron), merged.getSubkeyIds().size());
+
+        // merging again does not change anything
+        assertSame(merged, merger.merge(reader.read(TestKeys.getRonCert(), null), merged));
+    }
+
+    @Test
+    public void newSignaturesOfFloodedCertificateAreAddedOnce() throws IOException, BadDataException, PGPException {
+        PGPPublicKeyRing ron = ring(reader.read(TestKeys.getRonCert(), null));
+        PGPSecretKeyRing harry = new PGPSecretKeyRing(PGPUtil.getDecoderStream(TestKeys.getHarryKey()), fpCalc);
+        PGPPrivateKey signingKey = harry.getSecretKey().extractPrivateKey(null);
+        String userId = ron.getPublicKey().getUserIDs().next();
+
+        PGPPublicKey flooded = ron.getPublicKey();
+        for (int i = 0; i < 200; i++) {
+            flooded = PGPPublicKey.addCertification(flooded, userId, certify(signingKey, harry, ron, userId, i + 1));
+        }
+        KeyMaterial existing = reader.read(new ByteArrayInputStream(
+                PGPPublicKeyRing.insertPublicKey(ron, flooded).getEncoded()), null);
+
+        PGPSignature certification = certify(signingKey, harry, ron, userId, 0);
+        PGPPublicKey updatedKey = PGPPublicKey.addCertification(ron.getPublicKey(), userId, certification);
+        KeyMaterial update = reader.read(new ByteArrayInputStream(
+                PGPPublicKeyRing.insertPublicKey(ron, updatedKey).getEncoded()), null);
+
+        KeyMaterial merged = merger.merge(update, existing);
+        assertEquals(countSignatures(ring(existing), userId) + 1, countSignatures(ring(merged), userId));
+        assertSame(merged, merger.merge(update, merged));
+    }
+
+    @Test
+    public void mergingDifferentCertificatesFails() throws IOException, BadDataException {
+        KeyMaterial ron = reader.read(TestKeys.getRonCert(), null);
+        KeyMaterial cedric = reader.read(TestKeys.getCedricCert(), null);
+        assertThrows(IOException.class, () -> merger.merge(cedric, ron));
+    }
+
+    @Test
+    public void oversizedPacketIsRejected() {
+        // new format public key packet header claiming a body of 2 GiB - 1 bytes
+        byte[] oversized = new byte[] {(byte) 0xc6, (byte) 0xff, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 4};
+        assertThrows(IOException.class, () -> PacketMerger.merge(new ByteArrayInputStream(oversized),
+                TestKeys.getRonCert(), new ByteArrayOutputStream(), 1024));
+        assertThrows(IllegalArgumentException.class, () -> new PacketMerger(PacketMerger.PREFER_SECRET_KEY, 0));
+    }
+
+    @Test
+    public void secretKeysAreDelegated() throws IOException, BadDataException {
+        KeyMaterial key = reader.read(TestKeys.getHarryKey(), null);
+        KeyMaterial cert = key.asCertificate();
+        assertSame(key, merger.merge(cert, key));
+        assertSame(key, merger.merge(key, cert));
+    }
+
+    private static PGPSignature certify(PGPPrivateKey signingKey, PGPSecretKeyRing issuer, PGPPublicKeyRing target,
+                                        String userId, int ageSeconds) throws PGPException {
+        PGPSignatureGenerator generator = new PGPSignatureGenerator(new BcPGPContentSignerBuilder(
+                issuer.getPublicKey().getAlgorithm(), HashAlgorithmTags.SHA256), issuer.getPublicKey());
+        generator.init(PGPSignature.DEFAULT_CERTIFICATION, signingKey);
+        // EdDSA signatures are deterministic, so vary the creation time to get distinct signatures
+        PGPSignatureSubpacketGenerator subpackets = new PGPSignatureSubpacketGenerator();
+        subpackets.setSignatureCreationTime(false, new Date(System.currentTimeMillis() - ageSeconds * 1000L));
+        generator.setHashedSubpackets(subpackets.generate());
+        return generator.generateCertification(userId, target.getPublicKey());
+    }
+
+    private static PGPPublicKeyRing ring(KeyMaterial keyMaterial) throws IOException {
+        try (InputStream in = keyMaterial.getInputStream()) {
+            return new PGPPublicKeyRing(PGPUtil.getDecoderStream(in), fpCalc);
+        }
+    }
+
+    private static int countSignatures(PGPPublicKeyRing ring, String userId) {
+        int count = 0;
+        Iterator<PGPSignature> signatures = ring.getPublicKey().getSignaturesForID(userId);
+        while (signatures.hasNext()) {
+            signatures.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static int countKeys(PGPPublicKeyRing ring) {
+        int count = 0;
+        Iterator<PGPPublicKey> keys = ring.getPublicKeys();
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,167 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.backend.PackfileCertificateDirectoryBackend;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackfileCertificateDirectoryBackendTest {
+
+    private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
+
+    private File baseDirectory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        baseDirectory = Files.createTempDirectory("packfile-backend").toFile();
+        baseDirectory.deleteOnExit();
+    }
+
+    private PackfileCertificateDirectoryBackend open() throws IOException {
+        return open(PackfileCertificateDirectoryBackend.DEFAULT_SEGMENT_SIZE);
+    }
+
+    private PackfileCertificateDirectoryBackend open(long segmentSize) throws IOException {
+        return new PackfileCertificateDirectoryBackend(baseDirectory, new TestKeyMaterialReaderBackend(),
+                segmentSize, 1.0);
+    }
+
+    private static PGPCertificateDirectory directory(PackfileCertificateDirectoryBackend backend) {
+        return new PGPCertificateDirectory(backend, new InMemorySubkeyLookup());
+    }
+
+    @Test
+    public void reopenRestoresIndex()
+            throws IOException, BadDataException, InterruptedException, BadNameException {
+        Certificate ron;
+        Certificate cedric;
+        KeyMaterial trustRoot;
+        try (PackfileCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = directory(backend);
+            ron = directory.insert(TestKeys.getRonCert(), merger);
+            cedric = directory.insert(TestKeys.getCedricCert(), merger);
+            trustRoot = directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+        }
+
+        try (PackfileCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = directory(backend);
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            TestKeys.assertSameKeyMaterial(cedric, directory.getByFingerprint(TestKeys.CEDRIC_FP));
+            TestKeys.assertSameKeyMaterial(trustRoot, directory.getTrustRoot());
+            assertEquals(2, count(directory.entries()));
+
+            Certificate updated = directory.insert(TestKeys.getModifiedRonCert(1), merger);
+            assertTrue(updated.getTag() > trustRoot.getTag());
+        }
+    }
+
+    @Test
+    public void partiallyWrittenRecordIsDropped()
+            throws IOException, BadDataException, InterruptedException, BadNameException {
+        Certificate ron;
+        try (PackfileCertificateDirectoryBackend backend = open()) {
+            ron = directory(backend).insert(TestKeys.getRonCert(), merger);
+        }
+        File[] segments = segmentFiles();
+        assertEquals(1, segments.length);
+        long validLength = segments[0].length();
+        try (FileOutputStream out = new FileOutputStream(segments[0], true)) {
+            out.write(new byte[] {0, 0, 1, 0, 1, 20, 42});
+        }
+
+        Certificate cedric;
+        try (PackfileCertificateDirectoryBackend backend = open()) {
+            assertEquals(validLength, segments[0].length());
+            PGPCertificateDirectory directory = directory(backend);
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            cedric = directory.insert(TestKeys.getCedricCert(), merger);
+        }
+
+        try (PackfileCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = directory(backend);
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            TestKeys.assertSameKeyMaterial(cedric, directory.getByFingerprint(TestKeys.CEDRIC_FP));
+        }
+    }
+
+    @Test
+    public void compactionRemovesSupersededRecords()
+            throws IOException, BadDataException, InterruptedException, BadNameException {
+        Certificate ron = null;
+        Certificate cedric;
+        try (PackfileCertificateDirectoryBackend backend = open(4096)) {
+            PGPCertificateDirectory directory = directory(backend);
+            cedric = directory.insert(TestKeys.getCedricCert(), merger);
+            for (int i = 0; i < 10; i++) {
+                ron = directory.insert(TestKeys.getModifiedRonCert(i), merger);
+            }
+
+            // superseded records are removed either by the background compaction or by compact()
+            backend.compact();
+            long stored = 0;
+            for (File segment : segmentFiles()) {
+                stored += segment.length();
+            }
+            assertTrue(stored < 4L * TestKeys.RON_CERT.length());
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            TestKeys.assertSameKeyMaterial(cedric, directory.getByFingerprint(TestKeys.CEDRIC_FP));
+        }
+
+        try (PackfileCertificateDirectoryBackend backend = open(4096)) {
+            PGPCertificateDirectory directory = directory(backend);
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            TestKeys.assertSameKeyMaterial(cedric, directory.getByFingerprint(TestKeys.CEDRIC_FP));
+        }
+    }
+
+    @Test
+    public void storeCannotBeOpenedTwice() throws IOException {
+        PackfileCertificateDirectoryBackend first = open();
+        try {
+            assertThrows(IOException.class, () -> open());
+        } finally {
+            first.close();
+        }
+        try (PackfileCertificateDirectoryBackend reopened = open()) {
+            assertNotNull(reopened);
+        }
+    }
+
+    private File[] segmentFiles() {
+        File[] segments = baseDirectory.listFiles((dir, name) -> name.endsWith(".pack"));
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private static int count(Iterator<?> iterator) {
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
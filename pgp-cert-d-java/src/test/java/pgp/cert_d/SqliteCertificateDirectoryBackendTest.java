@@ -0,0 +1,149 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.cert_d;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pgp.cert_d.dummy.TestKeyMaterialMerger;
+import pgp.cert_d.dummy.TestKeyMaterialReaderBackend;
+import pgp.cert_d.jdbc.sqlite.SqliteCertificateDirectoryBackend;
+import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.SubkeyLookup;
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterial;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+import pgp.certificate_store.exception.BadDataException;
+import pgp.certificate_store.exception.BadNameException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqliteCertificateDirectoryBackendTest {
+
+    private static final KeyMaterialMerger merger = new TestKeyMaterialMerger();
+
+    private File databaseFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        File tempDir = Files.createTempDirectory("sqlite-backend").toFile();
+        tempDir.deleteOnExit();
+        databaseFile = new File(tempDir, "certificates.db");
+        databaseFile.deleteOnExit();
+    }
+
+    private SqliteCertificateDirectoryBackend open() throws SQLException {
+        return SqliteCertificateDirectoryBackend.forDatabaseFile(databaseFile, new TestKeyMaterialReaderBackend(), 2);
+    }
+
+    @Test
+    public void reopenKeepsCertificatesAndTags()
+            throws SQLException, IOException, BadDataException, InterruptedException, BadNameException {
+        Certificate ron;
+        Certificate cedric;
+        KeyMaterial trustRoot;
+        try (SqliteCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, backend.getSubkeyLookup());
+            ron = directory.insert(TestKeys.getRonCert(), merger);
+            cedric = directory.insert(TestKeys.getCedricCert(), merger);
+            trustRoot = directory.insertTrustRoot(TestKeys.getHarryKey(), merger);
+            assertTrue(ron.getTag() < cedric.getTag());
+            assertTrue(cedric.getTag() < trustRoot.getTag());
+        }
+
+        try (SqliteCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, backend.getSubkeyLookup());
+            TestKeys.assertSameKeyMaterial(ron, directory.getByFingerprint(TestKeys.RON_FP));
+            TestKeys.assertSameKeyMaterial(cedric, directory.getByFingerprint(TestKeys.CEDRIC_FP));
+            TestKeys.assertSameKeyMaterial(trustRoot, directory.getTrustRoot());
+
+            Certificate updated = directory.insert(TestKeys.getModifiedRonCert(), merger);
+            assertTrue(updated.getTag() > trustRoot.getTag());
+        }
+    }
+
+    @Test
+    public void subkeyIdsAreStoredWithinInsertTransaction()
+            throws SQLException, IOException, BadDataException, InterruptedException {
+        try (SqliteCertificateDirectoryBackend backend = open()) {
+            // the directory does not know about the subkey lookup table of the backend
+            PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, new InMemorySubkeyLookup());
+            Certificate ron = directory.insert(TestKeys.getRonCert(), merger);
+
+            for (long subkeyId : ron.getSubkeyIds()) {
+                assertTrue(backend.getSubkeyLookup().getCertificateFingerprintsForSubkeyId(subkeyId)
+                        .contains(TestKeys.RON_FP));
+            }
+        }
+    }
+
+    @Test
+    public void subkeyIdsAreNotStoredTwice()
+            throws SQLException, IOException, BadDataException, InterruptedException {
+        try (SqliteCertificateDirectoryBackend backend = open()) {
+            AtomicInteger stored = new AtomicInteger();
+            SubkeyLookup countingLookup = new SubkeyLookup() {
+                @Override
+                public Set<String> getCertificateFingerprintsForSubkeyId(long subkeyId) throws IOException {
+                    return backend.getSubkeyLookup().getCertificateFingerprintsForSubkeyId(subkeyId);
+                }
+
+                @Override
+                public void storeCertificateSubkeyIds(String certificate, List<Long> subkeyIds) throws IOException {
+                    stored.incrementAndGet();
+                    backend.getSubkeyLookup().storeCertificateSubkeyIds(certificate, subkeyIds);
+                }
+            };
+            assertFalse(backend.updatesSubkeyLookup(countingLookup));
+            assertTrue(backend.updatesSubkeyLookup(backend.getSubkeyLookup()));
+
+            new PGPCertificateDirectory(backend, countingLookup).insert(TestKeys.getRonCert(), merger);
+            assertEquals(1, stored.get());
+        }
+    }
+
+    @Test
+    public void insertAllIsAtomic()
+            throws SQLException, IOException, BadDataException, InterruptedException, BadNameException {
+        KeyMaterialMerger failingOnCedric = (data, existing) -> {
+            if (data.getFingerprint().equals(TestKeys.CEDRIC_FP)) {
+                throw new IOException("Cannot merge");
+            }
+            return data;
+        };
+        try (SqliteCertificateDirectoryBackend backend = open()) {
+            PGPCertificateDirectory directory = new PGPCertificateDirectory(backend, backend.getSubkeyLookup());
+            assertThrows(IOException.class, () -> directory.insertAll(
+                    Arrays.asList(TestKeys.getRonCert(), TestKeys.getCedricCert()), failingOnCedric));
+            assertThrows(BadDataException.class, () -> directory.insertAll(Arrays.asList(
+                    TestKeys.getRonCert(), new ByteArrayInputStream("Not a certificate".getBytes())), merger));
+
+            assertThrows(NoSuchElementException.class, () -> directory.getByFingerprint(TestKeys.RON_FP));
+            assertFalse(backend.readItems().hasNext());
+            assertTrue(directory.getCertificateFingerprintsForSubkeyId(ronSubkeyId()).isEmpty());
+
+            directory.insertAll(Arrays.asList(TestKeys.getRonCert(), TestKeys.getCedricCert()), merger);
+            assertEquals(TestKeys.RON_FP, directory.getByFingerprint(TestKeys.RON_FP).getFingerprint());
+            assertEquals(TestKeys.CEDRIC_FP, directory.getByFingerprint(TestKeys.CEDRIC_FP).getFingerprint());
+        }
+    }
+
+    private static long ronSubkeyId() throws IOException, BadDataException {
+        return new TestKeyMaterialReaderBackend().read(TestKeys.getRonCert(), null).getSubkeyIds().get(0);
+    }
+}
@@ -18,37 +18,33 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Stream;
 
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import pgp.cert_d.jdbc.sqlite.DatabaseSubkeyLookup;
 import pgp.cert_d.jdbc.sqlite.SqliteSubkeyLookupDaoImpl;
+import pgp.cert_d.subkey_lookup.CompactSubkeyLookup;
 import pgp.cert_d.subkey_lookup.InMemorySubkeyLookup;
+import pgp.cert_d.subkey_lookup.MappedSubkeyLookup;
 import pgp.cert_d.subkey_lookup.SubkeyLookup;
 
 public class SubkeyLookupTest {
 
-    private static final List<SubkeyLookup> testSubjects = new ArrayList<>();
+    // Subjects are created per test, since closeable arguments are closed after each invocation
+    private static Stream<SubkeyLookup> provideSubkeyLookupsForTest() throws IOException, SQLException {
+        List<SubkeyLookup> testSubjects = new ArrayList<>();
+        testSubjects.add(new InMemorySubkeyLookup());
+        testSubjects.add(new CompactSubkeyLookup(CompactSubkeyLookup.Storage.HEAP));
+        testSubjects.add(new CompactSubkeyLookup(CompactSubkeyLookup.Storage.OFF_HEAP));
 
-    @BeforeAll
-    public static void setupLookupTestSubjects() throws IOException, SQLException {
-        InMemorySubkeyLookup inMemorySubkeyLookup = new InMemorySubkeyLookup();
-        testSubjects.add(inMemorySubkeyLookup);
+        File mappedIndexDirectory = Files.createTempDirectory("subkeyLookupTest").toFile();
+        mappedIndexDirectory.deleteOnExit();
+        testSubjects.add(new MappedSubkeyLookup(mappedIndexDirectory));
 
         File sqliteDatabase = Files.createTempFile("subkeyLookupTest", ".db").toFile();
         sqliteDatabase.createNewFile();
         sqliteDatabase.deleteOnExit();
         DatabaseSubkeyLookup sqliteSubkeyLookup = new DatabaseSubkeyLookup(SqliteSubkeyLookupDaoImpl.forDatabaseFile(sqliteDatabase));
         testSubjects.add(sqliteSubkeyLookup);
-    }
-
-    @AfterAll
-    public static void tearDownLookupTestSubjects() {
-        ((InMemorySubkeyLookup) testSubjects.get(0)).clear();
-    }
-
-    private static Stream<SubkeyLookup> provideSubkeyLookupsForTest() {
         return testSubjects.stream();
     }
 
@@ -86,4 +82,19 @@ public class SubkeyLookupTest {
                 new HashSet<>(Arrays.asList("eb85bb5fa33a75e15e944e63f231550c4f47e38e", "d1a66e1a23b182c9980f788cfbfcc82a015e7330")),
                 subject.getCertificateFingerprintsForSubkeyId(123));
     }
+
+    @ParameterizedTest
+    @MethodSource("provideSubkeyLookupsForTest")
+    public void testBatchGet(SubkeyLookup subject) throws IOException {
+        subject.storeCertificateSubkeyIds("cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9",
+                Arrays.asList(9001L, 9002L));
+        subject.storeCertificateSubkeyIds("5e75bf20646bc1a98d3b1bc2fe9cd472987c4021", Collections.singletonList(9002L));
+
+        assertTrue(subject.getCertificateFingerprintsForSubkeyIds().isEmpty());
+        assertTrue(subject.getCertificateFingerprintsForSubkeyIds(9000L).isEmpty());
+        assertEquals(
+                new HashSet<>(Arrays.asList("cb186c4f0609a697e4d52dfa6c722b0c1f1e27c18a56708f6525ec27bad9acc9",
+                        "5e75bf20646bc1a98d3b1bc2fe9cd472987c4021")),
+                subject.getCertificateFingerprintsForSubkeyIds(9000L, 9001L, 9002L));
+    }
 }
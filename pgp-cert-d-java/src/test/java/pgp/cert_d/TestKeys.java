@@ -4,10 +4,17 @@
 
 package pgp.cert_d;
 
+import org.bouncycastle.util.io.Streams;
+import pgp.certificate_store.certificate.KeyMaterial;
+
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class TestKeys {
     @SuppressWarnings("CharsetObjectCanBeUsed")
     private static final Charset UTF8 = Charset.forName("UTF8");
@@ -127,4 +134,43 @@ public class TestKeys {
     public static InputStream getCedricCert() {
         return new ByteArrayInputStream(CEDRIC_CERT.getBytes(UTF8));
     }
+
+    /**
+     * Return Ron's certificate with a different encoding (a trailing newline), which is therefore stored as an update.
+     *
+     * @return modified certificate
+     */
+    public static InputStream getModifiedRonCert() {
+        return getModifiedRonCert(0);
+    }
+
+    /**
+     * Return Ron's certificate with <pre>variant + 1</pre> trailing newlines, so that each variant has a different
+     * encoding.
+     *
+     * @param variant variant
+     * @return modified certificate
+     */
+    public static InputStream getModifiedRonCert(int variant) {
+        StringBuilder cert = new StringBuilder(RON_CERT);
+        for (int i = 0; i <= variant; i++) {
+            cert.append('\n');
+        }
+        return new ByteArrayInputStream(cert.toString().getBytes(UTF8));
+    }
+
+    /**
+     * Assert that both key materials have the same fingerprint, tag and encoding.
+     *
+     * @param expected expected key material
+     * @param actual actual key material
+     * @throws IOException if the encodings cannot be read
+     */
+    public static void assertSameKeyMaterial(KeyMaterial expected, KeyMaterial actual) throws IOException {
+        assertEquals(expected.getFingerprint(), actual.getFingerprint());
+        assertEquals(expected.getTag(), actual.getTag());
+        try (InputStream expectedIn = expected.getInputStream(); InputStream actualIn = actual.getInputStream()) {
+            assertArrayEquals(Streams.readAll(expectedIn), Streams.readAll(actualIn));
+        }
+    }
 }
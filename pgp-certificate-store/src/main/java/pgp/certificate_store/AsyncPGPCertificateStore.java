@@ -0,0 +1,212 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.certificate_store;
+
+import pgp.certificate_store.certificate.Certificate;
+import pgp.certificate_store.certificate.KeyMaterialMerger;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade for a {@link PGPCertificateStore}.
+ * Each operation is executed on an {@link Executor} and its result is returned as a {@link CompletableFuture}.
+ * Checked exceptions thrown by the underlying store (e.g. {@link java.io.IOException} or
+ * {@link pgp.certificate_store.exception.BadDataException}) complete the future exceptionally with the original
+ * exception as cause.
+ *
+ * The {@link #defaultExecutor() default executor} starts a virtual thread per task if the runtime supports virtual
+ * threads, so that blocking file IO and waiting for the write-lock of the store do not occupy platform threads.
+ */
+public class AsyncPGPCertificateStore {
+
+    /**
+     * Operation of a {@link PGPCertificateStore} which may throw checked exceptions.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    private interface StoreOperation<T> {
+        T execute() throws Exception;
+    }
+
+    private final PGPCertificateStore store;
+    private final Executor executor;
+
+    /**
+     * Create an asynchronous facade for the given store using the {@link #defaultExecutor() default executor}.
+     *
+     * @param store store
+     */
+    public AsyncPGPCertificateStore(PGPCertificateStore store) {
+        this(store, defaultExecutor());
+    }
+
+    /**
+     * Create an asynchronous facade for the given store, which executes operations on the given executor.
+     *
+     * @param store store
+     * @param executor executor
+     */
+    public AsyncPGPCertificateStore(PGPCertificateStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    /**
+     * Return the shared default executor.
+     * On Java 21 and newer, it starts a new virtual thread for each task.
+     * On older runtimes, it falls back to a cached pool of daemon threads.
+     *
+     * @return default executor
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Return the underlying synchronous store.
+     *
+     * @return store
+     */
+    public PGPCertificateStore getStore() {
+        return store;
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#getCertificate(String)}.
+     *
+     * @param identifier identifier for a certificate in the store
+     * @return future certificate
+     */
+    public CompletableFuture<Certificate> getCertificate(String identifier) {
+        return submit(() -> store.getCertificate(identifier));
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#getCertificateIfChanged(String, Long)}.
+     *
+     * @param identifier identifier for a certificate in the store
+     * @param tag tag of the certificate known by the caller
+     * @return future certificate, completed with null if the certificate did not change
+     */
+    public CompletableFuture<Certificate> getCertificateIfChanged(String identifier, Long tag) {
+        return submit(() -> store.getCertificateIfChanged(identifier, tag));
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#getCertificatesBySubkeyId(long)}.
+     *
+     * @param subkeyId id of the subkey
+     * @return future iterator
+     */
+    public CompletableFuture<Iterator<Certificate>> getCertificatesBySubkeyId(long subkeyId) {
+        return submit(() -> store.getCertificatesBySubkeyId(subkeyId));
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#getCertificatesBySubkeyIds(long...)}.
+     *
+     * @param subkeyIds ids of the subkeys
+     * @return future iterator
+     */
+    public CompletableFuture<Iterator<Certificate>> getCertificatesBySubkeyIds(long... subkeyIds) {
+        long[] ids = subkeyIds.clone();
+        return submit(() -> store.getCertificatesBySubkeyIds(ids));
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#insertCertificate(InputStream, KeyMaterialMerger)}.
+     * The future completes once the write-lock of the store was acquired and the certificate was inserted.
+     *
+     * @param data input stream containing the new certificate instance
+     * @param merge callback for merging with an existing certificate instance
+     * @return future merged certificate
+     */
+    public CompletableFuture<Certificate> insertCertificate(InputStream data, KeyMaterialMerger merge) {
+        return submit(() -> store.insertCertificate(data, merge));
+    }
+
+    /**
+     * Asynchronous variant of {@link PGPCertificateStore#insertCertificates(Iterable, KeyMaterialMerger)}.
+     *
+     * @param data input streams containing the new certificate instances
+     * @param merge callback for merging with existing certificate instances
+     * @return future merged certificates in the order of the input streams
+     */
+    public CompletableFuture<List<Certificate>> insertCertificates(Iterable<InputStream> data,
+                                                                   KeyMaterialMerger merge) {
+        return submit(() -> store.insertCertificates(data, merge));
+    }
+
+    /**
+     * Asynchronous variant of
+     * {@link PGPCertificateStore#insertCertificateBySpecialName(String, InputStream, KeyMaterialMerger)}.
+     *
+     * @param specialName special name of the certificate
+     * @param data input stream containing the new certificate instance
+     * @param merge callback for merging with an existing certificate instance
+     * @return future merged certificate
+     */
+    public CompletableFuture<Certificate> insertCertificateBySpecialName(String specialName,
+                                                                         InputStream data,
+                                                                         KeyMaterialMerger merge) {
+        return submit(() -> store.insertCertificateBySpecialName(specialName, data, merge));
+    }
+
+    private <T> CompletableFuture<T> submit(StoreOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // cancelled before execution
+                    return;
+                }
+                try {
+                    future.complete(operation.execute());
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                    Thread.currentThread().interrupt();
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. RejectedExecutionException
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Lazily initialized holder of the default executor.
+     */
+    private static final class DefaultExecutorHolder {
+
+        private static final Executor EXECUTOR = createDefaultExecutor();
+
+        private static Executor createDefaultExecutor() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // virtual threads are not available on this runtime
+                AtomicInteger counter = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "pgp-certificate-store-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
@@ -11,7 +11,11 @@ import pgp.certificate_store.exception.BadNameException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -63,6 +67,32 @@ public interface PGPCertificateStore {
     Iterator<Certificate> getCertificatesBySubkeyId(long subkeyId)
             throws IOException, BadDataException;
 
+    /**
+     * Return an {@link Iterator} over all certificates in the store that contain a subkey with any of the given
+     * subkey ids.
+     * Each certificate is returned only once, even if it contains multiple of the given subkeys.
+     * Implementations should override this method to resolve all subkey ids at once and to read the certificates
+     * concurrently.
+     *
+     * @param subkeyIds ids of the subkeys
+     * @return iterator
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException if any of the certificate files contains invalid data
+     */
+    default Iterator<Certificate> getCertificatesBySubkeyIds(long... subkeyIds)
+            throws IOException, BadDataException {
+        Map<String, Certificate> certificates = new LinkedHashMap<>();
+        for (long subkeyId : subkeyIds) {
+            Iterator<Certificate> iterator = getCertificatesBySubkeyId(subkeyId);
+            while (iterator.hasNext()) {
+                Certificate certificate = iterator.next();
+                certificates.putIfAbsent(certificate.getFingerprint(), certificate);
+            }
+        }
+        return certificates.values().iterator();
+    }
+
     /**
      * Insert a certificate into the store.
      * If an instance of the certificate is already present in the store, the given {@link KeyMaterialMerger} will be
@@ -82,6 +112,31 @@ public interface PGPCertificateStore {
     Certificate insertCertificate(InputStream data, KeyMaterialMerger merge)
             throws IOException, InterruptedException, BadDataException;
 
+    /**
+     * Insert multiple certificates into the store.
+     * If an instance of a certificate is already present in the store, the given {@link KeyMaterialMerger} will be
+     * used to merge both the existing and the new instance of the {@link Certificate}.
+     *
+     * This method will block until a write-lock on the store can be acquired.
+     * Implementations should override this method to acquire the write-lock only once for all certificates.
+     *
+     * @param data input streams containing the new certificate instances
+     * @param merge callback for merging with existing certificate instances
+     * @return merged certificates in the order of the input streams
+     *
+     * @throws IOException in case of an IO-error
+     * @throws InterruptedException in case the inserting thread gets interrupted
+     * @throws BadDataException if any of the data streams does not contain valid OpenPGP data
+     */
+    default List<Certificate> insertCertificates(Iterable<InputStream> data, KeyMaterialMerger merge)
+            throws IOException, InterruptedException, BadDataException {
+        List<Certificate> certificates = new ArrayList<>();
+        for (InputStream certificate : data) {
+            certificates.add(insertCertificate(certificate, merge));
+        }
+        return certificates;
+    }
+
     /**
      * Insert a certificate into the store.
      * The certificate will be stored under the given special name instead of its fingerprint.
@@ -40,7 +40,7 @@ public class Certificate implements KeyMaterial {
      * @param tag tag
      */
     public Certificate(Certificate cert, Long tag) {
-        this(cert.bytes, cert.fingerprint, cert.subkeyIds, tag);
+        this(cert.getEncoding(), cert.getFingerprint(), cert.getSubkeyIds(), tag);
     }
 
     @Override
@@ -55,7 +55,7 @@ public class Certificate implements KeyMaterial {
 
     @Override
     public InputStream getInputStream() {
-        return new ByteArrayInputStream(bytes);
+        return new ByteArrayInputStream(getEncoding());
     }
 
     @Override
@@ -67,4 +67,22 @@ public class Certificate implements KeyMaterial {
     public List<Long> getSubkeyIds() {
         return subkeyIds;
     }
+
+    /**
+     * Return the length of the binary encoding of the certificate in bytes.
+     *
+     * @return encoded length
+     */
+    public long getEncodedLength() {
+        return bytes.length;
+    }
+
+    /**
+     * Return the binary encoding of the certificate.
+     *
+     * @return encoding
+     */
+    byte[] getEncoding() {
+        return bytes;
+    }
 }
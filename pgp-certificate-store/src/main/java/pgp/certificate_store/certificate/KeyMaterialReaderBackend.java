@@ -6,8 +6,10 @@ package pgp.certificate_store.certificate;
 
 import pgp.certificate_store.exception.BadDataException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface KeyMaterialReaderBackend {
 
@@ -22,4 +24,47 @@ public interface KeyMaterialReaderBackend {
      * @throws BadDataException in case that the data stream does not contain a valid OpenPGP key/certificate
      */
     KeyMaterial read(InputStream data, Long tag) throws IOException, BadDataException;
+
+    /**
+     * Read a {@link KeyMaterial} (either {@link Key} or {@link Certificate}) from a region of the given byte array.
+     * The caller hands over ownership of the array and MUST NOT modify it afterwards, so that implementations
+     * can use it as the encoding of the returned key material without copying it.
+     * The default implementation delegates to {@link #read(InputStream, Long)}, implementations are encouraged
+     * to override it.
+     *
+     * @param data array containing the binary representation of the key
+     * @param offset offset of the key in the array
+     * @param length length of the key in bytes
+     * @param tag tag for the key material. Might be null.
+     * @return key or certificate object
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException in case that the data does not contain a valid OpenPGP key/certificate
+     */
+    default KeyMaterial read(byte[] data, int offset, int length, Long tag) throws IOException, BadDataException {
+        return read(new ByteArrayInputStream(data, offset, length), tag);
+    }
+
+    /**
+     * Read a {@link KeyMaterial} (either {@link Key} or {@link Certificate}) from the remaining bytes of the given
+     * {@link ByteBuffer}.
+     * The position of the buffer is not modified.
+     * Buffers backed by an array are passed to {@link #read(byte[], int, int, Long)} without copying, so the
+     * same ownership rules apply.
+     *
+     * @param data buffer containing the binary representation of the key
+     * @param tag tag for the key material. Might be null.
+     * @return key or certificate object
+     *
+     * @throws IOException in case of an IO error
+     * @throws BadDataException in case that the data does not contain a valid OpenPGP key/certificate
+     */
+    default KeyMaterial read(ByteBuffer data, Long tag) throws IOException, BadDataException {
+        if (data.hasArray()) {
+            return read(data.array(), data.arrayOffset() + data.position(), data.remaining(), tag);
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return read(bytes, 0, bytes.length, tag);
+    }
 }
@@ -0,0 +1,173 @@
+// SPDX-FileCopyrightText: 2026 Paul Schaub <vanitasvitae@fsfe.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package pgp.certificate_store.certificate;
+
+import pgp.certificate_store.exception.BadDataException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * {@link Certificate} whose fingerprint and tag are known upfront, while its encoding is only loaded on the first
+ * call to {@link #getInputStream()} and only parsed on the first call to {@link #getSubkeyIds()}.
+ * This allows consumers that only need the fingerprint and tag, or only the raw encoding, to skip parsing.
+ *
+ * Since the encoding is loaded after the tag was determined, the encoding might be newer than the tag.
+ * This is safe for cache validation, as a newer certificate will be detected as changed again.
+ *
+ * Errors while loading or parsing the certificate are thrown as {@link UncheckedIOException}.
+ * Use {@link #parse()} to handle them as checked exceptions instead.
+ */
+public class LazyCertificate extends Certificate {
+
+    /**
+     * Source of the binary encoding of a certificate.
+     */
+    @FunctionalInterface
+    public interface EncodingSource {
+
+        /**
+         * Load the binary encoding of the certificate.
+         *
+         * @return encoding
+         * @throws IOException in case of an IO error
+         */
+        byte[] load() throws IOException;
+    }
+
+    private final EncodingSource source;
+    private final KeyMaterialReaderBackend reader;
+    private final long encodedLength;
+    private volatile byte[] encoding;
+    private volatile Certificate parsed;
+
+    /**
+     * Create a lazily loaded certificate.
+     *
+     * @param fingerprint fingerprint (lowercase hex characters)
+     * @param tag tag
+     * @param source source of the encoding of the certificate
+     * @param reader reader used to parse the certificate on demand
+     */
+    public LazyCertificate(String fingerprint, Long tag, EncodingSource source, KeyMaterialReaderBackend reader) {
+        this(fingerprint, tag, -1, source, reader);
+    }
+
+    /**
+     * Create a lazily loaded certificate whose encoded length is already known, e.g. from the file size.
+     *
+     * @param fingerprint fingerprint (lowercase hex characters)
+     * @param tag tag
+     * @param encodedLength expected length of the encoding in bytes, or -1 if unknown
+     * @param source source of the encoding of the certificate
+     * @param reader reader used to parse the certificate on demand
+     */
+    public LazyCertificate(String fingerprint, Long tag, long encodedLength,
+                           EncodingSource source, KeyMaterialReaderBackend reader) {
+        super(null, fingerprint, null, tag);
+        this.encodedLength = encodedLength;
+        this.source = source;
+        this.reader = reader;
+    }
+
+    /**
+     * Return the length of the encoding.
+     * If the encoding is not loaded yet, the length passed on creation is returned without loading it.
+     * Only if the length is unknown, the encoding is loaded.
+     *
+     * @return encoded length
+     */
+    @Override
+    public long getEncodedLength() {
+        byte[] bytes = encoding;
+        if (bytes != null) {
+            return bytes.length;
+        }
+        if (encodedLength >= 0) {
+            return encodedLength;
+        }
+        return getEncoding().length;
+    }
+
+    @Override
+    public List<Long> getSubkeyIds() {
+        try {
+            return parse().getSubkeyIds();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (BadDataException e) {
+            throw new UncheckedIOException(new IOException("Cannot parse certificate " + getFingerprint(), e));
+        }
+    }
+
+    /**
+     * Load and parse the certificate, if this did not already happen.
+     *
+     * @return parsed certificate
+     *
+     * @throws IOException if the encoding cannot be loaded
+     * @throws BadDataException if the encoding is not a valid certificate, or if its fingerprint does not match
+     */
+    public Certificate parse() throws IOException, BadDataException {
+        Certificate certificate = parsed;
+        if (certificate != null) {
+            return certificate;
+        }
+        synchronized (this) {
+            if (parsed == null) {
+                byte[] bytes = load();
+                Certificate read = reader.read(bytes, 0, bytes.length, getTag()).asCertificate();
+                if (!getFingerprint().equals(read.getFingerprint())) {
+                    throw new BadDataException("Certificate fingerprint does not match expected fingerprint.\n" +
+                            "Fingerprint: " + read.getFingerprint() + "\n" +
+                            "Expected: " + getFingerprint());
+                }
+                parsed = read;
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Return true, if the encoding of the certificate has already been loaded.
+     *
+     * @return true if loaded
+     */
+    public boolean isLoaded() {
+        return encoding != null;
+    }
+
+    /**
+     * Return true, if the certificate has already been parsed.
+     *
+     * @return true if parsed
+     */
+    public boolean isParsed() {
+        return parsed != null;
+    }
+
+    @Override
+    byte[] getEncoding() {
+        try {
+            return load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] load() throws IOException {
+        byte[] bytes = encoding;
+        if (bytes != null) {
+            return bytes;
+        }
+        synchronized (this) {
+            if (encoding == null) {
+                encoding = source.load();
+            }
+            return encoding;
+        }
+    }
+}